@@ -0,0 +1,77 @@
+package de.pinyin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pinyin4j.ParseResult;
+import de.pinyin4j.PinyinParser;
+
+/**
+ * Compares parsing many independent strings one after another with
+ * {@link PinyinParser#tryParsePinyin(String)} to parsing them in parallel with
+ * {@link PinyinParser#parseAll(String[])}. The strings are all {@link Inputs} except the long
+ * text, repeated to 100,000 strings.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+
+    private final PinyinParser m_parser = new PinyinParser();
+    private String[] m_pinyins;
+
+    /**
+     * Builds the strings.
+     */
+    @Setup
+    public void setup() {
+        final Inputs[] inputs = Inputs.values();
+        m_pinyins = new String[100000];
+        int input = 0;
+
+        for (int i = 0; i < m_pinyins.length; i++) {
+            if (inputs[input] == Inputs.LONG_TEXT) input = (input + 1) % inputs.length;
+            m_pinyins[i] = inputs[input].getText();
+            input = (input + 1) % inputs.length;
+        }
+    }
+
+    /**
+     * Parses the strings on the calling thread.
+     *
+     * @return The results.
+     */
+    @Benchmark
+    public ParseResult[] sequential() {
+        final ParseResult[] results = new ParseResult[m_pinyins.length];
+
+        for (int i = 0; i < m_pinyins.length; i++) {
+            results[i] = m_parser.tryParsePinyin(m_pinyins[i]);
+        }
+
+        return results;
+    }
+
+    /**
+     * Parses the strings in parallel.
+     *
+     * @return The results.
+     */
+    @Benchmark
+    public ParseResult[] parseAll() {
+        return m_parser.parseAll(m_pinyins);
+    }
+}
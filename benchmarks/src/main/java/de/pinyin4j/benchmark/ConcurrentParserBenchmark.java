@@ -0,0 +1,102 @@
+package de.pinyin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pinyin4j.ParseResult;
+import de.pinyin4j.PinyinParser;
+
+/**
+ * Measures how the throughput of a single {@link PinyinParser} shared by all threads scales with
+ * the number of threads, and compares it to every thread using its own parser. The reported
+ * throughput is the sum over all threads, so on a machine with enough cores it should grow
+ * linearly up to the number of cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ConcurrentParserBenchmark {
+
+    @Param({ "TONE_NUMBERS", "PRECOMPOSED", "INVALID" })
+    private Inputs input;
+
+    private final PinyinParser m_sharedParser = new PinyinParser();
+    private String m_text;
+
+    /**
+     * The parser of a single thread.
+     */
+    @State(Scope.Thread)
+    public static class OwnParser {
+
+        private final PinyinParser m_parser = new PinyinParser();
+    }
+
+    /**
+     * Prepares the text.
+     */
+    @Setup
+    public void setup() {
+        m_text = input.getText();
+    }
+
+    /**
+     * Parses the text with the shared parser on a single thread.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    @Threads(1)
+    public ParseResult shared1() {
+        return m_sharedParser.tryParsePinyin(m_text);
+    }
+
+    /**
+     * Parses the text with the shared parser on 4 threads.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    @Threads(4)
+    public ParseResult shared4() {
+        return m_sharedParser.tryParsePinyin(m_text);
+    }
+
+    /**
+     * Parses the text with the shared parser on 16 threads.
+     *
+     * @return The result.
+     */
+    @Benchmark
+    @Threads(16)
+    public ParseResult shared16() {
+        return m_sharedParser.tryParsePinyin(m_text);
+    }
+
+    /**
+     * Parses the text on 16 threads that each use their own parser.
+     *
+     * @param own The parser of the calling thread.
+     * @return The result.
+     */
+    @Benchmark
+    @Threads(16)
+    public ParseResult own16(OwnParser own) {
+        return own.m_parser.tryParsePinyin(m_text);
+    }
+}
@@ -0,0 +1,85 @@
+package de.pinyin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinSpanDetector;
+import de.pinyin4j.PinyinTokens;
+
+/**
+ * Compares tokenizing every word of a mostly English text with {@link PinyinParser#tokenize(
+ * CharSequence)} to finding and parsing only candidate spans with {@link PinyinSpanDetector}.
+ * Pinyin occurs in one of a hundred sentences, as in crawled text.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DetectorBenchmark {
+
+    private static final String SENTENCE = "In 2019, we went to see the old city wall and a " +
+        "man at the gate said that he had lived there for most of his life. ";
+    private static final String PINYIN_SENTENCE = "The sign read \u4e2d\u56fd " +
+        "(Zhong1guo2), and the guide called it Zh\u014dnggu\u00f3 r\u00e9n de ch\u00e9ng. ";
+
+    private final PinyinParser m_parser = new PinyinParser();
+    private final PinyinSpanDetector m_detector = new PinyinSpanDetector();
+    private String m_text;
+
+    /**
+     * Builds a text of about 100,000 characters.
+     */
+    @Setup
+    public void setup() {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 800; i++) {
+            sb.append(i % 100 == 0 ? PINYIN_SENTENCE : SENTENCE);
+        }
+
+        m_text = sb.toString();
+    }
+
+    /**
+     * Parses every word of the text.
+     *
+     * @return The tokens of the text.
+     */
+    @Benchmark
+    public PinyinTokens tokenize() {
+        return m_parser.tokenize(m_text);
+    }
+
+    /**
+     * Finds the candidate spans of the text without parsing them.
+     *
+     * @return The offsets of the spans.
+     */
+    @Benchmark
+    public int[] findSpans() {
+        return m_detector.findSpans(m_text);
+    }
+
+    /**
+     * Finds the candidate spans of the text and parses the words within them.
+     *
+     * @return The tokens of the text.
+     */
+    @Benchmark
+    public PinyinTokens detect() {
+        return m_detector.detect(m_text);
+    }
+}
@@ -0,0 +1,93 @@
+package de.pinyin4j.benchmark;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinString;
+
+/**
+ * The inputs shared by all benchmarks. They are built from common words, so they contain the
+ * syllables, capitalization and spacing found in real texts and dictionaries.
+ */
+public enum Inputs {
+
+    /**
+     * A sentence with tones written as numbers.
+     */
+    TONE_NUMBERS("Wo3 men5 ming2tian1 qu4 Bei3jing1 kan4 peng2you5 ni3 yao4 bu5 yao4 " +
+        "yi4qi3 qu4"),
+
+    /**
+     * A sentence with tones written as combining marks.
+     */
+    TONE_MARKS("Zhe\u0300 jia\u0304n fa\u0301ngzi he\u030cn da\u0300 wo\u030c men " +
+        "ji\u0304nnia\u0301n ba\u0304n jia\u0304 le l\u00fce\u0300 ka\u0304i"),
+
+    /**
+     * The sentence of {@link Inputs#TONE_MARKS} with precomposed vowels, as in NFC text.
+     */
+    PRECOMPOSED("Zh\u00e8 ji\u0101n f\u00e1ngzi h\u011bn d\u00e0 w\u01d2 men " +
+        "j\u012bnni\u00e1n b\u0101n ji\u0101 le l\u00fc\u00e8 k\u0101i"),
+
+    /**
+     * A pinyin field of a CC-CEDICT entry, which uses "u:" for "ü", "5" for the neutral tone
+     * and "r5" for a retroflex final.
+     */
+    CEDICT("Zhong1 hua2 Ren2 min2 Gong4 he2 guo2 nu:3 er2 yi1 dian3 r5 lu:4 shi1"),
+
+    /**
+     * A text of several thousand syllables.
+     */
+    LONG_TEXT(repeat("zhe4 shi4 yi1 ge5 hen3 chang2 de5 ju4zi5 yong4 lai2 ce4shi4 xing4neng2 ",
+        300)),
+
+    /**
+     * A text that is pinyin up to its last token, so the whole input is read before it fails.
+     */
+    INVALID("ni3 hao3 wo3 jiao4 Li3 Ming2 hen3 gao1xing4 ren4shi5 ni3 xyz");
+
+    private static final PinyinParser PARSER = new PinyinParser();
+
+    private final String m_text;
+
+    private Inputs(String text) {
+        m_text = text;
+    }
+
+    private static String repeat(String text, int count) {
+        final StringBuilder sb = new StringBuilder(text.length() * count);
+
+        for (int i = 0; i < count; i++) {
+            sb.append(text);
+        }
+
+        return sb.toString().trim();
+    }
+
+    /**
+     * Gets the raw text of this input.
+     *
+     * @return The text.
+     */
+    public String getText() {
+        return m_text;
+    }
+
+    /**
+     * Parses this input followed by the given suffix. Invalid input is parsed only up to the
+     * invalid token.
+     *
+     * @param suffix Pinyin to append to the input, separated by a space if not empty.
+     * @return The parsed {@link PinyinString}.
+     */
+    public PinyinString parse(String suffix) {
+        String text = this == INVALID ? m_text.substring(0, m_text.lastIndexOf(' ')) : m_text;
+        if (!suffix.isEmpty()) text += " " + suffix;
+
+        try {
+            return PARSER.parsePinyin(text);
+        }
+        catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package de.pinyin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinParser;
+
+/**
+ * Measures {@link PinyinParser#parsePinyin(String)} on all {@link Inputs}, and compares it to the
+ * {@link BaselineParser} that came before the table-driven scanner.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param
+    private Inputs input;
+
+    private PinyinParser m_parser;
+    private BaselineParser m_baselineParser;
+    private String m_text;
+
+    /**
+     * Prepares the parser and the text.
+     */
+    @Setup
+    public void setup() {
+        m_parser = new PinyinParser();
+        m_baselineParser = new BaselineParser();
+        m_text = input.getText();
+    }
+
+    /**
+     * Parses the text, keeping whitespace.
+     *
+     * @return The parsed {@link de.pinyin4j.PinyinString} or the {@link ParseException}.
+     */
+    @Benchmark
+    public Object parse() {
+        try {
+            return m_parser.parsePinyin(m_text);
+        }
+        catch (ParseException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Parses the text, removing whitespace.
+     *
+     * @return The parsed {@link de.pinyin4j.PinyinString} or the {@link ParseException}.
+     */
+    @Benchmark
+    public Object parseWithoutWhitespace() {
+        try {
+            return m_parser.parsePinyin(m_text, false);
+        }
+        catch (ParseException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Parses the text with the baseline parser, keeping whitespace.
+     *
+     * @return The parsed syllables or the {@link ParseException}.
+     */
+    @Benchmark
+    public Object parseBaseline() {
+        try {
+            return m_baselineParser.parsePinyin(m_text);
+        }
+        catch (ParseException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Parses the text with the baseline parser, removing whitespace.
+     *
+     * @return The parsed syllables or the {@link ParseException}.
+     */
+    @Benchmark
+    public Object parseBaselineWithoutWhitespace() {
+        try {
+            return m_baselineParser.parsePinyin(m_text, false);
+        }
+        catch (ParseException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package de.pinyin4j.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pinyin4j.PinyinString;
+
+/**
+ * Measures saving, reading and comparing {@link PinyinString}s parsed from the valid
+ * {@link Inputs}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PinyinStringBenchmark {
+
+    @Param({ "TONE_NUMBERS", "TONE_MARKS", "PRECOMPOSED", "CEDICT", "LONG_TEXT" })
+    private Inputs input;
+
+    private PinyinString m_pinyin, m_equal, m_different;
+    private ByteArrayOutputStream m_bytes;
+    private DataOutputStream m_output;
+    private byte[] m_saved;
+
+    /**
+     * Parses the input and saves it once for the reading benchmark.
+     *
+     * @throws IOException Never.
+     */
+    @Setup
+    public void setup() throws IOException {
+        m_pinyin = input.parse("");
+        m_equal = input.parse("");
+
+        // only longer, so equals has to compare every syllable
+        m_different = input.parse("ma5");
+        m_bytes = new ByteArrayOutputStream();
+        m_output = new DataOutputStream(m_bytes);
+        m_pinyin.save(m_output);
+        m_saved = m_bytes.toByteArray();
+    }
+
+    /**
+     * Saves the string to a reused stream.
+     *
+     * @return The number of bytes written.
+     * @throws IOException Never.
+     */
+    @Benchmark
+    public int save() throws IOException {
+        m_bytes.reset();
+        m_pinyin.save(m_output);
+        return m_bytes.size();
+    }
+
+    /**
+     * Reads the saved string.
+     *
+     * @return The read {@link PinyinString}.
+     * @throws IOException Never.
+     */
+    @Benchmark
+    public PinyinString read() throws IOException {
+        return PinyinString.read(new DataInputStream(new ByteArrayInputStream(m_saved)));
+    }
+
+    /**
+     * Compares the string with an equal one.
+     *
+     * @return <tt>true</tt>.
+     */
+    @Benchmark
+    public boolean equalsEqual() {
+        return m_pinyin.equals(m_equal);
+    }
+
+    /**
+     * Compares the string with one that has an additional syllable.
+     *
+     * @return <tt>false</tt>.
+     */
+    @Benchmark
+    public boolean equalsDifferent() {
+        return m_pinyin.equals(m_different);
+    }
+}
@@ -0,0 +1,84 @@
+package de.pinyin4j.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.pinyin4j.PinyinString;
+import de.pinyin4j.Syllable;
+
+/**
+ * Measures {@link Syllable#toString()} and {@link Syllable#fromShort(short)} on the syllables of
+ * {@link Inputs#LONG_TEXT}, so the distribution of syllables is that of a real text.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SyllableBenchmark {
+
+    private Syllable[] m_syllables;
+    private short[] m_codes;
+    private int m_index;
+
+    /**
+     * Collects the syllables of the text.
+     */
+    @Setup
+    public void setup() {
+        final PinyinString text = Inputs.LONG_TEXT.parse("");
+        int count = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            if (text.getSyllable(i) != null) count++;
+        }
+
+        m_syllables = new Syllable[count];
+        m_codes = new short[count];
+        count = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            final Syllable syllable = text.getSyllable(i);
+            if (syllable == null) continue;
+            m_syllables[count] = syllable;
+            m_codes[count++] = syllable.toShort();
+        }
+    }
+
+    private int next() {
+        final int index = m_index;
+        m_index = index + 1 == m_codes.length ? 0 : index + 1;
+        return index;
+    }
+
+    /**
+     * Renders the next syllable.
+     *
+     * @return The rendered syllable.
+     */
+    @Benchmark
+    public String toStringSyllable() {
+        return m_syllables[next()].toString();
+    }
+
+    /**
+     * Decodes the next syllable.
+     *
+     * @return The decoded {@link Syllable}.
+     */
+    @Benchmark
+    public Syllable fromShort() {
+        return Syllable.fromShort(m_codes[next()]);
+    }
+}
@@ -1,7 +1,6 @@
 package de.pinyin4j;
 
 import java.util.HashMap;
-import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
@@ -230,7 +229,7 @@ public enum Final {
 
     private int m_index;
     private boolean m_unambiguousIsolatedStart, m_hasCoda;
-    private HashMap<Initial.Place, String> m_spellings;
+    private String[] m_spellings; // indexed by Initial.Place.ordinal()
 
     Final(int index, boolean unambiguousIsolatedStart, boolean hasCoda, String spelling) {
         this(index, unambiguousIsolatedStart, hasCoda, spelling, spelling, spelling, spelling);
@@ -247,11 +246,11 @@ public enum Final {
         m_index = index;
         m_unambiguousIsolatedStart = unambiguousIsolatedStart;
         m_hasCoda = hasCoda;
-        m_spellings = new HashMap<>(11);
-        m_spellings.put(Initial.Place.EMPTY, emptyInitialSpelling);
-        m_spellings.put(Initial.Place.LABIAL, labialInitialSpelling);
-        m_spellings.put(Initial.Place.PALATAL, palatalInitialSpelling);
-        m_spellings.put(Initial.Place.OTHER, otherSpelling);
+        m_spellings = new String[Initial.Place.values().length];
+        m_spellings[Initial.Place.EMPTY.ordinal()] = emptyInitialSpelling;
+        m_spellings[Initial.Place.LABIAL.ordinal()] = labialInitialSpelling;
+        m_spellings[Initial.Place.PALATAL.ordinal()] = palatalInitialSpelling;
+        m_spellings[Initial.Place.OTHER.ordinal()] = otherSpelling;
     }
 
     /**
@@ -262,7 +261,11 @@ public enum Final {
      * @return A {@link String} containing the spelling of this final after the given initial.
      */
     public String getSpelling(Initial initial) {
-        return m_spellings.get(initial.getPlace());
+        return getSpelling(initial.getPlace());
+    }
+
+    String getSpelling(Initial.Place place) {
+        return m_spellings[place.ordinal()];
     }
 
     /**
@@ -335,8 +338,8 @@ public enum Final {
         for (Final final_ : values()) {
             finals[final_.getIndex()] = final_;
 
-            for (Map.Entry<Initial.Place, String> spelling : final_.m_spellings.entrySet()) {
-                bySpelling.get(spelling.getKey()).put(spelling.getValue(), final_);
+            for (Initial.Place place : Initial.Place.values()) {
+                bySpelling.get(place).put(final_.getSpelling(place), final_);
             }
         }
     }
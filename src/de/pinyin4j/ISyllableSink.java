@@ -0,0 +1,24 @@
+package de.pinyin4j;
+
+/**
+ * A receiver of the tokens produced by the streaming methods of {@link PinyinParser}. Syllables
+ * are passed in their 16-bit representation (see {@link Syllable#toShort()}), so no objects have
+ * to be created per token.
+ */
+public interface ISyllableSink {
+
+    /**
+     * Called for every parsed syllable, in input order. Retroflex finals that are given as an extra
+     * "r5" segment are already merged into the syllable.
+     *
+     * @param syllable The 16-bit representation of the syllable, which can be converted using
+     *  {@link Syllable#fromShort(short)}.
+     */
+    void acceptSyllable(short syllable);
+
+    /**
+     * Called for every whitespace token between syllables. Consecutive whitespace characters are
+     * collapsed to a single token.
+     */
+    void acceptSpace();
+}
@@ -0,0 +1,45 @@
+package de.pinyin4j;
+
+/**
+ * An enumeration of the kinds of errors that can occur while parsing pinyin.
+ */
+public enum ParseError {
+
+    /**
+     * The consonants at the start of a syllable do not form an {@link Initial}, such as "hh".
+     */
+    INVALID_INITIAL,
+
+    /**
+     * A character was found where a syllable was expected, which cannot start one, such as "+" or
+     * a tone number without a preceding syllable.
+     */
+    UNEXPECTED_CHARACTER,
+
+    /**
+     * The vowels and codas of a syllable do not form a {@link Final} after the preceding initial,
+     * such as "ao" in "jao".
+     */
+    INVALID_FINAL,
+
+    /**
+     * The {@link Initial} and the {@link Final} of a syllable are both valid, but cannot be
+     * combined, such as in "fai".
+     */
+    INVALID_COMBINATION,
+
+    /**
+     * A syllable separator ("'") is not followed by a vowel, such as in "ke'yi".
+     */
+    UNEXPECTED_SEPARATOR,
+
+    /**
+     * A CC-CEDICT "r5" segment occurs before the first syllable.
+     */
+    INVALID_R_FINAL_AT_BEGINNING,
+
+    /**
+     * A CC-CEDICT "r5" segment follows a syllable that already has an r final.
+     */
+    DOUBLE_R_FINAL
+}
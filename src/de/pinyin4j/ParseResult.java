@@ -0,0 +1,108 @@
+package de.pinyin4j;
+
+/**
+ * The outcome of an attempt to parse pinyin, which either contains the parsed {@link PinyinString}
+ * or describes the error that occurred. It is returned by the <tt>tryParsePinyin</tt> methods of
+ * {@link PinyinParser}, which never throw a {@link ParseException}. This makes validating large
+ * amounts of mostly invalid input as cheap as parsing valid input.
+ */
+public final class ParseResult {
+
+    private final PinyinString m_pinyin;
+    private final ParseError m_error;
+    private final int m_errorOffset;
+    private String m_errorMessage = null;
+
+    // what the error message is assembled from, so the input itself is not kept
+    private final String m_errorSpan;
+    private final int m_errorLength;
+    private final char m_errorChar;
+    private final short m_errorCode;
+
+    ParseResult(PinyinString pinyin) {
+        m_pinyin = pinyin;
+        m_error = null;
+        m_errorOffset = -1;
+        m_errorSpan = null;
+        m_errorLength = 0;
+        m_errorChar = 0;
+        m_errorCode = 0;
+    }
+
+    ParseResult(PinyinScanner failed) {
+        m_pinyin = null;
+        m_error = failed.getError();
+        m_errorOffset = failed.getErrorOffset();
+        m_errorSpan = failed.getErrorSpan();
+        m_errorLength = failed.getErrorLength();
+        m_errorChar = failed.getErrorChar();
+        m_errorCode = failed.getErrorCode();
+    }
+
+    /**
+     * Indicates whether parsing was successful.
+     *
+     * @return <tt>true</tt>, if and only if the input was correct pinyin.
+     */
+    public boolean isValid() {
+        return m_error == null;
+    }
+
+    /**
+     * Gets the parsed pinyin string.
+     *
+     * @return The parsed {@link PinyinString} or <tt>null</tt>, if the input was invalid.
+     */
+    public PinyinString getPinyin() {
+        return m_pinyin;
+    }
+
+    /**
+     * Gets the parsed pinyin string, or throws the exception the corresponding
+     * <tt>parsePinyin</tt> method of {@link PinyinParser} would have thrown.
+     *
+     * @return The parsed {@link PinyinString}.
+     * @throws ParseException If the input was invalid.
+     */
+    public PinyinString getPinyinOrThrow() throws ParseException {
+        if (m_error != null) throw new ParseException(getErrorMessage());
+        return m_pinyin;
+    }
+
+    /**
+     * Gets the kind of the error that occurred.
+     *
+     * @return The {@link ParseError} that occurred or <tt>null</tt>, if the input was valid.
+     */
+    public ParseError getError() {
+        return m_error;
+    }
+
+    /**
+     * Gets the offset of the first character of the syllable or segment that could not be parsed.
+     * This is an index into the character sequence or array that was passed to the parser, not
+     * relative to the start of the parsed range.
+     *
+     * @return The offset of the error or -1, if the input was valid.
+     */
+    public int getErrorOffset() {
+        return m_errorOffset;
+    }
+
+    /**
+     * Gets a human-readable description of the error that occurred. It is the same as the
+     * message of the {@link ParseException} that <tt>parsePinyin</tt> would have thrown. It is
+     * only assembled when this method is called.
+     *
+     * @return A {@link String} describing the error or <tt>null</tt>, if the input was valid.
+     */
+    public String getErrorMessage() {
+        if (m_error == null) return null;
+        if (m_errorMessage == null) {
+            m_errorMessage = PinyinScanner.describe(m_error, m_errorSpan, m_errorLength,
+                m_errorChar, m_errorCode);
+        }
+
+        return m_errorMessage;
+    }
+}
@@ -0,0 +1,234 @@
+package de.pinyin4j;
+
+import java.util.Arrays;
+
+/**
+ * The costs of the edit operations used by {@link PinyinFuzzyIndex} to measure how far apart two
+ * pinyin strings are. Replacing one syllable by another costs the sum of the costs of replacing
+ * its {@link Initial}, {@link Final} and {@link Tone} plus a cost if exactly one of them has an
+ * "r"-final. Inserting or deleting a syllable has a fixed cost. All costs are symmetric and
+ * non-negative. Instances are immutable and created by a {@link Builder}.
+ */
+public final class PhoneticCosts {
+
+    private static final int INITIALS = Initial.values().length, FINALS = Final.values().length,
+        TONES = Tone.values().length;
+
+    /**
+     * Costs that model common confusions: z/zh, c/ch, s/sh and n/l among initials as well as
+     * en/eng, in/ing and an/ang among finals cost 1, any other initial or final 3, a wrong tone 1,
+     * a missing or extra "r"-final 1 and inserting or deleting a syllable 4.
+     */
+    public static final PhoneticCosts DEFAULT = new Builder()
+        .setInitialCost(Initial.Z, Initial.ZH, 1)
+        .setInitialCost(Initial.C, Initial.CH, 1)
+        .setInitialCost(Initial.S, Initial.SH, 1)
+        .setInitialCost(Initial.N, Initial.L, 1)
+        .setFinalCost(Final.EN, Final.ENG, 1)
+        .setFinalCost(Final.IN, Final.ING, 1)
+        .setFinalCost(Final.AN, Final.ANG, 1)
+        .build();
+
+    private final int[] m_initialCosts, m_finalCosts, m_toneCosts;
+    private final int m_rFinalCost, m_indelCost, m_minSubstitutionCost;
+
+    private PhoneticCosts(Builder builder) {
+        m_initialCosts = builder.m_initialCosts.clone();
+        m_finalCosts = builder.m_finalCosts.clone();
+        m_toneCosts = builder.m_toneCosts.clone();
+        m_rFinalCost = builder.m_rFinalCost;
+        m_indelCost = builder.m_indelCost;
+
+        // distinct syllables differ in at least one component
+        m_minSubstitutionCost = Math.min(Math.min(minDifferentCost(m_initialCosts, INITIALS),
+            minDifferentCost(m_finalCosts, FINALS)),
+            Math.min(minDifferentCost(m_toneCosts, TONES), m_rFinalCost));
+    }
+
+    private static int minDifferentCost(int[] costs, int size) {
+        int result = Integer.MAX_VALUE;
+
+        for (int i = 0; i < costs.length; i++) {
+            if (i / size != i % size) result = Math.min(result, costs[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the cost of replacing one syllable by another. Capitalization is ignored.
+     *
+     * @param a The 16-bit representation of the first syllable (see {@link Syllable#toShort()}).
+     * @param b The 16-bit representation of the second syllable.
+     * @return The cost of the replacement, which is 0 if the syllables are equal.
+     */
+    public int getSubstitutionCost(short a, short b) {
+        int result = m_initialCosts[(a & Syllable.INITIAL_MASK) * INITIALS +
+            (b & Syllable.INITIAL_MASK)];
+        result += m_finalCosts[((a & Syllable.FINAL_MASK) >> Syllable.FINAL_SHIFT) * FINALS +
+            ((b & Syllable.FINAL_MASK) >> Syllable.FINAL_SHIFT)];
+        result += m_toneCosts[((a & Syllable.TONE_MASK) >> Syllable.TONE_SHIFT) * TONES +
+            ((b & Syllable.TONE_MASK) >> Syllable.TONE_SHIFT)];
+        if (((a ^ b) & Syllable.R_FINAL_MASK) != 0) result += m_rFinalCost;
+        return result;
+    }
+
+    // a lower bound for the cost of replacing a syllable by a different one, ignoring
+    // capitalization
+    int getMinSubstitutionCost() {
+        return m_minSubstitutionCost;
+    }
+
+    /**
+     * Gets the cost of inserting or deleting a syllable.
+     *
+     * @return The cost of an insertion or deletion.
+     */
+    public int getIndelCost() {
+        return m_indelCost;
+    }
+
+    /**
+     * Creates {@link PhoneticCosts}. All costs between different components start at the
+     * default costs and can be overridden per pair. Builders are not thread-safe.
+     */
+    public static final class Builder {
+
+        private final int[] m_initialCosts = new int[INITIALS * INITIALS],
+            m_finalCosts = new int[FINALS * FINALS], m_toneCosts = new int[TONES * TONES];
+        private int m_rFinalCost = 1, m_indelCost = 4;
+
+        /**
+         * Creates a new builder where different initials and finals cost 3 and different tones
+         * cost 1.
+         */
+        public Builder() {
+            setDefaultCost(m_initialCosts, INITIALS, 3);
+            setDefaultCost(m_finalCosts, FINALS, 3);
+            setDefaultCost(m_toneCosts, TONES, 1);
+        }
+
+        private static void setDefaultCost(int[] costs, int size, int cost) {
+            Arrays.fill(costs, checkCost(cost));
+
+            for (int i = 0; i < size; i++) {
+                costs[i * size + i] = 0;
+            }
+        }
+
+        private static int checkCost(int cost) {
+            if (cost < 0) throw new IllegalArgumentException("Costs must not be negative.");
+            return cost;
+        }
+
+        /**
+         * Sets the cost of replacing any initial by a different one. This overrides all costs
+         * previously set for pairs of initials.
+         *
+         * @param cost The non-negative cost.
+         * @return This builder.
+         */
+        public Builder setDefaultInitialCost(int cost) {
+            setDefaultCost(m_initialCosts, INITIALS, cost);
+            return this;
+        }
+
+        /**
+         * Sets the cost of replacing any final by a different one. This overrides all costs
+         * previously set for pairs of finals.
+         *
+         * @param cost The non-negative cost.
+         * @return This builder.
+         */
+        public Builder setDefaultFinalCost(int cost) {
+            setDefaultCost(m_finalCosts, FINALS, cost);
+            return this;
+        }
+
+        /**
+         * Sets the cost of replacing any tone by a different one. This overrides all costs
+         * previously set for pairs of tones.
+         *
+         * @param cost The non-negative cost.
+         * @return This builder.
+         */
+        public Builder setDefaultToneCost(int cost) {
+            setDefaultCost(m_toneCosts, TONES, cost);
+            return this;
+        }
+
+        /**
+         * Sets the cost of replacing one initial by another and vice versa.
+         *
+         * @param a The first {@link Initial}.
+         * @param b The second {@link Initial}.
+         * @param cost The non-negative cost.
+         * @return This builder.
+         */
+        public Builder setInitialCost(Initial a, Initial b, int cost) {
+            m_initialCosts[a.getIndex() * INITIALS + b.getIndex()] = checkCost(cost);
+            m_initialCosts[b.getIndex() * INITIALS + a.getIndex()] = cost;
+            return this;
+        }
+
+        /**
+         * Sets the cost of replacing one final by another and vice versa.
+         *
+         * @param a The first {@link Final}.
+         * @param b The second {@link Final}.
+         * @param cost The non-negative cost.
+         * @return This builder.
+         */
+        public Builder setFinalCost(Final a, Final b, int cost) {
+            m_finalCosts[a.getIndex() * FINALS + b.getIndex()] = checkCost(cost);
+            m_finalCosts[b.getIndex() * FINALS + a.getIndex()] = cost;
+            return this;
+        }
+
+        /**
+         * Sets the cost of replacing one tone by another and vice versa.
+         *
+         * @param a The first {@link Tone}.
+         * @param b The second {@link Tone}.
+         * @param cost The non-negative cost.
+         * @return This builder.
+         */
+        public Builder setToneCost(Tone a, Tone b, int cost) {
+            m_toneCosts[a.getIndex() * TONES + b.getIndex()] = checkCost(cost);
+            m_toneCosts[b.getIndex() * TONES + a.getIndex()] = cost;
+            return this;
+        }
+
+        /**
+         * Sets the cost of adding or removing an "r"-final.
+         *
+         * @param cost The non-negative cost.
+         * @return This builder.
+         */
+        public Builder setRFinalCost(int cost) {
+            m_rFinalCost = checkCost(cost);
+            return this;
+        }
+
+        /**
+         * Sets the cost of inserting or deleting a whole syllable.
+         *
+         * @param cost The non-negative cost.
+         * @return This builder.
+         */
+        public Builder setIndelCost(int cost) {
+            m_indelCost = checkCost(cost);
+            return this;
+        }
+
+        /**
+         * Creates the costs configured in this builder. The builder can still be used
+         * afterwards.
+         *
+         * @return The {@link PhoneticCosts}.
+         */
+        public PhoneticCosts build() {
+            return new PhoneticCosts(this);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package de.pinyin4j;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Encodes {@link PinyinString}s to and decodes them from {@link ByteBuffer}s and byte arrays in
+ * bulk. All multi-byte values are big-endian, regardless of the order of the buffer. Buffers are
+ * accessed with absolute indices, so encoding and decoding large batches runs in tight loops
+ * over primitive values instead of one stream call per byte. Codecs are immutable and can be
+ * shared between threads.
+ * <p>
+ * Encoding advances the position of the target buffer and decoding advances the position of the
+ * source buffer by the number of bytes written or read. If an exception is thrown, the position
+ * is not changed.
+ */
+public final class PinyinCodec {
+
+    /**
+     * The binary formats supported by {@link PinyinCodec}.
+     */
+    public enum Format {
+
+        /**
+         * The format of {@link PinyinString#save(java.io.DataOutputStream)}. Every syllable is
+         * stored in its 16-bit representation (see {@link Syllable#toShort()}), every space as a
+         * single byte, and the string is followed by a terminator byte.
+         */
+        STANDARD,
+
+        /**
+         * The tokens of {@link Format#STANDARD}, but preceded by the number of tokens as a 32-bit
+         * integer instead of followed by a terminator. This allows decoding without scanning for
+         * the terminator first.
+         */
+        LENGTH_PREFIXED,
+
+        /**
+         * The number of tokens as a variable-length integer (7 bits per byte, least significant
+         * group first), followed by 16-bit tokens. Every token contains the id of a syllable (see
+         * {@link Syllable#getId()}) and a flag indicating whether it is preceded by a space, so
+         * single spaces between syllables take no extra space. Since ids depend on the order of
+         * {@link Initial}s and {@link Final}s, this format is only meant for data exchanged
+         * between identical versions of this library, such as caches.
+         */
+        COMPACT
+    }
+
+    private static final int COMPACT_SPACE_BEFORE = 0x8000, COMPACT_SPACE = 0x7fff;
+
+    private final Format m_format;
+
+    /**
+     * Creates a new codec for the given format.
+     *
+     * @param format The {@link Format} written and read by the created codec.
+     */
+    public PinyinCodec(Format format) {
+        m_format = Objects.requireNonNull(format);
+    }
+
+    /**
+     * Gets the format written and read by this codec.
+     *
+     * @return The {@link Format} of this codec.
+     */
+    public Format getFormat() {
+        return m_format;
+    }
+
+    /**
+     * Computes the number of bytes the given pinyin string occupies when encoded by this codec.
+     *
+     * @param pinyin The {@link PinyinString} to measure.
+     * @return The number of bytes written by {@link PinyinCodec#encode(PinyinString, ByteBuffer)}.
+     */
+    public int encodedSize(PinyinString pinyin) {
+        final short[] codes = pinyin.getCodes();
+
+        switch (m_format) {
+            case STANDARD: return standardSize(codes) + 1;
+            case LENGTH_PREFIXED: return 4 + standardSize(codes);
+            default:
+                final int tokens = compactTokens(codes);
+                return varIntSize(tokens) + 2 * tokens;
+        }
+    }
+
+    private static int standardSize(short[] codes) {
+        int result = 0;
+
+        for (short code : codes) {
+            result += code == PinyinString.SPACE_CODE ? 1 : 2;
+        }
+
+        return result;
+    }
+
+    private static int compactTokens(short[] codes) {
+        int result = 0;
+
+        for (int i = 0; i < codes.length; i++) {
+            // a space directly followed by a syllable is stored in the token of the syllable
+            if (codes[i] == PinyinString.SPACE_CODE && i + 1 < codes.length &&
+                    codes[i + 1] != PinyinString.SPACE_CODE)
+                i++;
+            result++;
+        }
+
+        return result;
+    }
+
+    private static int varIntSize(int value) {
+        int result = 1;
+
+        while ((value >>>= 7) != 0) {
+            result++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Encodes the given pinyin string into the given buffer, starting at its position.
+     *
+     * @param pinyin The {@link PinyinString} to encode.
+     * @param target The {@link ByteBuffer} to write to.
+     * @throws BufferOverflowException If the buffer does not have enough remaining space.
+     * @throws java.nio.ReadOnlyBufferException If the buffer is read-only.
+     */
+    public void encode(PinyinString pinyin, ByteBuffer target) {
+        if (target.remaining() < encodedSize(pinyin)) throw new BufferOverflowException();
+        target.position(encode(pinyin.getCodes(), target, target.position()));
+    }
+
+    /**
+     * Encodes the given pinyin string into a new byte array.
+     *
+     * @param pinyin The {@link PinyinString} to encode.
+     * @return A byte array of length {@link PinyinCodec#encodedSize(PinyinString)} containing the
+     *  encoded string.
+     */
+    public byte[] encode(PinyinString pinyin) {
+        final byte[] result = new byte[encodedSize(pinyin)];
+        encode(pinyin.getCodes(), ByteBuffer.wrap(result), 0);
+        return result;
+    }
+
+    /**
+     * Encodes all given pinyin strings into the given buffer, one directly after the other.
+     *
+     * @param pinyins A {@link Collection} of the {@link PinyinString}s to encode.
+     * @param target The {@link ByteBuffer} to write to.
+     * @throws BufferOverflowException If the buffer does not have enough remaining space. In
+     *  that case, nothing is written.
+     * @throws java.nio.ReadOnlyBufferException If the buffer is read-only.
+     */
+    public void encodeAll(Collection<PinyinString> pinyins, ByteBuffer target) {
+        if (target.remaining() < encodedSize(pinyins)) throw new BufferOverflowException();
+        int position = target.position();
+
+        for (PinyinString pinyin : pinyins) {
+            position = encode(pinyin.getCodes(), target, position);
+        }
+
+        target.position(position);
+    }
+
+    /**
+     * Encodes all given pinyin strings into a new byte array, one directly after the other.
+     *
+     * @param pinyins A {@link Collection} of the {@link PinyinString}s to encode.
+     * @return A byte array containing the encoded strings.
+     */
+    public byte[] encodeAll(Collection<PinyinString> pinyins) {
+        final ByteBuffer result = ByteBuffer.allocate(encodedSize(pinyins));
+        encodeAll(pinyins, result);
+        return result.array();
+    }
+
+    private int encodedSize(Collection<PinyinString> pinyins) {
+        long result = 0;
+
+        for (PinyinString pinyin : pinyins) {
+            result += encodedSize(pinyin);
+        }
+
+        if (result > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The encoded strings do not fit into a buffer.");
+        return (int)result;
+    }
+
+    // writes the codes at the given index without any checks and returns the index after them
+    private int encode(short[] codes, ByteBuffer target, int index) {
+        switch (m_format) {
+            case STANDARD:
+                index = encodeTokens(codes, target, index);
+                target.put(index++, PinyinString.TERMINATOR);
+                return index;
+            case LENGTH_PREFIXED:
+                target.put(index, (byte)(codes.length >>> 24));
+                target.put(index + 1, (byte)(codes.length >>> 16));
+                target.put(index + 2, (byte)(codes.length >>> 8));
+                target.put(index + 3, (byte)codes.length);
+                return encodeTokens(codes, target, index + 4);
+            default:
+                return encodeCompact(codes, target, index);
+        }
+    }
+
+    private static int encodeTokens(short[] codes, ByteBuffer target, int index) {
+        for (short code : codes) {
+            if (code == PinyinString.SPACE_CODE) target.put(index++, PinyinString.SPACE);
+            else {
+                target.put(index++, (byte)(code >> 8));
+                target.put(index++, (byte)code);
+            }
+        }
+
+        return index;
+    }
+
+    private static int encodeCompact(short[] codes, ByteBuffer target, int index) {
+        int tokens = compactTokens(codes);
+
+        for (; tokens >= 0x80; tokens >>>= 7) {
+            target.put(index++, (byte)(tokens | 0x80));
+        }
+
+        target.put(index++, (byte)tokens);
+
+        for (int i = 0; i < codes.length; i++) {
+            final int token;
+
+            if (codes[i] != PinyinString.SPACE_CODE) token = Syllable.toId(codes[i]);
+            else if (i + 1 < codes.length && codes[i + 1] != PinyinString.SPACE_CODE)
+                token = COMPACT_SPACE_BEFORE | Syllable.toId(codes[++i]);
+            else token = COMPACT_SPACE;
+
+            target.put(index++, (byte)(token >>> 8));
+            target.put(index++, (byte)token);
+        }
+
+        return index;
+    }
+
+    /**
+     * Decodes a single pinyin string from the given buffer, starting at its position.
+     *
+     * @param source The {@link ByteBuffer} to read from.
+     * @return The decoded {@link PinyinString}.
+     * @throws BufferUnderflowException If the buffer ends before the encoded string.
+     * @throws IllegalArgumentException If the buffer does not contain a valid encoding.
+     */
+    public PinyinString decode(ByteBuffer source) {
+        final short[][] result = new short[1][];
+        source.position(decode(source, source.position(), result));
+        return new PinyinString(result[0]);
+    }
+
+    /**
+     * Decodes a single pinyin string from the start of the given byte array.
+     *
+     * @param bytes The byte array to read from.
+     * @return The decoded {@link PinyinString}.
+     * @throws BufferUnderflowException If the array ends before the encoded string.
+     * @throws IllegalArgumentException If the array does not contain a valid encoding.
+     */
+    public PinyinString decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes pinyin strings from the given buffer until no bytes remain.
+     *
+     * @param source The {@link ByteBuffer} to read from.
+     * @return A {@link List} of the decoded {@link PinyinString}s in buffer order.
+     * @throws BufferUnderflowException If the buffer ends in the middle of an encoded string.
+     * @throws IllegalArgumentException If the buffer does not contain a valid encoding.
+     */
+    public List<PinyinString> decodeAll(ByteBuffer source) {
+        final List<PinyinString> result = new ArrayList<>();
+        final short[][] codes = new short[1][];
+        int index = source.position();
+
+        while (index < source.limit()) {
+            index = decode(source, index, codes);
+            result.add(new PinyinString(codes[0]));
+        }
+
+        source.position(index);
+        return result;
+    }
+
+    /**
+     * Decodes pinyin strings from the given byte array until its end.
+     *
+     * @param bytes The byte array to read from.
+     * @return A {@link List} of the decoded {@link PinyinString}s in array order.
+     * @throws BufferUnderflowException If the array ends in the middle of an encoded string.
+     * @throws IllegalArgumentException If the array does not contain a valid encoding.
+     */
+    public List<PinyinString> decodeAll(byte[] bytes) {
+        return decodeAll(ByteBuffer.wrap(bytes));
+    }
+
+    // decodes the codes at the given index into result[0] and returns the index after them
+    private int decode(ByteBuffer source, int index, short[][] result) {
+        final int limit = source.limit();
+
+        switch (m_format) {
+            case STANDARD:
+                int length = 0;
+
+                for (int i = index; ; length++) {
+                    if (i >= limit) throw new BufferUnderflowException();
+                    final byte first = source.get(i);
+                    if (first == PinyinString.TERMINATOR) break;
+                    i += first == PinyinString.SPACE ? 1 : 2;
+                }
+
+                result[0] = new short[length];
+                return decodeTokens(source, index, limit, result[0]) + 1;
+            case LENGTH_PREFIXED:
+                if (limit - index < 4) throw new BufferUnderflowException();
+                final int tokens = (source.get(index) & 0xff) << 24 |
+                    (source.get(index + 1) & 0xff) << 16 | (source.get(index + 2) & 0xff) << 8 |
+                    source.get(index + 3) & 0xff;
+                if (tokens < 0)
+                    throw new IllegalArgumentException("Invalid token count " + tokens + ".");
+                if (tokens > limit - index - 4) throw new BufferUnderflowException();
+                result[0] = new short[tokens];
+                return decodeTokens(source, index + 4, limit, result[0]);
+            default:
+                return decodeCompact(source, index, limit, result);
+        }
+    }
+
+    private static int decodeTokens(ByteBuffer source, int index, int limit, short[] codes) {
+        for (int i = 0; i < codes.length; i++) {
+            if (index >= limit) throw new BufferUnderflowException();
+            final byte first = source.get(index++);
+
+            if (first == PinyinString.SPACE) codes[i] = PinyinString.SPACE_CODE;
+            else {
+                if (index >= limit) throw new BufferUnderflowException();
+                codes[i] = checkCode((short)(first << 8 | source.get(index++) & 0xff));
+            }
+        }
+
+        return index;
+    }
+
+    private static short checkCode(short code) {
+        if (Syllable.toId(code) < 0)
+            throw new IllegalArgumentException("Invalid syllable code " +
+                Integer.toHexString(code & 0xffff) + ".");
+        return code;
+    }
+
+    private static int decodeCompact(ByteBuffer source, int index, int limit,
+            short[][] result) {
+        int tokens = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            if (index >= limit) throw new BufferUnderflowException();
+            if (shift > 28) throw new IllegalArgumentException("Invalid token count.");
+            final byte b = source.get(index++);
+            tokens |= (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+
+        if (tokens < 0) throw new IllegalArgumentException("Invalid token count " + tokens + ".");
+        if (tokens > (limit - index) / 2) throw new BufferUnderflowException();
+        final int end = index + 2 * tokens;
+        int length = tokens;
+
+        for (int i = index; i < end; i += 2) {
+            if (source.get(i) < 0) length++;
+        }
+
+        final short[] codes = new short[length];
+        final int idCount = Syllable.getIdCount();
+
+        for (int i = 0; index < end; index += 2) {
+            final int token = (source.get(index) & 0xff) << 8 | source.get(index + 1) & 0xff;
+            final int id = token & ~COMPACT_SPACE_BEFORE;
+
+            if (token == COMPACT_SPACE) codes[i++] = PinyinString.SPACE_CODE;
+            else {
+                if (id >= idCount)
+                    throw new IllegalArgumentException("Invalid syllable id " + id + ".");
+                if (token != id) codes[i++] = PinyinString.SPACE_CODE;
+                codes[i++] = Syllable.idToShort(id);
+            }
+        }
+
+        result[0] = codes;
+        return end;
+    }
+}
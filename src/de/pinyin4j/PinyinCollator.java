@@ -0,0 +1,313 @@
+package de.pinyin4j;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.TreeMap;
+
+/**
+ * A comparator for {@link PinyinString}s whose sensitivity to spaces, capitalization, tones and
+ * "r"-finals is chosen at runtime. Strings are ordered by the alphabetical spelling of their
+ * toneless syllables first, where "\u00fc" is sorted like "v". Only if those are equal, the tones
+ * are compared (first, second, third, fourth and finally neutral tone), and after that the
+ * capitalization. Consequently, strings that are equal when ignoring tones are adjacent in the
+ * order of a tone-sensitive collator.
+ * <p>
+ * For every string, a binary sort key can be computed, whose unsigned lexicographic order is the
+ * order of this collator. Sorting many strings by their keys is much cheaper than comparing them
+ * repeatedly. Collators are immutable and can be shared between threads.
+ */
+public final class PinyinCollator implements Comparator<PinyinString> {
+
+    private static final int R_FINAL_BASE_MASK =
+        Syllable.INITIAL_MASK | Syllable.FINAL_MASK | Syllable.R_FINAL_MASK;
+    private static final int BASE_MASK = Syllable.INITIAL_MASK | Syllable.FINAL_MASK;
+
+    // the primary weight of spaces, syllable weights are larger
+    private static final int SPACE_WEIGHT = 1;
+
+    // primary weights of all codes masked with R_FINAL_BASE_MASK or BASE_MASK
+    private static final char[] R_FINAL_WEIGHTS = new char[R_FINAL_BASE_MASK + 1];
+    private static final char[] WEIGHTS = new char[BASE_MASK + 1];
+
+    static {
+        fillWeights(R_FINAL_WEIGHTS, R_FINAL_BASE_MASK);
+        fillWeights(WEIGHTS, BASE_MASK);
+    }
+
+    private static void fillWeights(char[] weights, int mask) {
+        final TreeMap<String, char[]> codesBySpelling = new TreeMap<>();
+
+        for (int id = 0; id < Syllable.getIdCount(); id++) {
+            final short code = Syllable.idToShort(id);
+            if ((code & ~mask) != 0) continue;
+
+            // neutral tone and no capitalization, so this is the plain toneless spelling
+            final String spelling = Syllable.fromShort(code).toString().replace('\u00fc', 'v');
+            final char[] codes = codesBySpelling.get(spelling);
+            codesBySpelling.put(spelling, codes == null ? new char[] { (char)code } :
+                append(codes, (char)code));
+        }
+
+        char weight = SPACE_WEIGHT + 1;
+
+        for (char[] codes : codesBySpelling.values()) {
+            for (char code : codes) {
+                weights[code] = weight;
+            }
+
+            weight++;
+        }
+    }
+
+    private static char[] append(char[] array, char c) {
+        final char[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = c;
+        return result;
+    }
+
+    /**
+     * Dictionary order: ignores spaces and capitalization, but distinguishes tones and
+     * "r"-finals. This corresponds to {@link PinyinString#SPACE_SENSITIVE} and
+     * {@link PinyinString#CASE_SENSITIVE}.
+     */
+    public static final PinyinCollator DICTIONARY = new PinyinCollator(false, false, true, true);
+
+    /**
+     * Like {@link PinyinCollator#DICTIONARY}, but ignores tones, which makes it suitable for
+     * grouping strings that only differ in their tones.
+     */
+    public static final PinyinCollator TONE_INSENSITIVE =
+        new PinyinCollator(false, false, false, true);
+
+    private final boolean m_spaceSensitive, m_caseSensitive, m_toneSensitive;
+    private final char[] m_weights;
+    private final int m_baseMask;
+
+    /**
+     * Creates a new collator with the given sensitivities.
+     *
+     * @param spaceSensitive Indicates, whether spaces are compared. If so, a space sorts before
+     *  any syllable.
+     * @param caseSensitive Indicates, whether capitalization is used to order strings that are
+     *  equal otherwise. If so, lower case sorts before upper case.
+     * @param toneSensitive Indicates, whether tones are used to order strings whose toneless
+     *  syllables are equal.
+     * @param rFinalSensitive Indicates, whether "r"-finals are distinguished, so "hua" and "huar"
+     *  are different.
+     */
+    public PinyinCollator(boolean spaceSensitive, boolean caseSensitive, boolean toneSensitive,
+            boolean rFinalSensitive) {
+        m_spaceSensitive = spaceSensitive;
+        m_caseSensitive = caseSensitive;
+        m_toneSensitive = toneSensitive;
+        m_weights = rFinalSensitive ? R_FINAL_WEIGHTS : WEIGHTS;
+        m_baseMask = rFinalSensitive ? R_FINAL_BASE_MASK : BASE_MASK;
+    }
+
+    private int primaryWeight(short code) {
+        return code == PinyinString.SPACE_CODE ? SPACE_WEIGHT : m_weights[code & m_baseMask];
+    }
+
+    private static int toneWeight(short code) {
+        final int tone = (code & Syllable.TONE_MASK) >> Syllable.TONE_SHIFT;
+        return tone == Tone.NEUTRAL.getIndex() ? 5 : tone;
+    }
+
+    private static int caseWeight(short code) {
+        return (code & Syllable.CAPITAL_MASK) == 0 ? 1 : 2;
+    }
+
+    // skips ignored spaces starting at the given index
+    private int skip(short[] codes, int index) {
+        if (m_spaceSensitive) return index;
+        while (index < codes.length && codes[index] == PinyinString.SPACE_CODE) index++;
+        return index;
+    }
+
+    @Override
+    public int compare(PinyinString a, PinyinString b) {
+        final short[] codesA = a.getCodes(), codesB = b.getCodes();
+        int indexA = skip(codesA, 0), indexB = skip(codesB, 0);
+
+        while (indexA < codesA.length && indexB < codesB.length) {
+            final int result =
+                Integer.compare(primaryWeight(codesA[indexA]), primaryWeight(codesB[indexB]));
+            if (result != 0) return result;
+            indexA = skip(codesA, indexA + 1);
+            indexB = skip(codesB, indexB + 1);
+        }
+
+        if (indexA < codesA.length) return 1;
+        if (indexB < codesB.length) return -1;
+
+        // the primary weights are equal, so both strings have the same syllables at same indices
+        if (m_toneSensitive) {
+            final int result = compareSyllables(codesA, codesB, true);
+            if (result != 0) return result;
+        }
+
+        return m_caseSensitive ? compareSyllables(codesA, codesB, false) : 0;
+    }
+
+    private static int compareSyllables(short[] codesA, short[] codesB, boolean tones) {
+        int indexA = 0, indexB = 0;
+
+        while (true) {
+            while (indexA < codesA.length && codesA[indexA] == PinyinString.SPACE_CODE) indexA++;
+            while (indexB < codesB.length && codesB[indexB] == PinyinString.SPACE_CODE) indexB++;
+            if (indexA == codesA.length) return 0;
+
+            final int result = tones ?
+                Integer.compare(toneWeight(codesA[indexA]), toneWeight(codesB[indexB])) :
+                Integer.compare(caseWeight(codesA[indexA]), caseWeight(codesB[indexB]));
+            if (result != 0) return result;
+            indexA++;
+            indexB++;
+        }
+    }
+
+    /**
+     * Computes the binary sort key of the given string. For any two strings <tt>a</tt> and
+     * <tt>b</tt>, <tt>Arrays.compareUnsigned(getSortKey(a), getSortKey(b))</tt> has the same sign
+     * as <tt>compare(a, b)</tt>. The key consists of two bytes per compared token, followed by one
+     * byte per syllable for tones and one for capitalization, if this collator is sensitive to
+     * them.
+     *
+     * @param pinyin The {@link PinyinString} to compute the key for.
+     * @return The sort key as a byte array.
+     */
+    public byte[] getSortKey(PinyinString pinyin) {
+        final short[] codes = pinyin.getCodes();
+        int tokens = 0, syllables = 0;
+
+        for (short code : codes) {
+            if (code != PinyinString.SPACE_CODE) syllables++;
+            else if (m_spaceSensitive) tokens++;
+        }
+
+        int length = 2 * (tokens + syllables);
+        if (m_toneSensitive) length += 2 + syllables;
+        if (m_caseSensitive) length += (m_toneSensitive ? 1 : 2) + syllables;
+        final byte[] result = new byte[length];
+        writeKey(codes, result);
+        return result;
+    }
+
+    /**
+     * Computes the first eight bytes of the sort key of the given string as a big-endian long,
+     * padded with zeros. If <tt>Long.compareUnsigned</tt> of the prefix keys of two strings is
+     * not zero, it has the same sign as <tt>compare</tt>. This allows sorting by primitive values
+     * or radix sorting, where only ties have to be resolved by the full sort key.
+     *
+     * @param pinyin The {@link PinyinString} to compute the key for.
+     * @return The prefix of the sort key.
+     */
+    public long getPrefixKey(PinyinString pinyin) {
+        final byte[] key = new byte[8];
+        writeKey(pinyin.getCodes(), key);
+        return prefixOf(key);
+    }
+
+    private static long prefixOf(byte[] key) {
+        long result = 0;
+
+        for (int i = 0; i < 8; i++) {
+            result = result << 8 | (i < key.length ? key[i] & 0xff : 0);
+        }
+
+        return result;
+    }
+
+    // writes as much of the sort key as fits into the given array, which is zero-initialized
+    private void writeKey(short[] codes, byte[] target) {
+        int index = 0;
+
+        for (int i = 0; i < codes.length && index < target.length; i++) {
+            if (codes[i] == PinyinString.SPACE_CODE && !m_spaceSensitive) continue;
+            final int weight = primaryWeight(codes[i]);
+            target[index++] = (byte)(weight >>> 8);
+            if (index < target.length) target[index++] = (byte)weight;
+        }
+
+        // the terminators of the sections are zero and thus already in place
+        if (m_toneSensitive) {
+            index += 2;
+
+            for (int i = 0; i < codes.length && index < target.length; i++) {
+                if (codes[i] != PinyinString.SPACE_CODE)
+                    target[index++] = (byte)toneWeight(codes[i]);
+            }
+        }
+
+        if (m_caseSensitive) {
+            index += m_toneSensitive ? 1 : 2;
+
+            for (int i = 0; i < codes.length && index < target.length; i++) {
+                if (codes[i] != PinyinString.SPACE_CODE)
+                    target[index++] = (byte)caseWeight(codes[i]);
+            }
+        }
+    }
+
+    /**
+     * Sorts the given array in the order of this collator by computing the sort key of every
+     * element once. The sort is stable.
+     *
+     * @param pinyins The array of {@link PinyinString}s to sort.
+     */
+    public void sort(PinyinString[] pinyins) {
+        final Keyed[] keyed = toKeyed(Arrays.asList(pinyins));
+
+        for (int i = 0; i < keyed.length; i++) {
+            pinyins[i] = keyed[i].m_pinyin;
+        }
+    }
+
+    /**
+     * Sorts the given list in the order of this collator by computing the sort key of every
+     * element once. The sort is stable.
+     *
+     * @param pinyins The {@link List} of {@link PinyinString}s to sort.
+     */
+    public void sort(List<PinyinString> pinyins) {
+        final Keyed[] keyed = toKeyed(pinyins);
+        final ListIterator<PinyinString> iterator = pinyins.listIterator();
+
+        for (Keyed k : keyed) {
+            iterator.next();
+            iterator.set(k.m_pinyin);
+        }
+    }
+
+    private Keyed[] toKeyed(List<PinyinString> pinyins) {
+        final Keyed[] result = new Keyed[pinyins.size()];
+        int index = 0;
+
+        for (PinyinString pinyin : pinyins) {
+            final byte[] key = getSortKey(pinyin);
+            result[index++] = new Keyed(pinyin, prefixOf(key), key);
+        }
+
+        Arrays.sort(result, (a, b) -> {
+            final int prefixResult = Long.compareUnsigned(a.m_prefix, b.m_prefix);
+            return prefixResult != 0 ? prefixResult : Arrays.compareUnsigned(a.m_key, b.m_key);
+        });
+        return result;
+    }
+
+    // a string together with its precomputed sort key
+    private static final class Keyed {
+
+        private final PinyinString m_pinyin;
+        private final long m_prefix;
+        private final byte[] m_key;
+
+        private Keyed(PinyinString pinyin, long prefix, byte[] key) {
+            m_pinyin = pinyin;
+            m_prefix = prefix;
+            m_key = key;
+        }
+    }
+}
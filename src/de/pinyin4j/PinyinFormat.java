@@ -0,0 +1,451 @@
+package de.pinyin4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+
+/**
+ * An enumeration of the formats a {@link PinyinString} can be written in. Every format
+ * precomputes the written form of all syllables when it is first used, so converting a string is
+ * a single table lookup per syllable that is copied into the output buffer.
+ * <p>
+ * For large texts, {@link PinyinFormat#newSink(Appendable)} creates an {@link ISyllableSink} that
+ * can be passed to the streaming methods of {@link PinyinParser}, so texts can be converted
+ * without holding them in memory.
+ */
+public enum PinyinFormat {
+
+    /**
+     * Standard pinyin with tone marks, as returned by {@link PinyinString#toString()}, for example
+     * "Zho\u0304nggu\u00f3". Syllables that start with "a", "o" or "e" are separated from the
+     * previous syllable by an apostrophe.
+     */
+    TONE_MARKS(true, '\'', true),
+
+    /**
+     * Standard pinyin like {@link PinyinFormat#TONE_MARKS}, but with precomposed vowels where
+     * Unicode has them, for example "Zh\u014dnggu\u00f3". The output is in normalization form
+     * NFC without any normalization at runtime.
+     */
+    PRECOMPOSED_TONE_MARKS(true, '\'', true),
+
+    /**
+     * Pinyin with tone numbers after the syllables as used by CC-CEDICT, for example
+     * "Zhong1guo2". The neutral tone is written as 5, "\u00fc" as "u:" and an "r"-final before
+     * the tone number, as in "huar1".
+     */
+    TONE_NUMBERS(true, '\0', false),
+
+    /**
+     * Zhuyin fuhao (bopomofo), for example "\u3113\u3128\u3125\u310d\u3128\u311b\u02ca". Marks of
+     * the second, third and fourth tone follow the syllable, the mark of the neutral tone
+     * precedes it and the first tone is unmarked. Capitalization is ignored.
+     */
+    ZHUYIN(false, '\0', false),
+
+    /**
+     * The Wade-Giles romanization with tones written as superscript numbers and syllables of a
+     * word joined by hyphens, for example "Chung\u00b9-kuo\u00b2". The neutral tone is unmarked.
+     */
+    WADE_GILES(true, '-', false),
+
+    /**
+     * A broad transcription in the International Phonetic Alphabet with Chao tone letters and
+     * syllables separated by periods, for example "\u0288\u0282\u028a\u014b\u02e5.kwo\u02e7\u02e5".
+     * The neutral tone is unmarked and capitalization is ignored.
+     */
+    IPA(false, '.', false);
+
+    private static final int LENGTH_BITS = 8, LENGTH_MASK = 0xff;
+
+    private final boolean m_capitalizable, m_separateAmbiguousOnly;
+    private final char m_separator;
+
+    // the written forms of all syllables without capitalization, indexed by half their id
+    private final int[] m_index;
+    private char[] m_chars;
+
+    PinyinFormat(boolean capitalizable, char separator, boolean separateAmbiguousOnly) {
+        m_capitalizable = capitalizable;
+        m_separator = separator;
+        m_separateAmbiguousOnly = separateAmbiguousOnly;
+        m_index = new int[Syllable.getIdCount() / 2];
+    }
+
+    private String write(Initial initial, Final final_, Tone tone, boolean rFinal) {
+        switch (this) {
+            case TONE_MARKS: return Syllable.render(initial, final_, tone, rFinal);
+            case PRECOMPOSED_TONE_MARKS:
+                return Normalizer.normalize(Syllable.render(initial, final_, tone, rFinal),
+                    Normalizer.Form.NFC);
+            case TONE_NUMBERS: return toneNumbers(initial, final_, tone, rFinal);
+            case ZHUYIN: return zhuyin(initial, final_, tone, rFinal);
+            case WADE_GILES: return wadeGiles(initial, final_, tone, rFinal);
+            default: return ipa(initial, final_, tone, rFinal);
+        }
+    }
+
+    private static String toneNumbers(Initial initial, Final final_, Tone tone, boolean rFinal) {
+        final int tone_ = tone == Tone.NEUTRAL ? 5 : tone.getIndex();
+        return initial.getSpelling() + final_.getSpelling(initial).replace("\u00fc", "u:") +
+            (rFinal ? "r" : "") + tone_;
+    }
+
+    // Zhuyin
+
+    private static final String[] ZHUYIN_INITIALS = new String[] {
+        "", "\u3105", "\u3106", "\u3107", "\u3108", "\u3109", "\u310a", "\u310b", "\u310c",
+        "\u310d", "\u310e", "\u310f", "\u3110", "\u3111", "\u3112", "\u3113", "\u3114", "\u3115",
+        "\u3116", "\u3117", "\u3118", "\u3119"
+    };
+
+    private static final String[] ZHUYIN_FINALS = new String[] {
+        "\u311a", "\u311b", "\u311c", "\u311e", "\u311f", "\u3120", "\u3121", "\u3122", "\u3123",
+        "\u3124", "\u3125", "\u3127", "\u3127\u311a", "\u3127\u311b", "\u3127\u311d",
+        "\u3127\u311e", "\u3127\u3120", "\u3127\u3121", "\u3127\u3122", "\u3127\u3123",
+        "\u3127\u3124", "\u3127\u3125", "\u3129\u3125", "\u3128", "\u3128\u311a", "\u3128\u311b",
+        "\u3128\u311e", "\u3128\u311f", "\u3128\u3122", "\u3128\u3123", "\u3128\u3124",
+        "\u3128\u3125", "\u3129", "\u3129\u311d", "\u3129\u3123", "\u3129\u3122"
+    };
+
+    // the marks of the neutral, first, second, third and fourth tone
+    private static final String[] ZHUYIN_TONES = new String[] {
+        "\u02d9", "", "\u02ca", "\u02c7", "\u02cb"
+    };
+
+    private static final String ZHUYIN_ER = "\u3126";
+
+    // whether the "i"-final is a syllabic consonant after the given initial, as in "zi" or "zhi"
+    private static boolean isSyllabicConsonant(Initial initial, Final final_) {
+        if (final_ != Final.I) return false;
+
+        switch (initial) {
+            case ZH: case CH: case SH: case R: case Z: case C: case S: return true;
+            default: return false;
+        }
+    }
+
+    private static String zhuyin(Initial initial, Final final_, Tone tone, boolean rFinal) {
+        final StringBuilder sb = new StringBuilder();
+        if (tone == Tone.NEUTRAL) sb.append(ZHUYIN_TONES[0]);
+
+        if (initial == Initial.EMPTY && final_ == Final.E && rFinal) {
+            // "er" is a final of its own
+            sb.append(ZHUYIN_ER);
+        }
+        else {
+            sb.append(ZHUYIN_INITIALS[initial.getIndex()]);
+
+            if (final_ == Final.UO && initial.getPlace() == Initial.Place.LABIAL)
+                sb.append(ZHUYIN_FINALS[Final.O.getIndex()]);
+            else if (!isSyllabicConsonant(initial, final_))
+                sb.append(ZHUYIN_FINALS[final_.getIndex()]);
+
+            if (rFinal) sb.append(ZHUYIN_ER);
+        }
+
+        if (tone != Tone.NEUTRAL) sb.append(ZHUYIN_TONES[tone.getIndex()]);
+        return sb.toString();
+    }
+
+    // Wade-Giles
+
+    private static final String[] WADE_GILES_INITIALS = new String[] {
+        "", "p", "p'", "m", "f", "t", "t'", "n", "l", "k", "k'", "h", "ch", "ch'", "hs", "ch",
+        "ch'", "sh", "j", "ts", "ts'", "s"
+    };
+
+    private static final String[] WADE_GILES_FINALS = new String[] {
+        "a", "o", "\u00ea", "ai", "ei", "ao", "ou", "an", "\u00ean", "ang", "\u00eang", "i", "ia",
+        "io", "ieh", "iai", "iao", "iu", "ien", "in", "iang", "ing", "iung", "u", "ua", "uo",
+        "uai", "ui", "uan", "un", "uang", "ung", "\u00fc", "\u00fceh", "\u00fcn", "\u00fcan"
+    };
+
+    // the finals without initial, where they differ from WADE_GILES_FINALS
+    private static final String[] WADE_GILES_ISOLATED_FINALS = new String[] {
+        "a", "o", "\u00ea", "ai", "ei", "ao", "ou", "an", "\u00ean", "ang", "\u00eang", "i", "ya",
+        "yo", "yeh", "yai", "yao", "yu", "yen", "yin", "yang", "ying", "yung", "wu", "wa", "wo",
+        "wai", "wei", "wan", "w\u00ean", "wang", "w\u00eang", "y\u00fc", "y\u00fceh", "y\u00fcn",
+        "y\u00fcan"
+    };
+
+    // the superscript numbers of the neutral, first, second, third and fourth tone
+    private static final String[] WADE_GILES_TONES = new String[] {
+        "", "\u00b9", "\u00b2", "\u00b3", "\u2074"
+    };
+
+    private static String wadeGiles(Initial initial, Final final_, Tone tone, boolean rFinal) {
+        String written = WADE_GILES_INITIALS[initial.getIndex()];
+        String finalWritten = WADE_GILES_FINALS[final_.getIndex()];
+
+        if (initial == Initial.EMPTY) {
+            finalWritten = WADE_GILES_ISOLATED_FINALS[final_.getIndex()];
+        }
+        else if (isSyllabicConsonant(initial, final_)) {
+            // "tzu", "tz'u" and "ssu", but "chih", "ch'ih", "shih" and "jih"
+            switch (initial) {
+                case Z: written = "tz"; finalWritten = "u"; break;
+                case C: written = "tz'"; finalWritten = "u"; break;
+                case S: written = "ss"; finalWritten = "u"; break;
+                default: finalWritten = "ih"; break;
+            }
+        }
+        else if (final_ == Final.E && (initial == Initial.G || initial == Initial.K ||
+                initial == Initial.H)) {
+            finalWritten = "o";
+        }
+        else if (final_ == Final.UO && initial != Initial.G && initial != Initial.K &&
+                initial != Initial.H && initial != Initial.SH) {
+            finalWritten = "o";
+        }
+        else if (final_ == Final.UI && (initial == Initial.G || initial == Initial.K)) {
+            finalWritten = "uei";
+        }
+
+        return written + finalWritten + (rFinal ? "rh" : "") +
+            WADE_GILES_TONES[tone.getIndex()];
+    }
+
+    // IPA
+
+    private static final String[] IPA_INITIALS = new String[] {
+        "", "p", "p\u02b0", "m", "f", "t", "t\u02b0", "n", "l", "k", "k\u02b0", "x", "t\u0255",
+        "t\u0255\u02b0", "\u0255", "\u0288\u0282", "\u0288\u0282\u02b0", "\u0282", "\u0290", "ts",
+        "ts\u02b0", "s"
+    };
+
+    private static final String[] IPA_FINALS = new String[] {
+        "a", "o", "\u0264", "ai\u032f", "ei\u032f", "au\u032f", "ou\u032f", "an", "\u0259n",
+        "a\u014b", "\u0259\u014b", "i", "ja", "jo", "je", "jai\u032f", "jau\u032f", "jou\u032f",
+        "j\u025bn", "in", "ja\u014b", "i\u014b", "j\u028a\u014b", "u", "wa", "wo", "wai\u032f",
+        "wei\u032f", "wan", "w\u0259n", "wa\u014b", "\u028a\u014b", "y", "\u0265e", "yn",
+        "\u0265\u025bn"
+    };
+
+    // the Chao tone letters of the neutral, first, second, third and fourth tone
+    private static final String[] IPA_TONES = new String[] {
+        "", "\u02e5", "\u02e7\u02e5", "\u02e8\u02e9\u02e6", "\u02e5\u02e9"
+    };
+
+    private static String ipa(Initial initial, Final final_, Tone tone, boolean rFinal) {
+        final StringBuilder sb = new StringBuilder(IPA_INITIALS[initial.getIndex()]);
+
+        if (initial == Initial.EMPTY && final_ == Final.E && rFinal) {
+            sb.append("\u025a");
+        }
+        else {
+            if (final_ == Final.ONG && initial == Initial.EMPTY) {
+                sb.append("w\u0259\u014b");
+            }
+            else if (isSyllabicConsonant(initial, final_)) {
+                final boolean dental = initial == Initial.Z || initial == Initial.C ||
+                    initial == Initial.S;
+                sb.append(dental ? "\u0279\u0329" : "\u027b\u0329");
+            }
+            else {
+                sb.append(IPA_FINALS[final_.getIndex()]);
+            }
+
+            if (rFinal) sb.append('\u02de');
+        }
+
+        return sb.append(IPA_TONES[tone.getIndex()]).toString();
+    }
+
+    // after all tables used by write()
+    static {
+        for (PinyinFormat format : values()) {
+            final StringBuilder pool = new StringBuilder(Syllable.getIdCount() * 4);
+
+            // odd ids are the capitalized variants of the preceding even ones
+            for (int id = 0; id < Syllable.getIdCount(); id += 2) {
+                final Syllable syllable = Syllable.fromId(id);
+                final String written = format.write(syllable.getInitial(), syllable.getFinal(),
+                    syllable.getTone(), syllable.hasRFinal());
+                format.m_index[id >> 1] = pool.length() << LENGTH_BITS | written.length();
+                pool.append(written);
+            }
+
+            format.m_chars = pool.toString().toCharArray();
+        }
+    }
+
+    /**
+     * Indicates whether this format distinguishes capitalized syllables.
+     *
+     * @return <tt>true</tt>, if and only if the first letter of capitalized syllables is written
+     *  in upper case.
+     */
+    public boolean isCapitalizable() {
+        return m_capitalizable;
+    }
+
+    /**
+     * Appends the syllable with the given 16-bit representation in this format to the given
+     * string builder.
+     *
+     * @param code The 16-bit representation of the syllable (see {@link Syllable#toShort()}).
+     * @param sb The {@link StringBuilder} to append to.
+     * @return The given {@link StringBuilder}.
+     * @throws ArrayIndexOutOfBoundsException If the representation is not a valid syllable.
+     */
+    public StringBuilder appendTo(short code, StringBuilder sb) {
+        final int entry = m_index[Syllable.toId(code) >> 1];
+        int offset = entry >>> LENGTH_BITS;
+        final int end = offset + (entry & LENGTH_MASK);
+
+        if (m_capitalizable && (code & Syllable.CAPITAL_MASK) != 0)
+            sb.append(Character.toUpperCase(m_chars[offset++]));
+
+        return sb.append(m_chars, offset, end - offset);
+    }
+
+    /**
+     * Appends the given syllable in this format to the given string builder.
+     *
+     * @param syllable The {@link Syllable} to append.
+     * @param sb The {@link StringBuilder} to append to.
+     * @return The given {@link StringBuilder}.
+     */
+    public StringBuilder appendTo(Syllable syllable, StringBuilder sb) {
+        return appendTo(syllable.toShort(), sb);
+    }
+
+    // appends a syllable and the separator before it, if needed
+    private void appendToken(short code, boolean insideWord, StringBuilder sb) {
+        if (code == PinyinString.SPACE_CODE) {
+            sb.append(' ');
+            return;
+        }
+
+        if (insideWord && m_separator != '\0' &&
+                !(m_separateAmbiguousOnly && Syllable.hasUnambiguousStart(code)))
+            sb.append(m_separator);
+
+        appendTo(code, sb);
+    }
+
+    /**
+     * Appends the given pinyin string in this format to the given string builder. Whitespace
+     * tokens are written as single spaces.
+     *
+     * @param pinyin The {@link PinyinString} to append.
+     * @param sb The {@link StringBuilder} to append to.
+     * @return The given {@link StringBuilder}.
+     */
+    public StringBuilder appendTo(PinyinString pinyin, StringBuilder sb) {
+        final short[] codes = pinyin.getCodes();
+        return appendTo(codes, 0, codes.length, sb);
+    }
+
+    // appends a range of the codes of a pinyin string
+    StringBuilder appendTo(short[] codes, int from, int to, StringBuilder sb) {
+        boolean insideWord = false;
+
+        for (int i = from; i < to; i++) {
+            appendToken(codes[i], insideWord, sb);
+            insideWord = codes[i] != PinyinString.SPACE_CODE;
+        }
+
+        return sb;
+    }
+
+    /**
+     * Appends the given pinyin string in this format to the given appendable, such as a
+     * {@link java.io.Writer}.
+     *
+     * @param pinyin The {@link PinyinString} to append.
+     * @param appendable The {@link Appendable} to append to.
+     * @return The given {@link Appendable}.
+     * @throws IOException If the appendable throws one.
+     */
+    public Appendable appendTo(PinyinString pinyin, Appendable appendable) throws IOException {
+        if (appendable instanceof StringBuilder) return appendTo(pinyin, (StringBuilder)appendable);
+        return appendable.append(appendTo(pinyin, new StringBuilder()));
+    }
+
+    /**
+     * Writes the given syllable in this format.
+     *
+     * @param syllable The {@link Syllable} to write.
+     * @return The written syllable.
+     */
+    public String format(Syllable syllable) {
+        return appendTo(syllable, new StringBuilder()).toString();
+    }
+
+    /**
+     * Writes the given pinyin string in this format. For {@link PinyinFormat#TONE_MARKS}, this is
+     * equal to {@link PinyinString#toString()}.
+     *
+     * @param pinyin The {@link PinyinString} to write.
+     * @return The written string.
+     */
+    public String format(PinyinString pinyin) {
+        return appendTo(pinyin, new StringBuilder(pinyin.length() * 8)).toString();
+    }
+
+    /**
+     * Creates a sink that writes all tokens it receives in this format to the given appendable.
+     * Output is collected in a buffer, which is written whenever it is full and by
+     * {@link Sink#flush()}, so {@link Sink#flush()} has to be called after the last token.
+     *
+     * @param appendable The {@link Appendable} to write to, such as a {@link java.io.Writer}.
+     * @return A new {@link Sink}, which is not thread-safe.
+     */
+    public Sink newSink(Appendable appendable) {
+        return new Sink(appendable);
+    }
+
+    /**
+     * An {@link ISyllableSink} that writes the tokens it receives in the format that created it.
+     * Errors of the underlying appendable are thrown as {@link UncheckedIOException}s while
+     * tokens are accepted.
+     */
+    public final class Sink implements ISyllableSink {
+
+        private static final int BUFFER_SIZE = 8192;
+
+        private final Appendable m_appendable;
+        private final StringBuilder m_buffer = new StringBuilder(BUFFER_SIZE + 64);
+        private boolean m_insideWord = false;
+
+        private Sink(Appendable appendable) {
+            m_appendable = appendable;
+        }
+
+        private void accept(short code) {
+            appendToken(code, m_insideWord, m_buffer);
+            m_insideWord = code != PinyinString.SPACE_CODE;
+
+            if (m_buffer.length() >= BUFFER_SIZE) {
+                try {
+                    flush();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        @Override
+        public void acceptSyllable(short syllable) {
+            accept(syllable);
+        }
+
+        @Override
+        public void acceptSpace() {
+            accept(PinyinString.SPACE_CODE);
+        }
+
+        /**
+         * Writes all buffered output to the appendable.
+         *
+         * @throws IOException If the appendable throws one.
+         */
+        public void flush() throws IOException {
+            m_appendable.append(m_buffer);
+            m_buffer.setLength(0);
+        }
+    }
+}
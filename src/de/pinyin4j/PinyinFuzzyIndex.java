@@ -0,0 +1,289 @@
+package de.pinyin4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the keys closest to a possibly misspelled query, such as "zong1guo2" for "zhong1guo2", in
+ * a large dictionary. The distance between two pinyin strings is the cheapest sequence of syllable
+ * replacements, insertions and deletions under some {@link PhoneticCosts}. Spaces and
+ * capitalization are ignored. Indices are immutable and can be shared between threads.
+ * <p>
+ * The keys are stored in a {@link PinyinTrie}, which is searched depth-first: every visited node
+ * holds one row of the edit distance table of the query against the path to the node, and the
+ * minimum of that row, plus the syllables that have to be inserted or deleted because of the
+ * lengths of the keys below the node, is a lower bound for every key below it. Subtrees whose
+ * bound exceeds the <tt>k</tt>-th best match found so far are skipped, and the path that
+ * matches the query exactly is searched first, so most of the trie is never visited.
+ */
+public final class PinyinFuzzyIndex {
+
+    private final PinyinTrie m_trie;
+    private final PhoneticCosts m_costs;
+
+    // the minimum and maximum number of syllables from each node to the keys below it
+    private final int[] m_minRemaining, m_maxRemaining;
+
+    /**
+     * Creates a new index that maps every key to its index in the list and uses the
+     * {@link PhoneticCosts#DEFAULT} costs.
+     *
+     * @param keys A {@link List} of {@link PinyinString} keys in any order.
+     */
+    public PinyinFuzzyIndex(List<PinyinString> keys) {
+        this(PinyinTrie.build(keys), PhoneticCosts.DEFAULT);
+    }
+
+    /**
+     * Creates a new index over the keys and values of an existing trie.
+     *
+     * @param trie The {@link PinyinTrie} to search.
+     * @param costs The {@link PhoneticCosts} to measure distances with.
+     */
+    public PinyinFuzzyIndex(PinyinTrie trie, PhoneticCosts costs) {
+        m_trie = trie;
+        m_costs = costs;
+        m_minRemaining = new int[trie.getNodeCount()];
+        m_maxRemaining = new int[trie.getNodeCount()];
+
+        // children are numbered after their parents
+        for (int node = trie.getNodeCount() - 1; node >= 0; node--) {
+            int min = Integer.MAX_VALUE, max = 0;
+            if (trie.getFirstValue(node) < trie.getFirstValue(node + 1)) min = 0;
+
+            for (int edge = trie.getFirstEdge(node); edge < trie.getFirstEdge(node + 1); edge++) {
+                final int child = trie.getEdgeTarget(edge);
+                min = Math.min(min, m_minRemaining[child] + 1);
+                max = Math.max(max, m_maxRemaining[child] + 1);
+            }
+
+            m_minRemaining[node] = min;
+            m_maxRemaining[node] = max;
+        }
+    }
+
+    private static short[] syllableCodes(PinyinString query) {
+        final short[] codes = query.getCodes();
+        final short[] result = new short[codes.length];
+        int length = 0;
+
+        for (short code : codes) {
+            if (code != PinyinString.SPACE_CODE)
+                result[length++] = (short)(code & ~Syllable.CAPITAL_MASK);
+        }
+
+        return length == result.length ? result : Arrays.copyOf(result, length);
+    }
+
+    // a lower bound for the costs of all keys below the given node, which has the given row
+    private int bound(int node, int[] row) {
+        final int indel = m_costs.getIndelCost();
+        final int min = m_minRemaining[node], max = m_maxRemaining[node];
+        int result = Integer.MAX_VALUE;
+
+        for (int i = 0; i < row.length; i++) {
+            final int remaining = row.length - 1 - i;
+            final int missing = Math.max(remaining - max, min - remaining);
+            result = Math.min(result, row[i] + Math.max(missing, 0) * indel);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the <tt>k</tt> values whose keys are closest to the given query.
+     *
+     * @param query The {@link PinyinString} to search for.
+     * @param k The maximum number of results.
+     * @return A {@link List} of at most <tt>k</tt> {@link Match}es, ordered by ascending cost and
+     *  then value.
+     */
+    public List<Match> search(PinyinString query, int k) {
+        return search(query, k, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the <tt>k</tt> values whose keys are closest to the given query and no more than a
+     * maximum cost away from it.
+     *
+     * @param query The {@link PinyinString} to search for.
+     * @param k The maximum number of results.
+     * @param maxCost The maximum cost of any result.
+     * @return A {@link List} of at most <tt>k</tt> {@link Match}es, ordered by ascending cost and
+     *  then value.
+     */
+    public List<Match> search(PinyinString query, int k, int maxCost) {
+        if (k < 0) throw new IllegalArgumentException("k must not be negative.");
+        if (k == 0 || maxCost < 0) return new ArrayList<>();
+        final Search search = new Search(syllableCodes(query), k, maxCost);
+        final int[] rootRow = search.m_rows[0];
+
+        for (int i = 1; i < rootRow.length; i++) {
+            rootRow[i] = rootRow[i - 1] + m_costs.getIndelCost();
+        }
+
+        if (bound(0, rootRow) <= maxCost) search.visit(0, 0);
+        final List<Match> result = new ArrayList<>(search.m_best);
+        Collections.sort(result);
+        return result;
+    }
+
+    // the state of one search, which visits the trie depth-first and skips every node that cannot
+    // improve on the k best matches found so far
+    private final class Search {
+
+        private final short[] m_codes;
+        private final int[][] m_rows;
+        private final int m_k, m_maxCost;
+
+        // the k best matches, the worst one first
+        private final PriorityQueue<Match> m_best;
+
+        private Search(short[] codes, int k, int maxCost) {
+            m_codes = codes;
+            m_rows = new int[m_maxRemaining[0] + 1][codes.length + 1];
+            m_k = k;
+            m_maxCost = maxCost;
+            m_best = new PriorityQueue<>(k, Collections.reverseOrder());
+        }
+
+        // keys with the same cost as the worst match may still have smaller values
+        private int threshold() {
+            return m_best.size() < m_k ? m_maxCost : m_best.peek().m_cost;
+        }
+
+        private void offer(int value, int cost) {
+            final Match match = new Match(value, cost);
+
+            if (m_best.size() < m_k) {
+                m_best.add(match);
+            }
+            else if (match.compareTo(m_best.peek()) < 0) {
+                m_best.poll();
+                m_best.add(match);
+            }
+        }
+
+        private void visit(int node, int depth) {
+            final int[] row = m_rows[depth];
+            final int distance = row[m_codes.length];
+
+            for (int i = m_trie.getFirstValue(node); i < m_trie.getFirstValue(node + 1); i++) {
+                if (distance > threshold()) break;
+                offer(m_trie.getValue(i), distance);
+            }
+
+            // if the threshold allows neither an insertion nor a replacement by a different
+            // syllable, only the children that continue the query exactly have to be visited
+            final int threshold = threshold();
+            boolean exactOnly = distance + m_costs.getIndelCost() > threshold;
+
+            for (int i = 0; i < m_codes.length && exactOnly; i++) {
+                exactOnly = row[i] + Math.min(m_costs.getIndelCost(),
+                    m_costs.getMinSubstitutionCost()) > threshold;
+            }
+
+            if (exactOnly) {
+                for (int i = 0; i < m_codes.length; i++) {
+                    if (row[i] > threshold || isRepeated(i, row, threshold)) continue;
+                    final int edge = m_trie.edge(node, m_codes[i]);
+                    if (edge >= 0) descend(edge, depth);
+                }
+
+                return;
+            }
+
+            // the child that matches the query exactly first, so the threshold drops early
+            final int preferred = depth < m_codes.length ? m_trie.edge(node, m_codes[depth]) : -1;
+            if (preferred >= 0) descend(preferred, depth);
+
+            for (int edge = m_trie.getFirstEdge(node); edge < m_trie.getFirstEdge(node + 1);
+                    edge++) {
+                if (edge != preferred) descend(edge, depth);
+            }
+        }
+
+        // whether the syllable at the given index of the query was already continued with
+        private boolean isRepeated(int index, int[] row, int threshold) {
+            for (int i = 0; i < index; i++) {
+                if (row[i] <= threshold && m_codes[i] == m_codes[index]) return true;
+            }
+
+            return false;
+        }
+
+        private void descend(int edge, int depth) {
+            final short code = PinyinTrie.codeOfLabel(m_trie.getEdgeLabel(edge));
+            final int child = m_trie.getEdgeTarget(edge);
+            final int indel = m_costs.getIndelCost();
+            final int[] row = m_rows[depth], next = m_rows[depth + 1];
+            next[0] = row[0] + indel;
+
+            for (int i = 1; i < next.length; i++) {
+                final int substitution =
+                    row[i - 1] + m_costs.getSubstitutionCost(m_codes[i - 1], code);
+                next[i] = Math.min(substitution, Math.min(row[i], next[i - 1]) + indel);
+            }
+
+            if (bound(child, next) <= threshold()) visit(child, depth + 1);
+        }
+    }
+
+    /**
+     * A value found by {@link PinyinFuzzyIndex#search(PinyinString, int)} together with the cost
+     * of turning the query into its key.
+     */
+    public static final class Match implements Comparable<Match> {
+
+        private final int m_value, m_cost;
+
+        private Match(int value, int cost) {
+            m_value = value;
+            m_cost = cost;
+        }
+
+        /**
+         * Gets the value of the matching key.
+         *
+         * @return The value.
+         */
+        public int getValue() {
+            return m_value;
+        }
+
+        /**
+         * Gets the cost of turning the query into the matching key.
+         *
+         * @return The cost, which is 0 for an exact match.
+         */
+        public int getCost() {
+            return m_cost;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            final int result = Integer.compare(m_cost, other.m_cost);
+            return result != 0 ? result : Integer.compare(m_value, other.m_value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Match)) return false;
+            final Match other = (Match)obj;
+            return m_value == other.m_value && m_cost == other.m_cost;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * m_value + m_cost;
+        }
+
+        @Override
+        public String toString() {
+            return m_value + " (" + m_cost + ")";
+        }
+    }
+}
@@ -1,258 +1,370 @@
 package de.pinyin4j;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Set;
-
-import static de.pinyin4j.util.Util.hashSetOf;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
 
 /**
  * A class that accepts strings representing pinyin with tones written as numbers after syllables
  * and converts it into standard pinyin with diacritics.
+ * <p>
+ * Parsers are immutable and keep all state of a parsing run in a cursor local to the call, so a
+ * single instance can be shared by any number of threads without synchronization.
  */
 public final class PinyinParser {
 
-    private static final Character[] TONE_MARKS_ARRAY =
-        new Character[] { '\u0304', '\u0301', '\u030C', '\u0300' };
-    private static final HashSet<Character> CONSONANTS =
-        hashSetOf('b', 'p', 'm', 'f', 'd', 't', 'n', 'l', 'z', 'c', 's', 'r', 'j', 'q', 'x', 'g',
-            'k', 'h', 'B', 'P', 'M', 'F', 'D', 'T', 'N', 'L', 'Z', 'C', 'S', 'R', 'J', 'Q', 'X',
-            'G', 'K', 'H');
-    private static final HashSet<Character> GLIDES = hashSetOf('y', 'w', 'Y', 'W');
-    static final HashSet<Character> VOWELS =
-        hashSetOf('a', 'o', 'e', 'i', 'u', '\u00fc', 'v', 'A', 'O', 'E', 'I', 'U', '\u00dc', 'V');
-    private static final HashSet<Character> TONES =
-        hashSetOf('0', '1', '2', '3', '4', '5');
-    private static final HashSet<Character> TONE_MARKS = hashSetOf(TONE_MARKS_ARRAY);
-
-    private String m_toParse;
-    private int m_index = 0;
-    private StringBuilder m_sb = new StringBuilder();
+    // the minimum number of strings parsed by one task of parseAll
+    private static final int LEAF_SIZE = 256;
 
     /**
      * Creates a new pinyin normalizer.
      */
     public PinyinParser() { }
 
-    private void appendWhileInSet(Set<Character> charset) throws ParseException {
-        while (charset.contains(currChar())) {
-            m_sb.append(acceptIt());
-        }
+    /**
+     * Parses the given string to a pinyin string. By default, whitespace is parsed and added to
+     * the result. If you want whitespace to be removed, call
+     * {@link PinyinParser#parsePinyin(String, boolean)} with the appropriate arguments. This is
+     * also CC-CEDICT compatible.
+     *
+     * @param pinyin A {@link String} containing a pinyin text with tones being represented by
+     *  numbers (0 for neutral tone) or marks, which may be combining or precomposed (NFC), and
+     *  optionally 'v' or 'u:' for 'ü'. Retroflex finals may be added to the syllable (e.g.
+     *  "huir4") or added as an extra segment spelled "r5" (e.g. "hui4 r5"). Must contain a whole
+     *  number of syllables.
+     * @return A {@link PinyinString} containing a normalized pinyin word with the pronunciation
+     *  specified by the unformatted input.
+     * @throws ParseException If the given input is not correct pinyin.
+     */
+    public PinyinString parsePinyin(String pinyin) throws ParseException {
+        return parsePinyin(pinyin, true);
     }
 
-    private void appendVowels() throws ParseException {
-        while (VOWELS.contains(currChar())) {
-            final char c = acceptIt();
-            if (c == 'v') m_sb.append('\u00fc');
-            else if (c == 'u' && currChar() == ':') { // CC-CEDICT system (u: = ü)
-                m_sb.append('\u00fc');
-                acceptIt();
-            }
-            else m_sb.append(c);
-        }
+    /**
+     * Parses the given string to a pinyin string. This is also CC-CEDICT compatible.
+     *
+     * @param pinyin A {@link String} containing a pinyin text with tones being represented by
+     *  numbers (0 for neutral tone) or marks, which may be combining or precomposed (NFC), and
+     *  optionally 'v' or 'u:' for 'ü'. Retroflex finals may be added to the syllable (e.g.
+     *  "huir4") or added as an extra segment spelled "r5" (e.g. "hui4 r5"). Must contain a whole
+     *  number of syllables.
+     * @param parseWhitespace Indicates, whether the resulting string contains whitespace
+     *   (represented as <tt>null</tt> syllables).
+     * @return A {@link PinyinString} containing a normalized pinyin word with the pronunciation
+     *  specified by the unformatted input.
+     * @throws ParseException If the given input is not correct pinyin.
+     */
+    public PinyinString parsePinyin(String pinyin, boolean parseWhitespace) throws ParseException {
+        return parsePinyin(pinyin, 0, pinyin.length(), parseWhitespace);
     }
 
-    private int parseToneMark() throws ParseException {
-        if (TONE_MARKS.contains(currChar())) {
-            final int toneMark = acceptIt();
-
-            for (int i = 0; i < TONE_MARKS_ARRAY.length; i++) {
-                if (toneMark == TONE_MARKS_ARRAY[i])
-                    return i + 1;
-            }
-        }
-
-        return 0;
+    /**
+     * Parses a range of the given character sequence to a pinyin string without copying it. This
+     * behaves like {@link PinyinParser#parsePinyin(String)} called with the corresponding
+     * substring, so whitespace is parsed and leading and trailing whitespace is ignored.
+     *
+     * @param pinyin A {@link CharSequence} containing pinyin text in the range to parse, such as a
+     *  line of a larger file or a {@link java.nio.CharBuffer}.
+     * @param start The index of the first character to parse.
+     * @param end The index after the last character to parse.
+     * @return A {@link PinyinString} containing a normalized pinyin word with the pronunciation
+     *  specified by the unformatted input.
+     * @throws ParseException If the given input is not correct pinyin.
+     * @throws IndexOutOfBoundsException If the range is not within the given sequence.
+     */
+    public PinyinString parsePinyin(CharSequence pinyin, int start, int end)
+            throws ParseException {
+        return parsePinyin(pinyin, start, end, true);
     }
 
-    private boolean handleCodaChar(char expectedCodaChar) throws ParseException {
-        final char next = lookahead(1);
-
-        if (currChar() == expectedCodaChar &&
-                (!VOWELS.contains(next) || next == '\'' || next == '\u0003'))  {
-            m_sb.append(acceptIt());
-            return true;
-        }
-
-        return false;
+    /**
+     * Parses a range of the given character sequence to a pinyin string without copying it. This
+     * behaves like {@link PinyinParser#parsePinyin(String, boolean)} called with the
+     * corresponding substring.
+     *
+     * @param pinyin A {@link CharSequence} containing pinyin text in the range to parse, such as a
+     *  line of a larger file or a {@link java.nio.CharBuffer}.
+     * @param start The index of the first character to parse.
+     * @param end The index after the last character to parse.
+     * @param parseWhitespace Indicates, whether the resulting string contains whitespace
+     *   (represented as <tt>null</tt> syllables).
+     * @return A {@link PinyinString} containing a normalized pinyin word with the pronunciation
+     *  specified by the unformatted input.
+     * @throws ParseException If the given input is not correct pinyin.
+     * @throws IndexOutOfBoundsException If the range is not within the given sequence.
+     */
+    public PinyinString parsePinyin(CharSequence pinyin, int start, int end,
+            boolean parseWhitespace) throws ParseException {
+        Objects.checkFromToIndex(start, end, pinyin.length());
+        final PinyinScanner scanner = new PinyinScanner(pinyin, start, end);
+        if (scanner.parse(parseWhitespace) != PinyinScanner.OK)
+            throw new ParseException(scanner.getErrorMessage());
+        return toPinyinString(scanner);
     }
 
-    private Syllable parseNormalSyllable() throws ParseException {
-        m_sb.setLength(0);
-
-        // initial consonant
-        appendWhileInSet(CONSONANTS);
-        final String initialSpelling = m_sb.toString();
-        Initial initial = null;
-        try {
-            initial = Initial.fromSpelling(initialSpelling.toLowerCase());
-        }
-        catch (NoSuchElementException e) {
-            throw new ParseException("Invalid initial: " + initialSpelling);
-        }
-
-        // nucleus with tone
-        appendWhileInSet(GLIDES);
-        appendVowels();
-        int tone = parseToneMark();
-        if (tone != 0) appendVowels();
-
-        // at this point we have to have something, otherwise the character is invalid.
-        if (m_sb.length() == 0)
-            throw new ParseException("Unexpected character: \"" + currChar() + "\".");
-
-        // syllable final
-        if (handleCodaChar('n'))
-            handleCodaChar('g');
-        final String finalSpelling = m_sb.substring(initialSpelling.length());
-        Final final_ = null;
-        try {
-            final_ = Final.fromSpelling(initial, finalSpelling.toLowerCase());
-        }
-        catch (NoSuchElementException e) {
-            throw new ParseException("Invalid final: " + finalSpelling + " (after initial \"" +
-                initial.getSpelling() + "\".");
-        }
-
-        // handle capitalization
-        final boolean capitalized = Character.isUpperCase(m_sb.charAt(0));
-
-        // handle r final
-        final boolean rFinal = currChar() == 'r' && !VOWELS.contains(lookahead(1));
-        if (rFinal) acceptIt();
-        if (tone == 0) tone = parseTone();
-
-        try {
-            return new Syllable(initial, final_, Tone.fromIndex(tone), rFinal, capitalized);
-        }
-        catch (IllegalArgumentException e) {
-            throw new ParseException(e.getMessage());
-        }
+    private static PinyinString toPinyinString(PinyinScanner scanner) {
+        return new PinyinString(Arrays.copyOf(scanner.getCodes(), scanner.getLength()));
     }
 
-    private int parseTone() throws ParseException {
-        if (!TONES.contains(currChar()))
-            return 0; //throw new ParseException("Invalid tone number: " + currChar() + ".");
-        return (acceptIt() - '0') % 5; // 5 for neutral tone accepted
+    /**
+     * Parses a range of the given character array to a pinyin string without copying it. This
+     * behaves like {@link PinyinParser#parsePinyin(String)} called with the corresponding
+     * substring.
+     *
+     * @param pinyin An array of characters containing pinyin text in the range to parse.
+     * @param offset The index of the first character to parse.
+     * @param length The number of characters to parse.
+     * @return A {@link PinyinString} containing a normalized pinyin word with the pronunciation
+     *  specified by the unformatted input.
+     * @throws ParseException If the given input is not correct pinyin.
+     * @throws IndexOutOfBoundsException If the range is not within the given array.
+     */
+    public PinyinString parsePinyin(char[] pinyin, int offset, int length)
+            throws ParseException {
+        return parsePinyin(pinyin, offset, length, true);
     }
 
-    private Syllable parseSyllable() throws ParseException {
-        final Syllable normalSyllable = parseNormalSyllable();
-
-        if (currChar() == '\'') {
-            acceptIt();
-            if (!VOWELS.contains(currChar()))
-                throw new ParseException("Unexpected syllable separator after syllable \"" +
-                    normalSyllable.toString() + "\".");
-        }
+    /**
+     * Parses a range of the given character array to a pinyin string without copying it. This
+     * behaves like {@link PinyinParser#parsePinyin(String, boolean)} called with the
+     * corresponding substring.
+     *
+     * @param pinyin An array of characters containing pinyin text in the range to parse.
+     * @param offset The index of the first character to parse.
+     * @param length The number of characters to parse.
+     * @param parseWhitespace Indicates, whether the resulting string contains whitespace
+     *   (represented as <tt>null</tt> syllables).
+     * @return A {@link PinyinString} containing a normalized pinyin word with the pronunciation
+     *  specified by the unformatted input.
+     * @throws ParseException If the given input is not correct pinyin.
+     * @throws IndexOutOfBoundsException If the range is not within the given array.
+     */
+    public PinyinString parsePinyin(char[] pinyin, int offset, int length,
+            boolean parseWhitespace) throws ParseException {
+        Objects.checkFromIndexSize(offset, length, pinyin.length);
+        return parsePinyin(CharBuffer.wrap(pinyin), offset, offset + length, parseWhitespace);
+    }
 
-        return normalSyllable;
+    /**
+     * Attempts to parse the given string to a pinyin string without throwing an exception on
+     * invalid input. Apart from that, this behaves like {@link PinyinParser#parsePinyin(String)}.
+     *
+     * @param pinyin A {@link String} containing pinyin text in any of the formats accepted by
+     *  {@link PinyinParser#parsePinyin(String)}.
+     * @return A {@link ParseResult} containing either the parsed {@link PinyinString} or the kind
+     *  and position of the error.
+     */
+    public ParseResult tryParsePinyin(String pinyin) {
+        return tryParsePinyin(pinyin, 0, pinyin.length(), true);
     }
 
-    private boolean skipIgnored() throws ParseException {
-        boolean result = false;
+    /**
+     * Attempts to parse a range of the given character sequence to a pinyin string without
+     * copying it and without throwing an exception on invalid input. Apart from that, this behaves
+     * like {@link PinyinParser#parsePinyin(CharSequence, int, int, boolean)}.
+     *
+     * @param pinyin A {@link CharSequence} containing pinyin text in the range to parse.
+     * @param start The index of the first character to parse.
+     * @param end The index after the last character to parse.
+     * @param parseWhitespace Indicates, whether the resulting string contains whitespace
+     *   (represented as <tt>null</tt> syllables).
+     * @return A {@link ParseResult} containing either the parsed {@link PinyinString} or the kind
+     *  and position of the error.
+     * @throws IndexOutOfBoundsException If the range is not within the given sequence.
+     */
+    public ParseResult tryParsePinyin(CharSequence pinyin, int start, int end,
+            boolean parseWhitespace) {
+        Objects.checkFromToIndex(start, end, pinyin.length());
+        final PinyinScanner scanner = new PinyinScanner(pinyin, start, end);
+        if (scanner.parse(parseWhitespace) != PinyinScanner.OK)
+            return new ParseResult(scanner);
+        return new ParseResult(toPinyinString(scanner));
+    }
 
-        // ignore whitespace, centerdot and comma which are used as separators in CEDICT
-        while (Character.isWhitespace(currChar()) || currChar() == '\u00b7' || currChar() == ',') {
-            acceptIt();
-            result = true;
-        }
+    /**
+     * Attempts to parse all given strings in parallel. Each string is parsed like
+     * {@link PinyinParser#tryParsePinyin(String)}, so invalid strings do not stop the others from
+     * being parsed. The work is split between the threads of the common {@link ForkJoinPool},
+     * and each task reuses its parsing buffers for all strings it parses.
+     *
+     * @param pinyins A {@link List} of {@link String}s containing pinyin text in any of the
+     *  formats accepted by {@link PinyinParser#parsePinyin(String)}.
+     * @return A {@link List} containing the {@link ParseResult} of every string in the order of
+     *  the input.
+     */
+    public List<ParseResult> parseAll(List<String> pinyins) {
+        return Arrays.asList(parseAll(pinyins.toArray(new String[0])));
+    }
 
-        return result;
+    /**
+     * Attempts to parse all given strings in parallel, like
+     * {@link PinyinParser#parseAll(List)}.
+     *
+     * @param pinyins An array of {@link String}s containing pinyin text in any of the formats
+     *  accepted by {@link PinyinParser#parsePinyin(String)}.
+     * @return An array containing the {@link ParseResult} of every string at the index of the
+     *  string.
+     */
+    public ParseResult[] parseAll(String[] pinyins) {
+        final ParseResult[] results = new ParseResult[pinyins.length];
+        if (pinyins.length == 0) return results;
+
+        // a few tasks per thread, so threads that finish early can steal work
+        final int leafSize =
+            Math.max(LEAF_SIZE, pinyins.length / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        new ParseTask(pinyins, results, 0, pinyins.length, leafSize).invoke();
+        return results;
     }
 
-    // parses "r5" if present, which is the CC-CEDICT representation of r finals
-    private boolean parseRFinal() throws ParseException {
-        if (currChar() == 'r' && lookahead(1) == '5') {
-            acceptIt();
-            acceptIt();
-            return true;
-        }
+    /**
+     * Attempts to parse all strings of the given stream in parallel, like
+     * {@link PinyinParser#parseAll(List)}. The stream is consumed entirely before parsing
+     * starts.
+     *
+     * @param pinyins A {@link Stream} of {@link String}s containing pinyin text in any of the
+     *  formats accepted by {@link PinyinParser#parsePinyin(String)}.
+     * @return A {@link List} containing the {@link ParseResult} of every string in the
+     *  encounter order of the stream.
+     */
+    public List<ParseResult> parseAll(Stream<String> pinyins) {
+        return Arrays.asList(parseAll(pinyins.toArray(String[]::new)));
+    }
 
-        return false;
+    /**
+     * Parses pinyin text read incrementally from the given reader and pushes every token to the
+     * given sink. Only a small window of the input is held in memory, so this can be used for
+     * inputs of any length. By default, whitespace is pushed to the sink. Apart from that, this
+     * behaves like {@link PinyinParser#parsePinyin(String)} called with the entire input, except
+     * that tokens before an error have already been pushed when the exception is thrown.
+     *
+     * @param pinyin A {@link Reader} providing pinyin text in any of the formats accepted by
+     *  {@link PinyinParser#parsePinyin(String)}. It is not closed by this method.
+     * @param sink The {@link ISyllableSink} that receives the parsed tokens.
+     * @throws IOException If reading from the given reader failed.
+     * @throws ParseException If the given input is not correct pinyin.
+     */
+    public void parsePinyin(Reader pinyin, ISyllableSink sink) throws IOException, ParseException {
+        parsePinyin(pinyin, true, sink);
     }
 
     /**
-     * Parses the given string to a pinyin string. By default, whitespace is parsed and added to
-     * the result. If you want whitespace to be removed, call
-     * {@link PinyinParser#parsePinyin(String, boolean)} with the appropriate arguments. This is
-     * also CC-CEDICT compatible.
+     * Parses pinyin text read incrementally from the given reader and pushes every token to the
+     * given sink. Only a small window of the input is held in memory, so this can be used for
+     * inputs of any length. Apart from that, this behaves like
+     * {@link PinyinParser#parsePinyin(String, boolean)} called with the entire input, except that
+     * tokens before an error have already been pushed when the exception is thrown.
      *
-     * @param pinyin A {@link String} containing a pinyin text with tones being represented by
-     *  numbers (0 for neutral tone) or marks and optionally 'v' or 'u:' for 'ü'. Retroflex finals
-     *  may be added to the syllable (e.g. "huir4") or added as an extra segment spelled "r5" (e.g.
-     *  "hui4 r5"). Must contain a whole number of syllables.
-     * @return A {@link PinyinString} containing a normalized pinyin word with the pronunciation
-     *  specified by the unformatted input.
+     * @param pinyin A {@link Reader} providing pinyin text in any of the formats accepted by
+     *  {@link PinyinParser#parsePinyin(String)}. It is not closed by this method.
+     * @param parseWhitespace Indicates, whether whitespace tokens are pushed to the sink.
+     * @param sink The {@link ISyllableSink} that receives the parsed tokens.
+     * @throws IOException If reading from the given reader failed.
      * @throws ParseException If the given input is not correct pinyin.
      */
-    public PinyinString parsePinyin(String pinyin) throws ParseException {
-        return parsePinyin(pinyin, true);
+    public void parsePinyin(Reader pinyin, boolean parseWhitespace, ISyllableSink sink)
+            throws IOException, ParseException {
+        final PinyinScanner scanner = new PinyinScanner(pinyin);
+        if (scanner.parse(parseWhitespace, sink) != PinyinScanner.OK)
+            throw new ParseException(scanner.getErrorMessage());
     }
 
     /**
-     * Parses the given string to a pinyin string. This is also CC-CEDICT compatible.
+     * Parses pinyin text read incrementally from the given channel and pushes every token to the
+     * given sink. This behaves like {@link PinyinParser#parsePinyin(Reader, boolean,
+     * ISyllableSink)} with a reader that decodes the channel using the given charset.
      *
-     * @param pinyin A {@link String} containing a pinyin text with tones being represented by
-     *  numbers (0 for neutral tone) or marks and optionally 'v' or 'u:' for 'ü'. Retroflex finals
-     *  may be added to the syllable (e.g. "huir4") or added as an extra segment spelled "r5" (e.g.
-     *  "hui4 r5"). Must contain a whole number of syllables.
-     * @param parseWhitespace Indicates, whether the resulting string contains whitespace
-     *   (represented as <tt>null</tt> syllables).
-     * @return A {@link PinyinString} containing a normalized pinyin word with the pronunciation
-     *  specified by the unformatted input.
+     * @param pinyin A {@link ReadableByteChannel} providing encoded pinyin text. It is not closed
+     *  by this method.
+     * @param charset The {@link Charset} of the text in the channel.
+     * @param parseWhitespace Indicates, whether whitespace tokens are pushed to the sink.
+     * @param sink The {@link ISyllableSink} that receives the parsed tokens.
+     * @throws IOException If reading from the given channel failed or it contains malformed
+     *  input.
      * @throws ParseException If the given input is not correct pinyin.
      */
-    public PinyinString parsePinyin(String pinyin, boolean parseWhitespace) throws ParseException {
-        m_toParse = pinyin.trim();
-        m_index = 0;
-        final int length = m_toParse.length();
-        final List<Syllable> syllables = new ArrayList<>();
+    public void parsePinyin(ReadableByteChannel pinyin, Charset charset, boolean parseWhitespace,
+            ISyllableSink sink) throws IOException, ParseException {
+        parsePinyin(Channels.newReader(pinyin, charset.newDecoder(), -1), parseWhitespace, sink);
+    }
 
-        while (m_index < length) {
-            if (parseRFinal()) {
-                if (syllables.size() == 0)
-                    throw new ParseException("Invalid r final at the beginning.");
-                int lastIdx = syllables.size() - 1;
-                Syllable last = syllables.get(lastIdx);
-                if (last == null) {
-                    lastIdx--;
-                    last = syllables.get(lastIdx);
-                }
-                if (last.hasRFinal())
-                    throw new ParseException("Double r-final.");
-                syllables.set(lastIdx, new Syllable(last.getInitial(), last.getFinal(),
-                    last.getTone(), true, last.isCapitalized()));
-            }
-            else {
-                final Syllable syllable = parseSyllable();
-                syllables.add(syllable);
-            }
+    /**
+     * Splits arbitrary text, which may mix pinyin with Hanzi, punctuation, digits or other Latin
+     * words, into pinyin tokens and pass-through tokens in a single pass. Unlike the
+     * <tt>parsePinyin</tt> methods, this never fails: anything that is not pinyin is passed
+     * through.
+     *
+     * @param text The {@link CharSequence} to tokenize. It is not copied.
+     * @return The {@link PinyinTokens} of the text.
+     */
+    public PinyinTokens tokenize(CharSequence text) {
+        return tokenize(text, 0, text.length());
+    }
+
+    /**
+     * Splits a range of arbitrary text into pinyin tokens and pass-through tokens, like
+     * {@link PinyinParser#tokenize(CharSequence)}. Offsets of tokens refer to the whole text.
+     *
+     * @param text The {@link CharSequence} containing the range to tokenize. It is not copied.
+     * @param start The index of the first character to tokenize.
+     * @param end The index after the last character to tokenize.
+     * @return The {@link PinyinTokens} of the range.
+     * @throws IndexOutOfBoundsException If the range is not within the given sequence.
+     */
+    public PinyinTokens tokenize(CharSequence text, int start, int end) {
+        Objects.checkFromToIndex(start, end, text.length());
+        return PinyinTokens.tokenize(text, start, end);
+    }
+
+    // parses a range of strings, splitting it in halves until it is small enough
+    private static final class ParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
 
-            if (skipIgnored() && m_index < length && parseWhitespace)
-                syllables.add(null);
+        private final String[] m_pinyins;
+        private final ParseResult[] m_results;
+        private final int m_start, m_end, m_leafSize;
+
+        private ParseTask(String[] pinyins, ParseResult[] results, int start, int end,
+                int leafSize) {
+            m_pinyins = pinyins;
+            m_results = results;
+            m_start = start;
+            m_end = end;
+            m_leafSize = leafSize;
         }
 
-        return new PinyinString(syllables);
-    }
+        @Override
+        protected void compute() {
+            if (m_end - m_start > m_leafSize) {
+                final int middle = (m_start + m_end) >>> 1;
+                invokeAll(new ParseTask(m_pinyins, m_results, m_start, middle, m_leafSize),
+                    new ParseTask(m_pinyins, m_results, middle, m_end, m_leafSize));
+                return;
+            }
 
-    private char acceptIt() throws ParseException {
-        final char result = currChar();
-        if (result == '\u0003')
-            throw new ParseException("Unexpected ending.");
-        m_index++;
-        return result;
-    }
+            PinyinScanner scanner = null;
 
-    private char currChar() {
-        return lookahead(0);
-    }
+            for (int i = m_start; i < m_end; i++) {
+                final String pinyin = m_pinyins[i];
+                if (scanner == null) scanner = new PinyinScanner(pinyin, 0, pinyin.length());
+                else scanner.reset(pinyin, 0, pinyin.length());
 
-    private char lookahead(int amount) {
-        final int totalIdx = m_index + amount;
-        if (totalIdx >= m_toParse.length()) return '\u0003';
-        return m_toParse.charAt(totalIdx);
+                if (scanner.parse(true) == PinyinScanner.OK) {
+                    m_results[i] = new ParseResult(toPinyinString(scanner));
+                    continue;
+                }
+
+                m_results[i] = new ParseResult(scanner);
+            }
+        }
     }
 }
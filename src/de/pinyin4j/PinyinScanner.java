@@ -0,0 +1,727 @@
+package de.pinyin4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * The table-driven engine behind {@link PinyinParser}. All character classification, initial and
+ * final lookups as well as the validity check of initial/final combinations are done using
+ * precomputed arrays, so scanning goes directly from the input characters to the 16-bit
+ * representation of {@link Syllable#toShort()} without allocating anything per character or
+ * syllable. Only error messages are assembled lazily, once parsing has already failed.
+ * <p>
+ * A scanner is a cursor over one input, which holds all the mutable state of a parsing run. It is
+ * cheap to create and must not be shared between threads. The input is either a character
+ * sequence or a {@link Reader}, in which case it is read through a fixed-size window.
+ */
+final class PinyinScanner {
+
+    // status codes
+    static final int OK = 0, INVALID_INITIAL = 1, UNEXPECTED_CHARACTER = 2, INVALID_FINAL = 3,
+        INVALID_COMBINATION = 4, UNEXPECTED_SEPARATOR = 5, INVALID_R_FINAL_AT_BEGINNING = 6,
+        DOUBLE_R_FINAL = 7;
+    private static final ParseError[] ERRORS = ParseError.values(); // indexed by status code - 1
+
+    // character classes
+    private static final int OTHER = 0, CONSONANT = 1, GLIDE = 2, VOWEL = 3, TONE_MARK = 4,
+        TONE_NUMBER = 5, IGNORED = 6;
+
+    // layout of the entries in CHAR_INFO
+    private static final int CLASS_MASK = 0x000f;
+    private static final int VALUE_SHIFT = 4, VALUE_MASK = 0x01f0;
+    private static final int UPPER_CASE = 0x0200;
+    private static final int TONE_SHIFT = 10, TONE_MASK = 0x1c00; // of precomposed vowels
+
+    // symbols of the final automaton, NO_SYMBOL leads to the dead state
+    private static final int SYM_N = 8, SYM_G = 9, SYMBOL_COUNT = 10, NO_SYMBOL = 31;
+    private static final String SYMBOLS = "aoeiu\u00fcywng";
+
+    private static final char END = '\u0003';
+
+    // the window size when reading from a Reader, and how far a syllable may look ahead
+    private static final int BUFFER_SIZE = 8192, LOOKAHEAD = 32;
+
+    // covers all combining tone marks and precomposed vowels up to U+01DC (\u01dc)
+    private static final short[] CHAR_INFO = new short[0x0310];
+    private static final int[] RETROFLEX = new int[Initial.values().length];
+    private static final int[] PLACE = new int[Initial.values().length];
+    private static final long[] LEGAL = new long[Initial.values().length];
+    private static final int PLACE_COUNT = Initial.Place.values().length;
+
+    // the final automaton: a trie over SYMBOLS, with the accepted final for each place per state
+    private static short[] finalTransitions = new short[64 * SYMBOL_COUNT];
+    private static byte[] finalAccepted = new byte[64 * PLACE_COUNT];
+    private static int finalStates = 1;
+
+    static {
+        fillCharInfo();
+
+        for (Initial initial : Initial.values()) {
+            PLACE[initial.getIndex()] = initial.getPlace().ordinal();
+
+            for (Final final_ : Final.values()) {
+                if (Syllable.valid(initial, final_))
+                    LEGAL[initial.getIndex()] |= 1L << final_.getIndex();
+            }
+        }
+
+        RETROFLEX[Initial.Z.getIndex()] = Initial.ZH.getIndex();
+        RETROFLEX[Initial.C.getIndex()] = Initial.CH.getIndex();
+        RETROFLEX[Initial.S.getIndex()] = Initial.SH.getIndex();
+
+        fillFinalAutomaton();
+    }
+
+    private static void fillCharInfo() {
+        for (char c = 0; c < CHAR_INFO.length; c++) {
+            if (Character.isWhitespace(c)) CHAR_INFO[c] = IGNORED;
+        }
+
+        CHAR_INFO['\u00b7'] = IGNORED;
+        CHAR_INFO[','] = IGNORED;
+
+        for (Initial initial : Initial.values()) {
+            if (initial.getSpelling().length() == 1)
+                setLetter(initial.getSpelling().charAt(0), CONSONANT, initial.getIndex());
+        }
+
+        setLetter('y', GLIDE, SYMBOLS.indexOf('y'));
+        setLetter('w', GLIDE, SYMBOLS.indexOf('w'));
+
+        for (char vowel : "aoeiu\u00fc".toCharArray()) {
+            setLetter(vowel, VOWEL, SYMBOLS.indexOf(vowel));
+        }
+
+        // 'v' stands for 'ü', but only in lower case
+        CHAR_INFO['v'] = (short)(VOWEL | SYMBOLS.indexOf('\u00fc') << VALUE_SHIFT);
+        CHAR_INFO['V'] = (short)(VOWEL | NO_SYMBOL << VALUE_SHIFT | UPPER_CASE);
+
+        for (Tone tone : Tone.values()) {
+            if (tone == Tone.NEUTRAL) continue;
+            CHAR_INFO[tone.getMark().charAt(0)] =
+                (short)(TONE_MARK | tone.getIndex() << VALUE_SHIFT);
+
+            // precomposed vowels with tone marks, as found in NFC text
+            for (char vowel : "aoeiu\u00fc".toCharArray()) {
+                for (char c : new char[] { vowel, Character.toUpperCase(vowel) }) {
+                    final char composed = tone.precompose(c);
+                    if (composed != 0)
+                        CHAR_INFO[composed] = (short)(CHAR_INFO[c] | tone.getIndex() << TONE_SHIFT);
+                }
+            }
+        }
+
+        for (char digit = '0'; digit <= '5'; digit++) {
+            CHAR_INFO[digit] = (short)(TONE_NUMBER | (digit - '0') % 5 << VALUE_SHIFT);
+        }
+    }
+
+    private static void setLetter(char lowerCase, int charClass, int value) {
+        CHAR_INFO[lowerCase] = (short)(charClass | value << VALUE_SHIFT);
+        CHAR_INFO[Character.toUpperCase(lowerCase)] =
+            (short)(charClass | value << VALUE_SHIFT | UPPER_CASE);
+    }
+
+    private static void fillFinalAutomaton() {
+        Arrays.fill(finalTransitions, (short)-1);
+        Arrays.fill(finalAccepted, (byte)-1);
+
+        // later finals override earlier ones with the same spelling, just like in Final
+        for (Final final_ : Final.values()) {
+            for (Initial.Place place : Initial.Place.values()) {
+                addFinalSpelling(final_.getSpelling(place), place.ordinal(), final_.getIndex());
+            }
+        }
+
+        finalTransitions = Arrays.copyOf(finalTransitions, finalStates * SYMBOL_COUNT);
+        finalAccepted = Arrays.copyOf(finalAccepted, finalStates * PLACE_COUNT);
+    }
+
+    private static void addFinalSpelling(String spelling, int place, int finalIndex) {
+        int state = 0;
+
+        for (int i = 0; i < spelling.length(); i++) {
+            final int symbol = SYMBOLS.indexOf(spelling.charAt(i));
+            if (symbol < 0) return; // not reachable from any input, such as "_"
+
+            if (finalTransitions[state * SYMBOL_COUNT + symbol] < 0) {
+                if (finalStates * SYMBOL_COUNT == finalTransitions.length) {
+                    final int oldLength = finalTransitions.length;
+                    finalTransitions = Arrays.copyOf(finalTransitions, oldLength * 2);
+                    Arrays.fill(finalTransitions, oldLength, oldLength * 2, (short)-1);
+                    finalAccepted = Arrays.copyOf(finalAccepted, finalAccepted.length * 2);
+                    Arrays.fill(finalAccepted, finalAccepted.length / 2, finalAccepted.length,
+                        (byte)-1);
+                }
+
+                finalTransitions[state * SYMBOL_COUNT + symbol] = (short)finalStates++;
+            }
+
+            state = finalTransitions[state * SYMBOL_COUNT + symbol];
+        }
+
+        finalAccepted[state * PLACE_COUNT + place] = (byte)finalIndex;
+    }
+
+    private static int step(int state, int symbol) {
+        if (state < 0 || symbol == NO_SYMBOL) return -1;
+        return finalTransitions[state * SYMBOL_COUNT + symbol];
+    }
+
+    private static int charClass(int info) {
+        return info & CLASS_MASK;
+    }
+
+    private static int value(int info) {
+        return (info & VALUE_MASK) >> VALUE_SHIFT;
+    }
+
+    // the tone of a precomposed vowel, or 0 for any other character
+    private static int tone(int info) {
+        return (info & TONE_MASK) >> TONE_SHIFT;
+    }
+
+    private final Reader m_reader;
+    private final char[] m_buffer;
+    private boolean m_endOfInput;
+
+    private CharSequence m_input;
+    private int m_index, m_end;
+    private short[] m_codes = new short[16];
+    private int m_length;
+
+    // details about the last syllable or the last error
+    private short m_code;
+    private int m_status = OK, m_errorStart, m_errorIndex;
+    private char m_errorChar;
+
+    /**
+     * Creates a new scanner over a range of the given input, with leading and trailing characters
+     * that would be removed by {@link String#trim()} already skipped. The input is not copied.
+     *
+     * @param input The {@link CharSequence} to scan.
+     * @param start The index of the first character to scan.
+     * @param end The index after the last character to scan.
+     */
+    PinyinScanner(CharSequence input, int start, int end) {
+        m_reader = null;
+        m_buffer = null;
+        m_endOfInput = true;
+        reset(input, start, end);
+    }
+
+    /**
+     * Creates a new scanner that reads its input incrementally from the given reader. Only a
+     * window of {@link PinyinScanner#BUFFER_SIZE} characters is held in memory at any time.
+     *
+     * @param reader The {@link Reader} to scan.
+     */
+    PinyinScanner(Reader reader) {
+        m_reader = reader;
+        m_buffer = new char[BUFFER_SIZE];
+        m_endOfInput = false;
+        m_input = CharBuffer.wrap(m_buffer);
+        m_index = 0;
+        m_end = 0;
+    }
+
+    /**
+     * Moves this scanner to another range of its character sequence and discards the result and
+     * error of the previous run, so one scanner can parse many short ranges of a larger text.
+     * Unlike the constructor, this does not skip leading or trailing whitespace.
+     *
+     * @param start The index of the first character to scan.
+     * @param end The index after the last character to scan.
+     */
+    void reset(int start, int end) {
+        if (m_reader != null) throw new IllegalStateException("Cannot reset a reader.");
+        m_index = start;
+        m_end = end;
+        m_length = 0;
+        m_status = OK;
+    }
+
+    /**
+     * Moves this scanner to a range of another character sequence and discards the result and
+     * error of the previous run, so one scanner and its buffers can be reused for many inputs.
+     * Like the constructor, this skips leading and trailing whitespace.
+     *
+     * @param input The {@link CharSequence} to scan.
+     * @param start The index of the first character to scan.
+     * @param end The index after the last character to scan.
+     */
+    void reset(CharSequence input, int start, int end) {
+        while (start < end && input.charAt(start) <= ' ') start++;
+        while (end > start && input.charAt(end - 1) <= ' ') end--;
+        m_input = input;
+        reset(start, end);
+    }
+
+    // makes sure that count characters are in the window, unless the input ends before
+    private boolean available(int count) throws IOException {
+        while (m_end - m_index < count && !m_endOfInput) {
+            if (m_index > 0) {
+                System.arraycopy(m_buffer, m_index, m_buffer, 0, m_end - m_index);
+                m_end -= m_index;
+                m_index = 0;
+            }
+
+            final int read = m_reader.read(m_buffer, m_end, m_buffer.length - m_end);
+            if (read < 0) m_endOfInput = true;
+            else m_end += read;
+        }
+
+        return m_end - m_index >= count;
+    }
+
+    private char charAt(int index) {
+        return index < m_end ? m_input.charAt(index) : END;
+    }
+
+    private int infoAt(int index) {
+        if (index >= m_end) return OTHER;
+        final char c = m_input.charAt(index);
+        if (c < CHAR_INFO.length) return CHAR_INFO[c];
+        return Character.isWhitespace(c) ? IGNORED : OTHER;
+    }
+
+    private int fail(int status, int start, int index) {
+        m_errorChar = charAt(index);
+        m_status = status;
+        m_errorStart = start;
+        m_errorIndex = index;
+        return status;
+    }
+
+    /**
+     * Scans a single syllable starting at the current position, including a following syllable
+     * separator ("'"). On success, the position is advanced behind the syllable and its 16-bit
+     * representation is available via {@link PinyinScanner#getCode()}.
+     *
+     * @return {@link PinyinScanner#OK} or the status code of the error that occurred.
+     */
+    int scanSyllable() {
+        final int start = m_index;
+        int index = start;
+        int info = infoAt(index);
+
+        // initial consonant
+        int initial = Initial.EMPTY.getIndex(), initialLength = 0;
+        boolean validInitial = true;
+
+        while (charClass(info) == CONSONANT) {
+            final int letter = value(info);
+            if (initialLength == 0) initial = letter;
+            else if (initialLength == 1 && letter == Initial.H.getIndex() &&
+                RETROFLEX[initial] != 0) initial = RETROFLEX[initial];
+            else validInitial = false;
+            initialLength++;
+            info = infoAt(++index);
+        }
+
+        if (!validInitial) return fail(INVALID_INITIAL, start, index);
+
+        // nucleus with tone
+        int state = 0, tone = 0, finalLength = 0;
+
+        while (charClass(info) == GLIDE) {
+            state = step(state, value(info));
+            finalLength++;
+            info = infoAt(++index);
+        }
+
+        for (int pass = 0; pass < 2; pass++) {
+            while (charClass(info) == VOWEL) {
+                int symbol = value(info), next = index + 1;
+
+                if (m_input.charAt(index) == 'u' && charAt(next) == ':') { // CC-CEDICT
+                    symbol = SYMBOLS.indexOf('\u00fc');
+                    next++;
+                }
+
+                // once the syllable has a tone, a vowel with another tone starts the next one, no
+                // matter whether it is precomposed or followed by a combining mark
+                final int precomposedTone = tone(info);
+                if (pass == 1 && (precomposedTone != 0 || charClass(infoAt(next)) == TONE_MARK))
+                    break;
+
+                state = step(state, symbol);
+                finalLength++;
+                index = next;
+                info = infoAt(index);
+
+                // a precomposed vowel is a vowel followed by a tone mark
+                if (precomposedTone != 0) {
+                    tone = precomposedTone;
+                    pass = 1;
+                }
+            }
+
+            if (pass == 1 || charClass(info) != TONE_MARK) break;
+            tone = value(info);
+            info = infoAt(++index);
+        }
+
+        // at this point we have to have something, otherwise the character is invalid.
+        if (initialLength + finalLength == 0) return fail(UNEXPECTED_CHARACTER, start, index);
+
+        final int firstLetter = infoAt(initialLength > 0 ? start : firstLetterOfFinal(start));
+        final boolean capitalized = (firstLetter & UPPER_CASE) != 0;
+
+        // syllable final
+        if (handleCodaChar(index, 'n')) {
+            state = step(state, SYM_N);
+            index++;
+
+            if (handleCodaChar(index, 'g')) {
+                state = step(state, SYM_G);
+                index++;
+            }
+        }
+
+        final int final_ = state < 0 ? -1 : finalAccepted[state * PLACE_COUNT + PLACE[initial]];
+        m_code = (short)(initial | Math.max(final_, 0) << Syllable.FINAL_SHIFT);
+        if (final_ < 0) return fail(INVALID_FINAL, start, index);
+
+        // handle r final
+        final boolean rFinal = charAt(index) == 'r' && charClass(infoAt(index + 1)) != VOWEL;
+        if (rFinal) index++;
+
+        if (tone == 0 && charClass(infoAt(index)) == TONE_NUMBER) {
+            tone = value(infoAt(index));
+            index++;
+        }
+
+        if ((LEGAL[initial] & 1L << final_) == 0) return fail(INVALID_COMBINATION, start, index);
+
+        m_code |= tone << Syllable.TONE_SHIFT;
+        if (rFinal) m_code |= Syllable.R_FINAL_MASK;
+        if (capitalized) m_code |= Syllable.CAPITAL_MASK;
+
+        if (charAt(index) == '\'') {
+            index++;
+            if (charClass(infoAt(index)) != VOWEL)
+                return fail(UNEXPECTED_SEPARATOR, start, index);
+        }
+
+        m_index = index;
+        return OK;
+    }
+
+    // skips a leading tone mark, which is not part of the spelling
+    private int firstLetterOfFinal(int start) {
+        return charClass(infoAt(start)) == TONE_MARK ? start + 1 : start;
+    }
+
+    private boolean handleCodaChar(int index, char expectedCodaChar) {
+        return charAt(index) == expectedCodaChar && charClass(infoAt(index + 1)) != VOWEL;
+    }
+
+    // parses "r5" if present, which is the CC-CEDICT representation of r finals
+    private boolean scanRFinal() {
+        if (charAt(m_index) == 'r' && charAt(m_index + 1) == '5') {
+            m_index += 2;
+            return true;
+        }
+
+        return false;
+    }
+
+    // skips whitespace, centerdot and comma which are used as separators in CEDICT
+    private boolean skipIgnored() throws IOException {
+        boolean result = false;
+
+        while (available(1) && charClass(infoAt(m_index)) == IGNORED) {
+            m_index++;
+            result = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Scans the entire input. On success, the result is available via
+     * {@link PinyinScanner#getCodes()} and {@link PinyinScanner#getLength()}.
+     *
+     * @param parseWhitespace Indicates, whether whitespace tokens (represented by
+     *  {@link PinyinString#SPACE_CODE}) are added to the result.
+     * @return {@link PinyinScanner#OK} or the status code of the error that occurred.
+     */
+    int parse(boolean parseWhitespace) {
+        try {
+            return parse(parseWhitespace, new CodeCollector());
+        }
+        catch (IOException e) {
+            // only a reader can fail, and scanners over a character sequence have none
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Scans the entire input and pushes the parsed tokens to the given sink. Since an "r5" token
+     * may still add an r final to the last syllable, every syllable is held back until the next
+     * syllable or the end of the input has been reached.
+     *
+     * @param parseWhitespace Indicates, whether whitespace tokens are pushed to the sink.
+     * @param sink The {@link ISyllableSink} that receives the parsed tokens.
+     * @return {@link PinyinScanner#OK} or the status code of the error that occurred.
+     * @throws IOException If reading the input failed.
+     */
+    int parse(boolean parseWhitespace, ISyllableSink sink) throws IOException {
+        int pending = -1, pendingSpaces = 0;
+        boolean countedSpace = false;
+
+        while (available(1) && m_input.charAt(m_index) <= ' ') m_index++;
+
+        while (available(1)) {
+            // only trailing characters removed by String.trim() may be left
+            final char first = m_input.charAt(m_index);
+
+            if (first <= ' ') {
+                final int start = m_index;
+                while (available(1) && m_input.charAt(m_index) <= ' ') m_index++;
+
+                if (!available(1)) {
+                    if (countedSpace) pendingSpaces--;
+                    break;
+                }
+
+                m_status = UNEXPECTED_CHARACTER;
+                m_errorStart = start;
+                m_errorChar = first;
+                return m_status;
+            }
+
+            available(LOOKAHEAD);
+            final int start = m_index;
+
+            if (scanRFinal()) {
+                if (pending < 0) return fail(INVALID_R_FINAL_AT_BEGINNING, start, start);
+                if ((pending & Syllable.R_FINAL_MASK) != 0)
+                    return fail(DOUBLE_R_FINAL, start, start);
+                pending |= Syllable.R_FINAL_MASK;
+            }
+            else {
+                final int status = scanSyllable();
+                if (status != OK) return status;
+                if (pending >= 0) sink.acceptSyllable((short)pending);
+
+                for (; pendingSpaces > 0; pendingSpaces--) {
+                    sink.acceptSpace();
+                }
+
+                pending = m_code & 0xffff;
+            }
+
+            countedSpace = skipIgnored() && available(1) && parseWhitespace;
+            if (countedSpace) pendingSpaces++;
+        }
+
+        if (pending >= 0) sink.acceptSyllable((short)pending);
+
+        for (; pendingSpaces > 0; pendingSpaces--) {
+            sink.acceptSpace();
+        }
+
+        return OK;
+    }
+
+    /**
+     * Gets the 16-bit representation of the last syllable scanned by
+     * {@link PinyinScanner#scanSyllable()}.
+     *
+     * @return The code of the last scanned syllable.
+     */
+    short getCode() {
+        return m_code;
+    }
+
+    /**
+     * Gets the array containing the result of {@link PinyinScanner#parse(boolean)}. Only the first
+     * {@link PinyinScanner#getLength()} entries are valid. The array may be larger.
+     *
+     * @return The internal array of syllable codes.
+     */
+    short[] getCodes() {
+        return m_codes;
+    }
+
+    /**
+     * Gets the number of codes produced by {@link PinyinScanner#parse(boolean)}.
+     *
+     * @return The number of valid entries in {@link PinyinScanner#getCodes()}.
+     */
+    int getLength() {
+        return m_length;
+    }
+
+    /**
+     * Gets the kind of the last error that occurred.
+     *
+     * @return The {@link ParseError} matching the last status code or <tt>null</tt>, if no error
+     *  occurred.
+     */
+    ParseError getError() {
+        return m_status == OK ? null : ERRORS[m_status - 1];
+    }
+
+    /**
+     * Gets the index of the first character of the syllable or segment in which the last error
+     * occurred.
+     *
+     * @return The index of the last error in the input.
+     */
+    int getErrorOffset() {
+        return m_errorStart;
+    }
+
+    /**
+     * Gets the part of the input that is needed to describe the last error, starting at its
+     * offset. Only invalid initials and finals are described with the input, so this is
+     * <tt>null</tt> for any other error.
+     *
+     * @return A copy of the erroneous syllable up to the character after the error, or
+     *  <tt>null</tt>.
+     */
+    String getErrorSpan() {
+        if (m_status != INVALID_INITIAL && m_status != INVALID_FINAL) return null;
+        final int end = Math.min(Math.max(initialEnd(), m_errorIndex + 1), m_end);
+        return m_input.subSequence(m_errorStart, end).toString();
+    }
+
+    /**
+     * Gets the number of characters of the erroneous syllable that were scanned before the last
+     * error occurred.
+     *
+     * @return The index of the last error, relative to its offset.
+     */
+    int getErrorLength() {
+        return m_errorIndex - m_errorStart;
+    }
+
+    /**
+     * Gets the character at which the last error occurred.
+     *
+     * @return The unexpected character of the last error.
+     */
+    char getErrorChar() {
+        return m_errorChar;
+    }
+
+    /**
+     * Gets the last syllable that was scanned, which is the syllable in which the last error
+     * occurred.
+     *
+     * @return The code of the last syllable.
+     */
+    short getErrorCode() {
+        return m_code;
+    }
+
+    /**
+     * Describes the last error that occurred. This is the only place where strings are built, so
+     * it should only be called once parsing has failed.
+     *
+     * @return A {@link String} containing a human-readable description of the last error.
+     */
+    String getErrorMessage() {
+        return describe(getError(), getErrorSpan(), getErrorLength(), m_errorChar, m_code);
+    }
+
+    /**
+     * Describes an error from the details a failed scanner recorded about it, so results can keep
+     * those instead of the scanner and its input.
+     *
+     * @param error The kind of the error.
+     * @param span The spelling of the erroneous syllable, as returned by
+     *  {@link PinyinScanner#getErrorSpan()}.
+     * @param length The number of characters scanned before the error occurred.
+     * @param errorChar The character at which the error occurred.
+     * @param code The code of the syllable in which the error occurred.
+     * @return A {@link String} containing a human-readable description of the error.
+     */
+    static String describe(ParseError error, String span, int length, char errorChar,
+            short code) {
+        if (error == null) return null;
+
+        switch (error) {
+            case INVALID_INITIAL:
+                return "Invalid initial: " + span.substring(0, initialLength(span));
+            case UNEXPECTED_CHARACTER:
+                return "Unexpected character: \"" + errorChar + "\".";
+            case INVALID_FINAL:
+                return "Invalid final: " + finalSpelling(span, length) + " (after initial \"" +
+                    Initial.fromIndex(code & Syllable.INITIAL_MASK).getSpelling() + "\".";
+            case INVALID_COMBINATION:
+                return "Initial \"" +
+                    Initial.fromIndex(code & Syllable.INITIAL_MASK).getSpelling() +
+                    "\" cannot be combined with final \"" +
+                    Final.fromIndex((code & Syllable.FINAL_MASK) >> Syllable.FINAL_SHIFT) +
+                    "\".";
+            case UNEXPECTED_SEPARATOR:
+                return "Unexpected syllable separator after syllable \"" +
+                    Syllable.fromShort(code).toString() + "\".";
+            case INVALID_R_FINAL_AT_BEGINNING:
+                return "Invalid r final at the beginning.";
+            default:
+                return "Double r-final.";
+        }
+    }
+
+    private int initialEnd() {
+        int index = m_errorStart;
+        while (charClass(infoAt(index)) == CONSONANT) index++;
+        return index;
+    }
+
+    private static int spanInfo(String span, int index) {
+        if (index >= span.length()) return OTHER;
+        final char c = span.charAt(index);
+        return c < CHAR_INFO.length ? CHAR_INFO[c] : OTHER;
+    }
+
+    private static int initialLength(String span) {
+        int index = 0;
+        while (charClass(spanInfo(span, index)) == CONSONANT) index++;
+        return index;
+    }
+
+    private static String finalSpelling(String span, int length) {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = initialLength(span); i < length; i++) {
+            final char c = span.charAt(i);
+            if (charClass(spanInfo(span, i)) == TONE_MARK) continue;
+            if (c == 'v') sb.append('\u00fc');
+            else if (c == 'u' && i + 1 < span.length() && span.charAt(i + 1) == ':') {
+                sb.append('\u00fc');
+                i++;
+            }
+            else sb.append(c);
+        }
+
+        return sb.toString();
+    }
+
+    // collects the parsed tokens in m_codes
+    private final class CodeCollector implements ISyllableSink {
+
+        private void append(short code) {
+            if (m_length == m_codes.length) m_codes = Arrays.copyOf(m_codes, m_length * 2);
+            m_codes[m_length++] = code;
+        }
+
+        @Override
+        public void acceptSyllable(short syllable) {
+            append(syllable);
+        }
+
+        @Override
+        public void acceptSpace() {
+            append(PinyinString.SPACE_CODE);
+        }
+    }
+}
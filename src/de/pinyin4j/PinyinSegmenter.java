@@ -0,0 +1,512 @@
+package de.pinyin4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Segments pinyin without separators into syllables. Unlike {@link PinyinParser}, which commits
+ * to the longest syllable at every point, it builds a {@link Lattice} of all syllables that
+ * occur in any complete segmentation of the input, so "xian" is read as both "xian" and "xi'an".
+ * The lattice has at most a constant number of edges per character and is built in linear time.
+ * From it, the best segmentation, the k best segmentations or the number of segmentations can be
+ * computed without enumerating all of them.
+ * <p>
+ * The input may contain letters, "v" or "u:" for "ü", vowels with tone marks, which are either
+ * precomposed or followed by a combining tone mark, and tone numbers (0 or 5 for neutral tone)
+ * after syllables. Whitespace, apostrophes and hyphens are forced
+ * syllable boundaries and do not appear in the result. Segmenters are immutable and can be
+ * shared between threads.
+ */
+public final class PinyinSegmenter {
+
+    private static final char U_UMLAUT = '\u00fc';
+    private static final int LETTERS = 27; // 'a' to 'z' and 'ü'
+
+    // an automaton over the toneless, lower case spellings of all syllables
+    private static int[] transitions = new int[64 * LETTERS];
+    private static short[] accepted = new short[64];
+    private static int states = 1;
+
+    // the tone and letter index of precomposed vowels with tone marks, 0 for other characters
+    private static final short[] PRECOMPOSED = new short[0x0200];
+    private static final int PRECOMPOSED_TONE_SHIFT = 5;
+
+    static {
+        Arrays.fill(transitions, -1);
+        Arrays.fill(accepted, (short)-1);
+
+        for (Tone tone : Tone.values()) {
+            if (tone == Tone.NEUTRAL) continue;
+
+            for (char vowel : "aoeiu\u00fc".toCharArray()) {
+                for (char c : new char[] { vowel, Character.toUpperCase(vowel) }) {
+                    final char composed = tone.precompose(c);
+                    if (composed != 0 && composed < PRECOMPOSED.length) {
+                        PRECOMPOSED[composed] = (short)(letterIndex(vowel) |
+                            tone.getIndex() << PRECOMPOSED_TONE_SHIFT);
+                    }
+                }
+            }
+        }
+
+        for (int id = 0; id < Syllable.getIdCount(); id++) {
+            final short code = Syllable.idToShort(id);
+            if ((code & (Syllable.TONE_MASK | Syllable.CAPITAL_MASK)) != 0) continue;
+            addSpelling(Syllable.fromShort(code).toString(), code);
+        }
+    }
+
+    private static void addSpelling(String spelling, short code) {
+        int state = 0;
+
+        for (int i = 0; i < spelling.length(); i++) {
+            final int index = state * LETTERS + letterIndex(spelling.charAt(i));
+
+            if (transitions[index] < 0) {
+                if (states == accepted.length) {
+                    transitions = Arrays.copyOf(transitions, states * 2 * LETTERS);
+                    Arrays.fill(transitions, states * LETTERS, transitions.length, -1);
+                    accepted = Arrays.copyOf(accepted, states * 2);
+                    Arrays.fill(accepted, states, accepted.length, (short)-1);
+                }
+
+                transitions[index] = states++;
+            }
+
+            state = transitions[index];
+        }
+
+        if (accepted[state] < 0) accepted[state] = code;
+    }
+
+    // the index of a lower case letter, -1 for other characters
+    private static int letterIndex(char c) {
+        if (c >= 'a' && c <= 'z') return c == 'v' ? LETTERS - 1 : c - 'a';
+        return c == U_UMLAUT ? LETTERS - 1 : -1;
+    }
+
+    private static boolean isVowel(int letter) {
+        return letter == 0 || letter == 'e' - 'a' || letter == 'i' - 'a' || letter == 'o' - 'a' ||
+            letter == 'u' - 'a' || letter == LETTERS - 1;
+    }
+
+    private static int toneOfMark(char c) {
+        for (Tone tone : Tone.values()) {
+            if (tone != Tone.NEUTRAL && tone.getMark().charAt(0) == c) return tone.getIndex();
+        }
+
+        return -1;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c <= ' ' || c == '\'' || c == '\u2019' || c == '-';
+    }
+
+    /**
+     * Creates a new segmenter.
+     */
+    public PinyinSegmenter() { }
+
+    /**
+     * Builds the lattice of all complete segmentations of the given input.
+     *
+     * @param input A {@link CharSequence} containing pinyin, possibly without separators.
+     * @return The {@link Lattice} of the input, which contains no edges if the input cannot be
+     *  segmented into syllables.
+     */
+    public Lattice buildLattice(CharSequence input) {
+        final int length = input.length();
+        final EdgeList edges = new EdgeList(length);
+        int position = 0;
+
+        // every edge starts at a letter that is directly preceded by a separator or by the end
+        // of another edge, so only reachable positions are expanded
+        final boolean[] reachable = new boolean[length + 1];
+        reachable[0] = true;
+
+        for (; position < length; position++) {
+            if (!reachable[position]) continue;
+
+            if (isSeparator(input.charAt(position))) {
+                reachable[position + 1] = true;
+                continue;
+            }
+
+            addEdges(input, position, edges, reachable);
+        }
+
+        return new Lattice(input, edges, reachable[length]);
+    }
+
+    // adds the edges of all syllables starting at the given position
+    private static void addEdges(CharSequence input, int start, EdgeList edges,
+            boolean[] reachable) {
+        final int length = input.length();
+        final boolean capitalized = Character.isUpperCase(input.charAt(start));
+        int state = 0, tone = 0;
+        boolean afterVowel = false;
+
+        for (int index = start; index < length; ) {
+            final char c = input.charAt(index);
+            final int mark = toneOfMark(c);
+
+            // combining tone marks are only accepted directly after a vowel
+            if (mark >= 0) {
+                if (!afterVowel || tone != 0) return;
+                tone = mark;
+                afterVowel = false;
+                index++;
+                continue;
+            }
+
+            final int precomposed = c < PRECOMPOSED.length ? PRECOMPOSED[c] : 0;
+            int letter;
+
+            if (precomposed != 0) {
+                if (tone != 0) return;
+                tone = precomposed >>> PRECOMPOSED_TONE_SHIFT;
+                letter = precomposed & (1 << PRECOMPOSED_TONE_SHIFT) - 1;
+            }
+            else letter = letterIndex(Character.toLowerCase(c));
+
+            index++;
+
+            if (letter == 'u' - 'a' && index < length && input.charAt(index) == ':') {
+                letter = LETTERS - 1;
+                index++;
+            }
+
+            if (letter < 0 || (state = transitions[state * LETTERS + letter]) < 0) return;
+            afterVowel = precomposed == 0 && isVowel(letter);
+            if (accepted[state] < 0) continue;
+
+            // the syllable may be followed by the mark of its last vowel and a tone number
+            int end = index, endTone = tone;
+
+            if (end < length && afterVowel && endTone == 0 && toneOfMark(input.charAt(end)) >= 0)
+                endTone = toneOfMark(input.charAt(end++));
+
+            if (end < length && input.charAt(end) >= '0' && input.charAt(end) <= '5' &&
+                    endTone == 0) {
+                endTone = (input.charAt(end++) - '0') % 5;
+            }
+
+            int code = accepted[state] | endTone << Syllable.TONE_SHIFT;
+            if (capitalized) code |= Syllable.CAPITAL_MASK;
+            edges.add(start, end, (short)code);
+            reachable[end] = true;
+        }
+    }
+
+    /**
+     * Computes the best segmentation of the given input (see {@link Lattice#getBestPath()}).
+     *
+     * @param input A {@link CharSequence} containing pinyin, possibly without separators.
+     * @return The best segmentation as a {@link PinyinString} or <tt>null</tt>, if the input
+     *  cannot be segmented.
+     */
+    public PinyinString segment(CharSequence input) {
+        return buildLattice(input).getBestPath();
+    }
+
+    /**
+     * Computes the <tt>k</tt> best segmentations of the given input (see
+     * {@link Lattice#getBestPaths(int)}).
+     *
+     * @param input A {@link CharSequence} containing pinyin, possibly without separators.
+     * @param k The maximum number of segmentations.
+     * @return A {@link List} of at most <tt>k</tt> segmentations, best first.
+     */
+    public List<PinyinString> segment(CharSequence input, int k) {
+        return buildLattice(input).getBestPaths(k);
+    }
+
+    // a growable list of edges, sorted by their start
+    private static final class EdgeList {
+
+        private int[] m_starts, m_ends;
+        private short[] m_codes;
+        private int m_size = 0;
+
+        private EdgeList(int capacity) {
+            capacity = Math.max(16, capacity);
+            m_starts = new int[capacity];
+            m_ends = new int[capacity];
+            m_codes = new short[capacity];
+        }
+
+        private void add(int start, int end, short code) {
+            if (m_size == m_starts.length) {
+                m_starts = Arrays.copyOf(m_starts, m_size * 2);
+                m_ends = Arrays.copyOf(m_ends, m_size * 2);
+                m_codes = Arrays.copyOf(m_codes, m_size * 2);
+            }
+
+            m_starts[m_size] = start;
+            m_ends[m_size] = end;
+            m_codes[m_size++] = code;
+        }
+    }
+
+    /**
+     * The lattice of all complete segmentations of an input. Its nodes are the character
+     * positions of the input and its edges are syllables spanning the characters between two
+     * positions. Every path from the start to the end of the input is a segmentation, where
+     * separators are skipped, and every edge lies on at least one such path.
+     * <p>
+     * The cost of a path is the sum of the costs of its syllables. Every syllable costs 2, and
+     * syllables starting with "a", "o" or "e" cost 1 more, since they are less common inside
+     * words. Hence, the best path prefers fewer syllables, and "fangan" is read as "fan'gan"
+     * rather than "fang'an".
+     */
+    public static final class Lattice {
+
+        private final int m_length;
+        private final boolean m_complete;
+        private final boolean[] m_separators;
+        private final int[] m_starts, m_ends, m_costs;
+        private final short[] m_codes;
+
+        // the edges ending at each position are m_byEnd[m_firstByEnd[p] .. m_firstByEnd[p + 1]]
+        private final int[] m_firstByEnd, m_byEnd;
+
+        private Lattice(CharSequence input, EdgeList edges, boolean complete) {
+            m_length = input.length();
+            m_complete = complete;
+            m_separators = new boolean[m_length];
+            final boolean[] coReachable = new boolean[m_length + 1];
+            coReachable[m_length] = complete;
+            int nextEdge = edges.m_size - 1;
+
+            for (int position = m_length - 1; position >= 0; position--) {
+                m_separators[position] = isSeparator(input.charAt(position));
+
+                // edges were added in the order of their starts
+                for (; nextEdge >= 0 && edges.m_starts[nextEdge] == position; nextEdge--) {
+                    if (coReachable[edges.m_ends[nextEdge]]) coReachable[position] = true;
+                }
+
+                if (m_separators[position] && coReachable[position + 1])
+                    coReachable[position] = true;
+            }
+
+            int count = 0;
+
+            for (int i = 0; i < edges.m_size; i++) {
+                if (coReachable[edges.m_ends[i]]) count++;
+            }
+
+            m_starts = new int[count];
+            m_ends = new int[count];
+            m_codes = new short[count];
+            m_costs = new int[count];
+            m_firstByEnd = new int[m_length + 2];
+            count = 0;
+
+            for (int i = 0; i < edges.m_size; i++) {
+                if (!coReachable[edges.m_ends[i]]) continue;
+                m_starts[count] = edges.m_starts[i];
+                m_ends[count] = edges.m_ends[i];
+                m_codes[count] = edges.m_codes[i];
+                m_costs[count] = Syllable.hasUnambiguousStart(edges.m_codes[i]) ? 2 : 3;
+                m_firstByEnd[m_ends[count] + 1]++;
+                count++;
+            }
+
+            for (int position = 0; position <= m_length; position++) {
+                m_firstByEnd[position + 1] += m_firstByEnd[position];
+            }
+
+            m_byEnd = new int[count];
+            final int[] next = Arrays.copyOf(m_firstByEnd, m_length + 1);
+
+            for (int edge = 0; edge < count; edge++) {
+                m_byEnd[next[m_ends[edge]]++] = edge;
+            }
+        }
+
+        /**
+         * Indicates whether the input can be segmented into syllables at all.
+         *
+         * @return <tt>true</tt>, if and only if there is at least one segmentation.
+         */
+        public boolean hasPath() {
+            return m_complete;
+        }
+
+        /**
+         * Gets the number of edges in this lattice.
+         *
+         * @return The number of syllables on any segmentation.
+         */
+        public int getEdgeCount() {
+            return m_codes.length;
+        }
+
+        /**
+         * Gets the position of the first character of the given edge in the input.
+         *
+         * @param edge The index of the edge. Edges are ordered by their start.
+         * @return The start of the edge.
+         */
+        public int getEdgeStart(int edge) {
+            return m_starts[edge];
+        }
+
+        /**
+         * Gets the position after the last character of the given edge in the input.
+         *
+         * @param edge The index of the edge. Edges are ordered by their start.
+         * @return The end of the edge.
+         */
+        public int getEdgeEnd(int edge) {
+            return m_ends[edge];
+        }
+
+        /**
+         * Gets the syllable of the given edge.
+         *
+         * @param edge The index of the edge. Edges are ordered by their start.
+         * @return The 16-bit representation of the syllable (see {@link Syllable#toShort()}).
+         */
+        public short getEdgeSyllable(int edge) {
+            return m_codes[edge];
+        }
+
+        // skips the separators before the given position, which is where the partial paths of
+        // the position are stored
+        private int origin(int position) {
+            while (position > 0 && m_separators[position - 1]) position--;
+            return position;
+        }
+
+        /**
+         * Counts the segmentations of the input without enumerating them.
+         *
+         * @return The number of paths through this lattice, or {@link Long#MAX_VALUE} if there
+         *  are more.
+         */
+        public long getPathCount() {
+            if (!m_complete) return 0;
+            final long[] counts = new long[m_length + 1];
+            counts[0] = 1;
+
+            for (int position = 1; position <= m_length; position++) {
+                long count = 0;
+
+                for (int i = m_firstByEnd[position]; i < m_firstByEnd[position + 1]; i++) {
+                    count += counts[origin(m_starts[m_byEnd[i]])];
+                    if (count < 0) count = Long.MAX_VALUE;
+                }
+
+                counts[position] = count;
+            }
+
+            return counts[origin(m_length)];
+        }
+
+        /**
+         * Computes the segmentation with the lowest cost. Of several segmentations with the same
+         * cost, the one whose first differing syllable ends first is returned.
+         *
+         * @return The best segmentation as a {@link PinyinString} or <tt>null</tt>, if there is
+         *  none.
+         */
+        public PinyinString getBestPath() {
+            final List<PinyinString> paths = getBestPaths(1);
+            return paths.isEmpty() ? null : paths.get(0);
+        }
+
+        /**
+         * Computes the <tt>k</tt> segmentations with the lowest costs, using a dynamic program
+         * that keeps the <tt>k</tt> best partial paths at every position. This takes time linear
+         * in the input for a fixed <tt>k</tt>.
+         *
+         * @param k The maximum number of segmentations.
+         * @return A {@link List} of at most <tt>k</tt> segmentations, best first.
+         * @throws IllegalArgumentException If <tt>k</tt> is not positive.
+         */
+        public List<PinyinString> getBestPaths(int k) {
+            if (k <= 0) throw new IllegalArgumentException("k must be positive.");
+            if (!m_complete) return Collections.emptyList();
+
+            // for every position, the costs of its best partial paths together with their last
+            // edges and the ranks of the partial paths at the starts of those edges
+            final int[][] costs = new int[m_length + 1][], lastEdges = new int[m_length + 1][],
+                previousRanks = new int[m_length + 1][];
+            costs[0] = new int[] { 0 };
+
+            for (int position = 1; position <= m_length; position++) {
+                if (m_firstByEnd[position] < m_firstByEnd[position + 1])
+                    mergeBest(position, k, costs, lastEdges, previousRanks);
+            }
+
+            final int end = origin(m_length);
+            final List<PinyinString> result = new ArrayList<>(costs[end].length);
+
+            for (int rank = 0; rank < costs[end].length; rank++) {
+                result.add(reconstruct(end, rank, lastEdges, previousRanks));
+            }
+
+            return result;
+        }
+
+        private void mergeBest(int position, int k, int[][] costs, int[][] lastEdges,
+                int[][] previousRanks) {
+            final int[] candidateCosts = new int[k], candidateEdges = new int[k],
+                candidateRanks = new int[k];
+            int size = 0;
+
+            for (int i = m_firstByEnd[position]; i < m_firstByEnd[position + 1]; i++) {
+                final int edge = m_byEnd[i];
+                final int[] startCosts = costs[origin(m_starts[edge])];
+
+                for (int rank = 0; rank < startCosts.length; rank++) {
+                    final int cost = startCosts[rank] + m_costs[edge];
+                    if (size == k && cost >= candidateCosts[k - 1]) break;
+
+                    // insert after all candidates that are not more expensive, keeping it stable
+                    int index = size == k ? k - 1 : size++;
+
+                    for (; index > 0 && candidateCosts[index - 1] > cost; index--) {
+                        candidateCosts[index] = candidateCosts[index - 1];
+                        candidateEdges[index] = candidateEdges[index - 1];
+                        candidateRanks[index] = candidateRanks[index - 1];
+                    }
+
+                    candidateCosts[index] = cost;
+                    candidateEdges[index] = edge;
+                    candidateRanks[index] = rank;
+                }
+            }
+
+            costs[position] = Arrays.copyOf(candidateCosts, size);
+            lastEdges[position] = Arrays.copyOf(candidateEdges, size);
+            previousRanks[position] = Arrays.copyOf(candidateRanks, size);
+        }
+
+        private PinyinString reconstruct(int position, int rank, int[][] lastEdges,
+                int[][] previousRanks) {
+            short[] codes = new short[8];
+            int length = 0;
+
+            while (position > 0) {
+                final int edge = lastEdges[position][rank];
+                if (length == codes.length) codes = Arrays.copyOf(codes, length * 2);
+                codes[length++] = m_codes[edge];
+                rank = previousRanks[position][rank];
+                position = origin(m_starts[edge]);
+            }
+
+            final short[] result = new short[length];
+
+            for (int i = 0; i < length; i++) {
+                result[i] = codes[length - 1 - i];
+            }
+
+            return new PinyinString(result);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package de.pinyin4j;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Finds the passages of a large text that may contain pinyin, such as "Bei3jing1" or
+ * "Zho\u0304ngguo\u0301" in an otherwise English or Chinese document, much faster than parsing
+ * every word. Candidate spans are runs of words separated by spaces or tabs in which every word
+ * passes cheap checks: all its characters are pinyin letters, tone marks, tone numbers,
+ * apostrophes or "u:", it starts with a letter that starts some syllable, every pair of adjacent
+ * letters occurs within a syllable or across the boundary of two syllables, and every syllable
+ * boundary before a tone number or apostrophe follows a letter that ends some syllable. These
+ * tables are derived from all valid combinations of {@link Initial}s and {@link Final}s, so most
+ * English words, like "the" or "went", are rejected after a few characters.
+ * <p>
+ * By default, a span must also contain a tone mark or tone number. The characters that carry
+ * tones are rare in most text and found with a bitmap, so the text between them is skipped
+ * without being classified. Only the candidate spans are then parsed by
+ * {@link PinyinSpanDetector#detect(CharSequence)}. Detectors are immutable and can be shared
+ * between threads.
+ */
+public final class PinyinSpanDetector {
+
+    private static final char U_UMLAUT = '\u00fc';
+    private static final int LETTERS = 27; // 'a' to 'z' and '\u00fc'
+
+    // character classes, below LETTERS they are letter indices with an optional TONED flag
+    private static final byte TONED = 0x20, MARK = 0x40, TONE_NUMBER = 0x41, APOSTROPHE = 0x42,
+        COLON = 0x43, SPACE = 0x44, INVALID = 0x45, NONE = 0x7f;
+    private static final byte[] CLASS = new byte[0x0370];
+
+    // a bitmap of the characters that carry a tone: digits, tone marks and toned vowels
+    private static final long[] TONE_CHARS = new long[CLASS.length / 64 + 1];
+
+    // which letters start or end some syllable, and which pairs of letters occur in pinyin
+    private static final boolean[] FIRST = new boolean[LETTERS], LAST = new boolean[LETTERS];
+    private static final boolean[] PAIRS = new boolean[LETTERS * LETTERS];
+
+    static {
+        fillClasses();
+
+        for (int id = 0; id < Syllable.getIdCount(); id++) {
+            final short code = Syllable.idToShort(id);
+            if ((code & (Syllable.TONE_MASK | Syllable.CAPITAL_MASK)) != 0) continue;
+            final String spelling = Syllable.fromShort(code).toString();
+            FIRST[letterIndex(spelling.charAt(0))] = true;
+            LAST[letterIndex(spelling.charAt(spelling.length() - 1))] = true;
+
+            for (int i = 1; i < spelling.length(); i++) {
+                PAIRS[letterIndex(spelling.charAt(i - 1)) * LETTERS +
+                    letterIndex(spelling.charAt(i))] = true;
+            }
+        }
+
+        // syllables may follow each other without separators
+        for (int last = 0; last < LETTERS; last++) {
+            for (int first = 0; first < LETTERS; first++) {
+                if (LAST[last] && FIRST[first]) PAIRS[last * LETTERS + first] = true;
+            }
+        }
+    }
+
+    private static void fillClasses() {
+        Arrays.fill(CLASS, NONE);
+
+        for (char c = 0; c < CLASS.length; c++) {
+            if (Character.isLetterOrDigit(c) ||
+                    Character.getType(c) == Character.NON_SPACING_MARK) CLASS[c] = INVALID;
+        }
+
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASS[c] = (byte)letterIndex(c);
+            CLASS[Character.toUpperCase(c)] = CLASS[c];
+        }
+
+        CLASS[U_UMLAUT] = CLASS[Character.toUpperCase(U_UMLAUT)] = (byte)letterIndex(U_UMLAUT);
+
+        for (Tone tone : Tone.values()) {
+            if (tone == Tone.NEUTRAL) continue;
+            setToneChar(tone.getMark().charAt(0), MARK);
+
+            // precomposed vowels with tone marks, as found in NFC text
+            for (char vowel : "aoeiu\u00fc".toCharArray()) {
+                for (char c : new char[] { vowel, Character.toUpperCase(vowel) }) {
+                    final char composed = tone.precompose(c);
+                    if (composed != 0) setToneChar(composed, (byte)(CLASS[c] | TONED));
+                }
+            }
+        }
+
+        for (char digit = '0'; digit <= '5'; digit++) {
+            setToneChar(digit, TONE_NUMBER);
+        }
+
+        CLASS['\''] = APOSTROPHE;
+        CLASS[':'] = COLON;
+        CLASS[' '] = CLASS['\t'] = SPACE;
+    }
+
+    private static void setToneChar(char c, byte charClass) {
+        CLASS[c] = charClass;
+        TONE_CHARS[c >>> 6] |= 1L << c;
+    }
+
+    // the index of a lower case letter, with 'v' standing for '\u00fc'
+    private static int letterIndex(char c) {
+        return c == 'v' || c == U_UMLAUT ? LETTERS - 1 : c - 'a';
+    }
+
+    private static int classOf(char c) {
+        return c < CLASS.length ? CLASS[c] : NONE;
+    }
+
+    // whether the character at the given index can be part of a word, like in PinyinTokens
+    private static boolean isWordCharAt(CharSequence text, int index, int end) {
+        if (index == end) return false;
+        final int charClass = classOf(text.charAt(index));
+        return charClass < APOSTROPHE || charClass == INVALID;
+    }
+
+    private final boolean m_requireTones;
+
+    /**
+     * Creates a new detector that only reports spans containing a tone mark or tone number.
+     */
+    public PinyinSpanDetector() {
+        this(true);
+    }
+
+    /**
+     * Creates a new detector.
+     *
+     * @param requireTones Indicates, whether spans have to contain a tone mark or tone number.
+     *  Without this requirement, many English words like "a", "he" or "men" are reported, and
+     *  every character has to be classified.
+     */
+    public PinyinSpanDetector(boolean requireTones) {
+        m_requireTones = requireTones;
+    }
+
+    /**
+     * Finds the candidate spans of the given text without parsing them.
+     *
+     * @param text The {@link CharSequence} to search.
+     * @return An array containing the start and end offset of every span, ordered by their
+     *  position in the text.
+     */
+    public int[] findSpans(CharSequence text) {
+        return findSpans(text, 0, text.length());
+    }
+
+    /**
+     * Finds the candidate spans in a range of the given text without parsing them.
+     *
+     * @param text The {@link CharSequence} containing the range to search.
+     * @param start The index of the first character to search.
+     * @param end The index after the last character to search.
+     * @return An array containing the start and end offset of every span, ordered by their
+     *  position in the text.
+     * @throws IndexOutOfBoundsException If the range is not within the given sequence.
+     */
+    public int[] findSpans(CharSequence text, int start, int end) {
+        Objects.checkFromToIndex(start, end, text.length());
+        final Spans spans = new Spans();
+        int index = start;
+
+        while (index < end) {
+            if (m_requireTones) {
+                final int toneChar = nextToneChar(text, start, index, end);
+                if (toneChar == end) break;
+
+                // back to the start of the run of characters that contains the tone
+                int runStart = toneChar;
+                while (runStart > index && classOf(text.charAt(runStart - 1)) != NONE) runStart--;
+                index = runStart;
+            }
+            else if (classOf(text.charAt(index)) == NONE) {
+                index++;
+                continue;
+            }
+
+            index = scanRun(text, index, end, spans);
+        }
+
+        return Arrays.copyOf(spans.m_offsets, 2 * spans.m_count);
+    }
+
+    /**
+     * Finds the candidate spans of the given text and parses only the words within them. Words
+     * outside of the spans are passed through, even if they are pinyin.
+     *
+     * @param text The {@link CharSequence} to search. It is not copied.
+     * @return The {@link PinyinTokens} of the text, like those of
+     *  {@link PinyinParser#tokenize(CharSequence)}.
+     */
+    public PinyinTokens detect(CharSequence text) {
+        final int[] spans = findSpans(text);
+        return PinyinTokens.tokenize(text, 0, text.length(), spans, spans.length / 2);
+    }
+
+    // finds the next character that carries a tone, skipping digits that do not follow a letter
+    // or "u:", like those of numbers
+    private static int nextToneChar(CharSequence text, int start, int index, int end) {
+        for (; index < end; index++) {
+            final char c = text.charAt(index);
+            if (c >= CLASS.length || (TONE_CHARS[c >>> 6] & 1L << c) == 0) continue;
+            if (CLASS[c] != TONE_NUMBER || index == start) return index;
+            final int previous = classOf(text.charAt(index - 1));
+            if (previous < MARK || previous == COLON) return index;
+        }
+
+        return end;
+    }
+
+    // checks the words of a run of characters other than NONE starting at the given index and
+    // returns the index after the character that ends it
+    private int scanRun(CharSequence text, int index, int end, Spans spans) {
+        int spanStart = -1, spanEnd = -1, wordStart = index, previous = -1;
+        boolean spanTone = false, wordTone = false, valid = true;
+
+        for (; ; index++) {
+            final int charClass = index < end ? classOf(text.charAt(index)) : NONE;
+
+            if (charClass < MARK) {
+                final int letter = charClass & ~TONED;
+                if (previous < 0 ? !FIRST[letter] : !PAIRS[previous * LETTERS + letter])
+                    valid = false;
+                wordTone |= charClass != letter;
+                previous = letter;
+                continue;
+            }
+
+            switch (charClass) {
+                case MARK:
+                    wordTone = true;
+                    continue;
+
+                case TONE_NUMBER:
+                    if (previous < 0 || !LAST[previous]) valid = false;
+                    wordTone = true;
+                    previous = -1;
+                    continue;
+
+                case COLON:
+                    // "u:" for "\u00fc", any other colon ends the word
+                    if (index == wordStart || (text.charAt(index - 1) | 0x20) != 'u' ||
+                        !isWordCharAt(text, index + 1, end)) break;
+                    previous = LETTERS - 1;
+                    continue;
+
+                case APOSTROPHE:
+                    // a syllable separator, unless it is a quotation mark next to the word
+                    if (index == wordStart || !isWordCharAt(text, index + 1, end)) break;
+                    if (previous >= 0 && !LAST[previous]) valid = false;
+                    previous = -1;
+                    continue;
+
+                case INVALID:
+                    valid = false;
+                    continue;
+            }
+
+            // the word ends here
+            if (index > wordStart) {
+                if (valid && (previous < 0 || LAST[previous])) {
+                    if (spanStart < 0) spanStart = wordStart;
+                    spanEnd = index;
+                    spanTone |= wordTone;
+                }
+                else {
+                    if (spanStart >= 0 && (spanTone || !m_requireTones))
+                        spans.add(spanStart, spanEnd);
+                    spanStart = -1;
+                    spanTone = false;
+                }
+            }
+
+            if (charClass != SPACE) break;
+            wordStart = index + 1;
+            previous = -1;
+            wordTone = false;
+            valid = true;
+        }
+
+        if (spanStart >= 0 && (spanTone || !m_requireTones)) spans.add(spanStart, spanEnd);
+        return index + 1;
+    }
+
+    // collects the offsets of spans in a growing array
+    private static final class Spans {
+
+        private int[] m_offsets = new int[16];
+        private int m_count = 0;
+
+        private void add(int start, int end) {
+            if (2 * m_count == m_offsets.length)
+                m_offsets = Arrays.copyOf(m_offsets, m_offsets.length * 2);
+            m_offsets[2 * m_count] = start;
+            m_offsets[2 * m_count + 1] = end;
+            m_count++;
+        }
+    }
+}
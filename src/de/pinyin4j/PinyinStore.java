@@ -0,0 +1,240 @@
+package de.pinyin4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * A read-only store of {@link PinyinString}s backed by a memory-mapped file. Opening a store only
+ * reads its header, so it takes the same time regardless of the number of entries. Entries are
+ * accessed by index as {@link Entry} views on the mapped file, which are decoded lazily and
+ * only cost memory once their pages are touched. Stores are immutable and can be shared between
+ * threads.
+ * <p>
+ * A store file starts with the magic number 0x50595331 ("PYS1") and the number of entries as
+ * 32-bit integers, followed by an index of one 32-bit offset per entry plus one for the end of
+ * the last entry. The rest of the file contains the 16-bit codes of all entries (see
+ * {@link PinyinString#getCode(int)}), one directly after the other, and the index contains the
+ * offset of the first code of each entry. All values are big-endian. Files are limited to 2 GiB.
+ */
+public final class PinyinStore {
+
+    private static final int MAGIC = 0x50595331, HEADER_SIZE = 8;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final int m_size;
+    private final IntBuffer m_offsets;
+    private final ShortBuffer m_codes;
+
+    private PinyinStore(int size, IntBuffer offsets, ShortBuffer codes) {
+        m_size = size;
+        m_offsets = offsets;
+        m_codes = codes;
+    }
+
+    /**
+     * Writes the given pinyin strings to a new store file, replacing any existing file.
+     *
+     * @param file The {@link Path} of the file to write.
+     * @param pinyins A {@link Collection} of the {@link PinyinString}s to store, in index order.
+     * @throws IOException If the file could not be written or would be larger than 2 GiB.
+     */
+    public static void write(Path file, Collection<PinyinString> pinyins) throws IOException {
+        long size = HEADER_SIZE + 4L * (pinyins.size() + 1);
+
+        for (PinyinString pinyin : pinyins) {
+            size += 2L * pinyin.length();
+        }
+
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("The store \"" + file + "\" would be too large to be mapped.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(pinyins.size());
+            int offset = 0;
+
+            for (PinyinString pinyin : pinyins) {
+                if (buffer.remaining() < 4) flush(channel, buffer);
+                buffer.putInt(offset);
+                offset += pinyin.length();
+            }
+
+            if (buffer.remaining() < 4) flush(channel, buffer);
+            buffer.putInt(offset);
+
+            for (PinyinString pinyin : pinyins) {
+                for (short code : pinyin.getCodes()) {
+                    if (buffer.remaining() < 2) flush(channel, buffer);
+                    buffer.putShort(code);
+                }
+            }
+
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Opens the store in the given file by mapping it into memory. Only the header is checked, so
+     * corrupted entries are only detected once they are accessed.
+     *
+     * @param file The {@link Path} of the store file, which was written by
+     *  {@link PinyinStore#write(Path, Collection)}.
+     * @return The opened {@link PinyinStore}.
+     * @throws IOException If the file could not be read, is not a valid store or is larger than
+     *  2 GiB.
+     */
+    public static PinyinStore open(Path file) throws IOException {
+        final ByteBuffer bytes;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("The store \"" + file + "\" is too large to be mapped.");
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (bytes.limit() < HEADER_SIZE || bytes.getInt(0) != MAGIC)
+            throw new IOException("The file \"" + file + "\" is not a pinyin store.");
+
+        final int size = bytes.getInt(4);
+        final long codesStart = HEADER_SIZE + 4L * size + 4;
+
+        if (size < 0 || codesStart > bytes.limit() || (bytes.limit() - codesStart) % 2 != 0 ||
+                bytes.getInt((int)codesStart - 4) != (bytes.limit() - codesStart) / 2)
+            throw new IOException("The pinyin store \"" + file + "\" is corrupted.");
+
+        bytes.position(HEADER_SIZE).limit((int)codesStart);
+        final IntBuffer offsets = bytes.slice().asIntBuffer();
+        bytes.limit(bytes.capacity()).position((int)codesStart);
+        return new PinyinStore(size, offsets, bytes.slice().asShortBuffer());
+    }
+
+    /**
+     * Gets the number of entries in this store.
+     *
+     * @return The number of stored {@link PinyinString}s.
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Gets a view of the entry at the given index. This does not read the entry itself.
+     *
+     * @param index The index of the entry.
+     * @return An {@link Entry} backed by the mapped file.
+     * @throws IndexOutOfBoundsException If the index is negative or not smaller than
+     *  {@link PinyinStore#size()}.
+     * @throws IllegalStateException If the index of the store is corrupted.
+     */
+    public Entry get(int index) {
+        if (index < 0 || index >= m_size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " +
+                m_size + ".");
+        final int start = m_offsets.get(index), end = m_offsets.get(index + 1);
+        if (start < 0 || end < start || end > m_codes.limit())
+            throw new IllegalStateException("The index entry " + index + " is corrupted.");
+        return new Entry(start, end - start);
+    }
+
+    /**
+     * A view of a single {@link PinyinString} in a {@link PinyinStore}. Its tokens are read from
+     * the mapped file on every access, so a view does not copy the entry.
+     */
+    public final class Entry {
+
+        private final int m_start, m_length;
+
+        private Entry(int start, int length) {
+            m_start = start;
+            m_length = length;
+        }
+
+        /**
+         * Gets the number of tokens in this entry, as in {@link PinyinString#length()}.
+         *
+         * @return The number of tokens.
+         */
+        public int length() {
+            return m_length;
+        }
+
+        /**
+         * Gets the 16-bit representation of the token at the given index, as in
+         * {@link PinyinString#getCode(int)}.
+         *
+         * @param index The index of the token.
+         * @return The result of {@link Syllable#toShort()} for syllables or
+         *  {@link PinyinString#SPACE_CODE} for spaces.
+         * @throws IndexOutOfBoundsException If the index is negative or not smaller than
+         *  {@link Entry#length()}.
+         * @throws IllegalStateException If the token is neither a valid syllable nor a space.
+         */
+        public short getCode(int index) {
+            if (index < 0 || index >= m_length)
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " +
+                    "length " + m_length + ".");
+            return checkCode(m_codes.get(m_start + index));
+        }
+
+        /**
+         * Gets the syllable at the given index, as in {@link PinyinString#getSyllable(int)}.
+         *
+         * @param index The index of the token.
+         * @return The {@link Syllable} at the given index or <tt>null</tt>, if the token is a
+         *  space.
+         * @throws IndexOutOfBoundsException If the index is negative or not smaller than
+         *  {@link Entry#length()}.
+         * @throws IllegalStateException If the token is neither a valid syllable nor a space.
+         */
+        public Syllable getSyllable(int index) {
+            final short code = getCode(index);
+            return code == PinyinString.SPACE_CODE ? null : Syllable.fromShort(code);
+        }
+
+        /**
+         * Decodes this entry into a pinyin string, which no longer depends on the mapped file.
+         *
+         * @return A {@link PinyinString} with the tokens of this entry.
+         * @throws IllegalStateException If a token is neither a valid syllable nor a space.
+         */
+        public PinyinString toPinyinString() {
+            final short[] codes = new short[m_length];
+
+            for (int i = 0; i < m_length; i++) {
+                codes[i] = checkCode(m_codes.get(m_start + i));
+            }
+
+            return new PinyinString(codes);
+        }
+
+        @Override
+        public String toString() {
+            return toPinyinString().toString();
+        }
+    }
+
+    private static short checkCode(short code) {
+        if (code != PinyinString.SPACE_CODE && Syllable.toId(code) < 0)
+            throw new IllegalStateException("Invalid syllable code " +
+                Integer.toHexString(code & 0xffff) + " in pinyin store.");
+        return code;
+    }
+}
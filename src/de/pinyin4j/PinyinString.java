@@ -5,91 +5,244 @@ package de.pinyin4j;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
 
 /**
- * A string of pinyin text. Contains {@link Syllable}s and spaces.
+ * A string of pinyin text. Contains {@link Syllable}s and spaces, which are stored compactly as an
+ * array of their 16-bit representations (see {@link Syllable#toShort()}).
  */
 public final class PinyinString {
 
-    private static final byte SPACE = (byte)0x28, TERMINATOR = (byte)0x30;
+    static final byte SPACE = (byte)0x28, TERMINATOR = (byte)0x30;
     public static final boolean SPACE_SENSITIVE = false, CASE_SENSITIVE = false;
 
-    private List<Syllable> m_syllables; // spaces represented by null entries
+    /**
+     * The code that represents a space in {@link PinyinString#getCode(int)}. It can never be the
+     * representation of a syllable, since its tone bits are out of range. Its high byte is the
+     * space marker of the format written by {@link PinyinString#save(DataOutputStream)}.
+     */
+    public static final short SPACE_CODE = (short)(SPACE << 8);
+
+    private static final PinyinCodec STANDARD_CODEC = new PinyinCodec(PinyinCodec.Format.STANDARD);
+
+    private final short[] m_codes; // spaces represented by SPACE_CODE
     private String m_asString = null;
 
-    PinyinString(List<Syllable> syllables) {
-        m_syllables = syllables;
+    PinyinString(short[] codes) {
+        m_codes = codes;
     }
 
-    public void save(DataOutputStream writer) throws IOException {
-        for (Syllable s : m_syllables) {
-            if (s == null) writer.writeByte(SPACE);
-            else writer.writeShort(s.toShort());
-        }
+    /**
+     * Gets the number of tokens in this string. Every syllable and every space is one token.
+     *
+     * @return The number of tokens.
+     */
+    public int length() {
+        return m_codes.length;
+    }
+
+    /**
+     * Gets the 16-bit representation of the token at the given index.
+     *
+     * @param index The index of the token.
+     * @return The result of {@link Syllable#toShort()} for syllables or
+     *  {@link PinyinString#SPACE_CODE} for spaces.
+     * @throws ArrayIndexOutOfBoundsException If the index is not smaller than
+     *  {@link PinyinString#length()}.
+     */
+    public short getCode(int index) {
+        return m_codes[index];
+    }
+
+    // the internal array, which must not be modified
+    short[] getCodes() {
+        return m_codes;
+    }
 
-        writer.writeByte(TERMINATOR);
+    /**
+     * Gets the syllable at the given index.
+     *
+     * @param index The index of the token.
+     * @return The {@link Syllable} at the given index or <tt>null</tt>, if the token is a space.
+     * @throws ArrayIndexOutOfBoundsException If the index is not smaller than
+     *  {@link PinyinString#length()}.
+     */
+    public Syllable getSyllable(int index) {
+        final short code = m_codes[index];
+        return code == SPACE_CODE ? null : Syllable.fromShort(code);
+    }
+
+    public void save(DataOutputStream writer) throws IOException {
+        writer.write(STANDARD_CODEC.encode(this));
     }
 
+    // the bits of a code that are relevant for equality
+    @SuppressWarnings("unused")
+    private static final int COMPARED_MASK =
+        CASE_SENSITIVE ? 0xffff : 0xffff & ~Syllable.CAPITAL_MASK;
+
+    // FNV-1a parameters for fingerprint()
+    private static final long FINGERPRINT_BASIS = 0xcbf29ce484222325L,
+        FINGERPRINT_PRIME = 0x100000001b3L;
+
     @Override
+    @SuppressWarnings("unused")
     public boolean equals(Object other) {
+        if (this == other) return true;
         if (!(other instanceof PinyinString)) return false;
-        final Iterator<Syllable> thisIterator = iterate(m_syllables),
-            otherIterator = iterate(((PinyinString)other).m_syllables);
-
-        while (thisIterator.hasNext() && otherIterator.hasNext()) {
-            final Syllable thisSyl = thisIterator.next(),
-                otherSyl = otherIterator.next();
-            if (thisSyl == null && otherSyl == null) continue;
-            if (thisSyl == null ^ otherSyl == null) return false;
-            if (!thisSyl.equals(otherSyl)) return false;
+        final short[] otherCodes = ((PinyinString)other).m_codes;
+        int thisIndex = 0, otherIndex = 0;
+
+        while (true) {
+            if (!SPACE_SENSITIVE) {
+                while (thisIndex < m_codes.length && m_codes[thisIndex] == SPACE_CODE)
+                    thisIndex++;
+                while (otherIndex < otherCodes.length && otherCodes[otherIndex] == SPACE_CODE)
+                    otherIndex++;
+            }
+
+            if (thisIndex == m_codes.length || otherIndex == otherCodes.length) break;
+            if (((m_codes[thisIndex++] ^ otherCodes[otherIndex++]) & COMPARED_MASK) != 0)
+                return false;
         }
 
-        return !(thisIterator.hasNext() && otherIterator.hasNext());
+        // equal only if both strings are exhausted, otherwise one is a prefix of the other
+        return thisIndex == m_codes.length && otherIndex == otherCodes.length;
     }
 
-    private Iterator<Syllable> iterate(List<Syllable> syllables) {
-        return syllables.stream()
-            .filter(s -> SPACE_SENSITIVE || s != null).iterator();
+    @Override
+    @SuppressWarnings("unused")
+    public int hashCode() {
+        int result = 1;
+
+        for (short code : m_codes) {
+            if (!SPACE_SENSITIVE && code == SPACE_CODE) continue;
+            result = 31 * result + (code & COMPARED_MASK);
+        }
+
+        return result;
     }
 
-    @Override
-    public String toString() {
-        if (m_asString != null) return m_asString;
-        final StringBuilder resultBuilder = new StringBuilder();
+    /**
+     * Computes a 64-bit fingerprint of this string, which is suitable for deduplication and
+     * sharding. Like {@link PinyinString#equals(Object)}, it ignores spaces unless
+     * {@link PinyinString#SPACE_SENSITIVE} is set and capitalization unless
+     * {@link PinyinString#CASE_SENSITIVE} is set, so equal strings have equal fingerprints. The
+     * fingerprint is the 64-bit FNV-1a hash of the big-endian bytes of all compared codes. Unlike
+     * {@link PinyinString#hashCode()}, it is part of the contract of this method and will not
+     * change between versions as long as the 16-bit representation of syllables does not change.
+     *
+     * @return The fingerprint of this string.
+     */
+    @SuppressWarnings("unused")
+    public long fingerprint() {
+        long result = FINGERPRINT_BASIS;
+
+        for (short code : m_codes) {
+            if (!SPACE_SENSITIVE && code == SPACE_CODE) continue;
+            final int compared = code & COMPARED_MASK;
+            result = (result ^ compared >>> 8) * FINGERPRINT_PRIME;
+            result = (result ^ compared & 0xff) * FINGERPRINT_PRIME;
+        }
+
+        return result;
+    }
+
+    /**
+     * Appends the rendered form of this string to the given string builder. This is equivalent to
+     * appending {@link PinyinString#toString()}, but neither creates nor caches the rendered
+     * string.
+     *
+     * @param sb The {@link StringBuilder} to append to.
+     * @return The given {@link StringBuilder}.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        boolean insideWord = false;
+
+        for (short code : m_codes) {
+            if (code == SPACE_CODE) {
+                sb.append(' ');
+                insideWord = false;
+            }
+            else {
+                if (insideWord && !Syllable.hasUnambiguousStart(code)) sb.append('\'');
+                Syllable.appendTo(code, sb);
+                insideWord = true;
+            }
+        }
+
+        return sb;
+    }
+
+    /**
+     * Appends the rendered form of this string to the given appendable, such as a
+     * {@link java.io.Writer}. This is equivalent to appending {@link PinyinString#toString()},
+     * but neither creates nor caches the rendered string.
+     *
+     * @param appendable The {@link Appendable} to append to.
+     * @return The given {@link Appendable}.
+     * @throws IOException If the appendable throws one.
+     */
+    public Appendable appendTo(Appendable appendable) throws IOException {
+        if (appendable instanceof StringBuilder) return appendTo((StringBuilder)appendable);
         boolean insideWord = false;
 
-        for (Syllable syllable : m_syllables) {
-            if (syllable == null) {
-                resultBuilder.append(" ");
+        for (short code : m_codes) {
+            if (code == SPACE_CODE) {
+                appendable.append(' ');
                 insideWord = false;
             }
             else {
-                if (insideWord && !syllable.hasUnambiguousStart())
-                    resultBuilder.append("\'");
-                resultBuilder.append(syllable.toString());
+                if (insideWord && !Syllable.hasUnambiguousStart(code)) appendable.append('\'');
+                Syllable.appendTo(code, appendable);
                 insideWord = true;
             }
         }
 
-        m_asString = resultBuilder.toString();
+        return appendable;
+    }
+
+    @Override
+    public String toString() {
+        if (m_asString != null) return m_asString;
+        int length = 0;
+
+        for (short code : m_codes) {
+            // one extra character for spaces and potential apostrophes
+            length += code == SPACE_CODE ? 1 : Syllable.renderedLength(code) + 1;
+        }
+
+        m_asString = appendTo(new StringBuilder(length)).toString();
         return m_asString;
     }
 
+    /**
+     * Writes this string in the given format, such as {@link PinyinFormat#PRECOMPOSED_TONE_MARKS}
+     * for NFC output. This is equivalent to <tt>format.format(this)</tt>, so the result is not
+     * cached.
+     *
+     * @param format The {@link PinyinFormat} to write this string in.
+     * @return The written string.
+     */
+    public String toString(PinyinFormat format) {
+        return format.format(this);
+    }
+
     public static PinyinString read(DataInputStream reader) throws IOException {
-        final List<Syllable> syllables = new ArrayList<>();
+        short[] codes = new short[16];
+        int length = 0;
 
         for (byte first = reader.readByte(); first != TERMINATOR; first = reader.readByte()) {
-            if (first == SPACE) syllables.add(null);
+            if (length == codes.length) codes = Arrays.copyOf(codes, length * 2);
+            if (first == SPACE) codes[length++] = SPACE_CODE;
             else {
                 // readByte() returns int, so we have to cut out the byte manually
-                short s = (short)(first << 8 | (reader.readByte() & 0xff));
-                syllables.add(Syllable.fromShort(s));
+                final short s = (short)(first << 8 | (reader.readByte() & 0xff));
+                Syllable.fromShort(s); // validates the code
+                codes[length++] = s;
             }
         }
 
-        return new PinyinString(syllables);
+        return new PinyinString(Arrays.copyOf(codes, length));
     }
 }
@@ -0,0 +1,295 @@
+package de.pinyin4j;
+
+import java.util.Arrays;
+
+/**
+ * The result of tokenizing mixed text with {@link PinyinParser#tokenize(CharSequence)}. The text
+ * is split into consecutive tokens that cover it completely: pinyin tokens, which are words that
+ * are correct pinyin, and pass-through tokens, which hold everything in between, such as Hanzi,
+ * punctuation, whitespace and words that are not pinyin.
+ * <p>
+ * A word is a maximal run of Latin letters, digits and combining marks, which may contain
+ * apostrophes between letters and "u:". Every word is parsed like
+ * {@link PinyinParser#parsePinyin(String, boolean)} without whitespace, so Hanzi directly after
+ * pinyin, as in "ni3hao3\u4f60\u597d", ends the word, while English words that happen to be
+ * pinyin, like "men", are pinyin tokens.
+ * <p>
+ * The offsets and syllable codes of all tokens are stored in primitive arrays, so tokenizing
+ * allocates nothing per token. Instances are immutable and refer to the tokenized text, which
+ * must not be changed while they are in use.
+ */
+public final class PinyinTokens {
+
+    // letters, digits and combining marks of the Latin script
+    private static final boolean[] WORD_CHAR = new boolean[0x0370];
+
+    static {
+        for (char c = 0; c < WORD_CHAR.length; c++) {
+            WORD_CHAR[c] = Character.isLetterOrDigit(c) ||
+                Character.getType(c) == Character.NON_SPACING_MARK;
+        }
+    }
+
+    private final CharSequence m_text;
+    private final int m_count;
+
+    // the offsets of each token in the text
+    private final int[] m_starts, m_ends;
+
+    // the syllables of token i are m_codes[m_firstCodes[i]] to m_codes[m_firstCodes[i + 1] - 1],
+    // pass-through tokens have none
+    private final int[] m_firstCodes;
+    private final short[] m_codes;
+
+    private PinyinTokens(CharSequence text, int count, int[] starts, int[] ends,
+            int[] firstCodes, short[] codes) {
+        m_text = text;
+        m_count = count;
+        m_starts = starts;
+        m_ends = ends;
+        m_firstCodes = firstCodes;
+        m_codes = codes;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c < WORD_CHAR.length && WORD_CHAR[c];
+    }
+
+    // the end of the word starting at the given index
+    private static int wordEnd(CharSequence text, int start, int end) {
+        int index = start + 1;
+
+        while (index < end) {
+            final char c = text.charAt(index);
+
+            if (isWordChar(c)) {
+                index++;
+                continue;
+            }
+
+            final boolean joins =
+                c == '\'' || (c == ':' && (text.charAt(index - 1) | 0x20) == 'u');
+            if (!joins || index + 1 == end || !isWordChar(text.charAt(index + 1))) break;
+            index += 2;
+        }
+
+        return index;
+    }
+
+    /**
+     * Tokenizes a range of the given text.
+     *
+     * @param text The {@link CharSequence} to tokenize.
+     * @param start The index of the first character to tokenize.
+     * @param end The index after the last character to tokenize.
+     * @return The {@link PinyinTokens} of the range.
+     */
+    static PinyinTokens tokenize(CharSequence text, int start, int end) {
+        return tokenize(text, start, end, new int[] { start, end }, 1);
+    }
+
+    /**
+     * Tokenizes a range of the given text, but only looks for pinyin words within the given
+     * spans. Everything outside of them is passed through without being parsed.
+     *
+     * @param text The {@link CharSequence} to tokenize.
+     * @param start The index of the first character to tokenize.
+     * @param end The index after the last character to tokenize.
+     * @param spans The start and end offsets of the spans, which are ordered, do not overlap and
+     *  lie within the range.
+     * @param spanCount The number of spans, which is half the number of valid entries in
+     *  <tt>spans</tt>.
+     * @return The {@link PinyinTokens} of the range.
+     */
+    static PinyinTokens tokenize(CharSequence text, int start, int end, int[] spans,
+            int spanCount) {
+        final Builder builder = new Builder(text);
+        final PinyinScanner scanner = new PinyinScanner(text, start, start);
+        int passThroughStart = start;
+
+        for (int span = 0; span < spanCount; span++) {
+            final int spanEnd = spans[2 * span + 1];
+            int index = spans[2 * span];
+
+            while (index < spanEnd) {
+                if (!isWordChar(text.charAt(index))) {
+                    index++;
+                    continue;
+                }
+
+                final int wordStart = index;
+                index = wordEnd(text, index, spanEnd);
+                scanner.reset(wordStart, index);
+                if (scanner.parse(false) != PinyinScanner.OK) continue;
+
+                if (passThroughStart < wordStart)
+                    builder.add(passThroughStart, wordStart, null, 0);
+                builder.add(wordStart, index, scanner.getCodes(), scanner.getLength());
+                passThroughStart = index;
+            }
+        }
+
+        if (passThroughStart < end) builder.add(passThroughStart, end, null, 0);
+        return builder.build();
+    }
+
+    /**
+     * Gets the number of tokens.
+     *
+     * @return The number of pinyin and pass-through tokens.
+     */
+    public int getCount() {
+        return m_count;
+    }
+
+    /**
+     * Indicates whether a token is a pinyin token.
+     *
+     * @param token The index of the token.
+     * @return <tt>true</tt>, if the token is a pinyin word, <tt>false</tt>, if it is passed
+     *  through.
+     */
+    public boolean isPinyin(int token) {
+        return getSyllableCount(token) > 0;
+    }
+
+    /**
+     * Gets the offset of the first character of a token in the tokenized text.
+     *
+     * @param token The index of the token.
+     * @return The start offset, inclusive.
+     */
+    public int getStart(int token) {
+        return m_starts[checkToken(token)];
+    }
+
+    /**
+     * Gets the offset after the last character of a token in the tokenized text.
+     *
+     * @param token The index of the token.
+     * @return The end offset, exclusive.
+     */
+    public int getEnd(int token) {
+        return m_ends[checkToken(token)];
+    }
+
+    /**
+     * Gets the characters of a token as they appear in the tokenized text.
+     *
+     * @param token The index of the token.
+     * @return A {@link CharSequence} with the text of the token.
+     */
+    public CharSequence getText(int token) {
+        return m_text.subSequence(getStart(token), getEnd(token));
+    }
+
+    /**
+     * Gets the number of syllables of a token.
+     *
+     * @param token The index of the token.
+     * @return The number of syllables, which is 0 for pass-through tokens.
+     */
+    public int getSyllableCount(int token) {
+        checkToken(token);
+        return m_firstCodes[token + 1] - m_firstCodes[token];
+    }
+
+    /**
+     * Gets a syllable of a pinyin token as its 16-bit representation (see
+     * {@link Syllable#toShort()}) without creating any objects.
+     *
+     * @param token The index of the token.
+     * @param index The index of the syllable within the token.
+     * @return The 16-bit representation of the syllable.
+     */
+    public short getCode(int token, int index) {
+        if (index < 0 || index >= getSyllableCount(token))
+            throw new IndexOutOfBoundsException("Syllable index out of range: " + index);
+        return m_codes[m_firstCodes[token] + index];
+    }
+
+    /**
+     * Gets the syllables of a pinyin token as a pinyin string.
+     *
+     * @param token The index of the token.
+     * @return The {@link PinyinString} of the token or <tt>null</tt>, if it is a pass-through
+     *  token.
+     */
+    public PinyinString getPinyin(int token) {
+        if (!isPinyin(token)) return null;
+        return new PinyinString(
+            Arrays.copyOfRange(m_codes, m_firstCodes[token], m_firstCodes[token + 1]));
+    }
+
+    /**
+     * Appends the tokenized text to the given string builder, with all pinyin tokens written in
+     * the given format and all pass-through tokens copied unchanged.
+     *
+     * @param format The {@link PinyinFormat} of the pinyin tokens.
+     * @param sb The {@link StringBuilder} to append to.
+     * @return The given {@link StringBuilder}.
+     */
+    public StringBuilder appendTo(PinyinFormat format, StringBuilder sb) {
+        for (int token = 0; token < m_count; token++) {
+            if (m_firstCodes[token] < m_firstCodes[token + 1])
+                format.appendTo(m_codes, m_firstCodes[token], m_firstCodes[token + 1], sb);
+            else sb.append(m_text, m_starts[token], m_ends[token]);
+        }
+
+        return sb;
+    }
+
+    /**
+     * Writes the tokenized text with all pinyin tokens in the given format, for example to
+     * normalize pinyin with tone numbers in a document to tone marks.
+     *
+     * @param format The {@link PinyinFormat} of the pinyin tokens.
+     * @return The written text.
+     */
+    public String format(PinyinFormat format) {
+        final int length = m_count == 0 ? 0 : m_ends[m_count - 1] - m_starts[0];
+        return appendTo(format, new StringBuilder(length + length / 4)).toString();
+    }
+
+    private int checkToken(int token) {
+        if (token < 0 || token >= m_count)
+            throw new IndexOutOfBoundsException("Token index out of range: " + token);
+        return token;
+    }
+
+    // collects tokens in growing arrays
+    private static final class Builder {
+
+        private final CharSequence m_text;
+        private int m_count = 0, m_codeCount = 0;
+        private int[] m_starts = new int[16], m_ends = new int[16], m_firstCodes = new int[17];
+        private short[] m_codes = new short[16];
+
+        private Builder(CharSequence text) {
+            m_text = text;
+        }
+
+        private void add(int start, int end, short[] codes, int length) {
+            if (m_count == m_starts.length) {
+                m_starts = Arrays.copyOf(m_starts, m_count * 2);
+                m_ends = Arrays.copyOf(m_ends, m_count * 2);
+                m_firstCodes = Arrays.copyOf(m_firstCodes, m_count * 2 + 1);
+            }
+
+            if (m_codeCount + length > m_codes.length) {
+                m_codes = Arrays.copyOf(m_codes,
+                    Math.max(m_codes.length * 2, m_codeCount + length));
+            }
+
+            if (length > 0) System.arraycopy(codes, 0, m_codes, m_codeCount, length);
+            m_codeCount += length;
+            m_starts[m_count] = start;
+            m_ends[m_count] = end;
+            m_firstCodes[++m_count] = m_codeCount;
+        }
+
+        private PinyinTokens build() {
+            return new PinyinTokens(m_text, m_count, m_starts, m_ends, m_firstCodes, m_codes);
+        }
+    }
+}
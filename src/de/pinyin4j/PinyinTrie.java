@@ -0,0 +1,461 @@
+package de.pinyin4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable trie over the syllables of {@link PinyinString}s, which maps every key to one or
+ * more integer values, such as the indices of dictionary entries. Spaces and capitalization of
+ * keys are ignored. Besides exact lookups, it finds all values whose keys start with a given
+ * prefix, optionally ignoring tones. Tries are immutable and can be shared between threads.
+ * <p>
+ * All nodes are numbered in depth-first order and stored in primitive arrays, so the values of a
+ * subtree are a contiguous range and prefix queries only have to find the node of the prefix.
+ * Tries are created by a {@link Builder} from keys in {@link PinyinTrie#keyOrder()} or by
+ * {@link PinyinTrie#build(List)}, and can be saved and read in bulk.
+ */
+public final class PinyinTrie {
+
+    private static final int MAGIC = 0x50595452; // "PYTR"
+    private static final int[] NO_VALUES = new int[0];
+
+    private static final int TONE_BITS = 3, TONE_LABELS = 1 << TONE_BITS;
+
+    private final int[] m_firstEdge, m_subtreeEnd, m_firstValue, m_values, m_edgeTargets;
+    private final char[] m_edgeLabels;
+
+    private PinyinTrie(int[] firstEdge, char[] edgeLabels, int[] edgeTargets, int[] subtreeEnd,
+            int[] firstValue, int[] values) {
+        m_firstEdge = firstEdge;
+        m_edgeLabels = edgeLabels;
+        m_edgeTargets = edgeTargets;
+        m_subtreeEnd = subtreeEnd;
+        m_firstValue = firstValue;
+        m_values = values;
+    }
+
+    // the label of a syllable: the code without capitalization and with the tone in the lowest
+    // bits, so the edges to all tones of a syllable are adjacent
+    private static char label(short code) {
+        final int tone = (code & Syllable.TONE_MASK) >> Syllable.TONE_SHIFT;
+        final int base = code & (Syllable.INITIAL_MASK | Syllable.FINAL_MASK) |
+            (code & Syllable.R_FINAL_MASK) >> 3;
+        return (char)(base << TONE_BITS | tone);
+    }
+
+    // the inverse of label(short), without capitalization
+    static short codeOfLabel(char label) {
+        final int base = label >> TONE_BITS;
+        return (short)(base & (Syllable.INITIAL_MASK | Syllable.FINAL_MASK) |
+            (base << 3 & Syllable.R_FINAL_MASK) | (label & TONE_LABELS - 1) << Syllable.TONE_SHIFT);
+    }
+
+    private static int compareKeys(short[] a, short[] b) {
+        int indexA = 0, indexB = 0;
+
+        while (true) {
+            while (indexA < a.length && a[indexA] == PinyinString.SPACE_CODE) indexA++;
+            while (indexB < b.length && b[indexB] == PinyinString.SPACE_CODE) indexB++;
+            if (indexA == a.length || indexB == b.length)
+                return Boolean.compare(indexA < a.length, indexB < b.length);
+            final int result = Character.compare(label(a[indexA++]), label(b[indexB++]));
+            if (result != 0) return result;
+        }
+    }
+
+    /**
+     * Gets the order in which keys have to be added to a {@link Builder}. Keys that differ only
+     * in spaces and capitalization are equal in this order.
+     *
+     * @return A {@link Comparator} for keys.
+     */
+    public static Comparator<PinyinString> keyOrder() {
+        return (a, b) -> compareKeys(a.getCodes(), b.getCodes());
+    }
+
+    /**
+     * Builds a trie that maps every given key to its index in the list.
+     *
+     * @param keys A {@link List} of {@link PinyinString} keys in any order.
+     * @return A {@link PinyinTrie} that maps every key to the indices of all its occurrences.
+     */
+    public static PinyinTrie build(List<PinyinString> keys) {
+        final Integer[] order = new Integer[keys.size()];
+
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        // stable, so the values of equal keys are in ascending order
+        Arrays.sort(order, (a, b) -> compareKeys(keys.get(a).getCodes(), keys.get(b).getCodes()));
+        final Builder builder = new Builder();
+
+        for (Integer index : order) {
+            builder.add(keys.get(index), index);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Gets the number of nodes in this trie, including the root.
+     *
+     * @return The number of nodes.
+     */
+    public int getNodeCount() {
+        return m_subtreeEnd.length;
+    }
+
+    /**
+     * Gets the number of values in this trie.
+     *
+     * @return The number of values.
+     */
+    public int getValueCount() {
+        return m_values.length;
+    }
+
+    // the first edge of the given node, its edges end at the first edge of the next node
+    int getFirstEdge(int node) {
+        return m_firstEdge[node];
+    }
+
+    char getEdgeLabel(int edge) {
+        return m_edgeLabels[edge];
+    }
+
+    int getEdgeTarget(int edge) {
+        return m_edgeTargets[edge];
+    }
+
+    // the values of the given node are those from its first value to the first of the next node
+    int getFirstValue(int node) {
+        return m_firstValue[node];
+    }
+
+    int getValue(int index) {
+        return m_values[index];
+    }
+
+    // finds the edge from the given node to the child with the given label or returns -1
+    private int edge(int node, char label) {
+        final int edge = Arrays.binarySearch(m_edgeLabels, m_firstEdge[node],
+            m_firstEdge[node + 1], label);
+        return edge < 0 ? -1 : edge;
+    }
+
+    // finds the edge from the given node for the given syllable, ignoring its capitalization
+    int edge(int node, short code) {
+        return edge(node, label(code));
+    }
+
+    // finds the child of the given node with the given label or returns -1
+    private int child(int node, char label) {
+        final int edge = edge(node, label);
+        return edge < 0 ? -1 : m_edgeTargets[edge];
+    }
+
+    // finds the node of the given key or returns -1
+    private int find(short[] codes) {
+        int node = 0;
+
+        for (int i = 0; i < codes.length && node >= 0; i++) {
+            if (codes[i] != PinyinString.SPACE_CODE) node = child(node, label(codes[i]));
+        }
+
+        return node;
+    }
+
+    /**
+     * Gets the values of the given key.
+     *
+     * @param key The {@link PinyinString} to look up.
+     * @return The values of the key in the order they were added, or an empty array if the key is
+     *  not contained.
+     */
+    public int[] get(PinyinString key) {
+        final int node = find(key.getCodes());
+        if (node < 0) return NO_VALUES;
+        return Arrays.copyOfRange(m_values, m_firstValue[node], m_firstValue[node + 1]);
+    }
+
+    /**
+     * Gets the values of all keys that start with the given prefix, including the prefix itself.
+     *
+     * @param prefix The {@link PinyinString} the keys have to start with.
+     * @return The values in key order, or an empty array if there is no such key.
+     */
+    public int[] getByPrefix(PinyinString prefix) {
+        final int node = find(prefix.getCodes());
+        if (node < 0) return NO_VALUES;
+        return Arrays.copyOfRange(m_values, m_firstValue[node],
+            m_firstValue[m_subtreeEnd[node]]);
+    }
+
+    /**
+     * Gets the values of the given key, optionally ignoring the tones of all syllables.
+     *
+     * @param key The {@link PinyinString} to look up.
+     * @param toneSensitive Indicates, whether tones have to match. If not, "ma" finds "ma1" and
+     *  "ma3" as well.
+     * @return The values of all matching keys in key order.
+     */
+    public int[] get(PinyinString key, boolean toneSensitive) {
+        return toneSensitive ? get(key) : collect(key.getCodes(), false);
+    }
+
+    /**
+     * Gets the values of all keys that start with the given prefix, optionally ignoring the tones
+     * of all syllables.
+     *
+     * @param prefix The {@link PinyinString} the keys have to start with.
+     * @param toneSensitive Indicates, whether tones have to match.
+     * @return The values of all matching keys in key order.
+     */
+    public int[] getByPrefix(PinyinString prefix, boolean toneSensitive) {
+        return toneSensitive ? getByPrefix(prefix) : collect(prefix.getCodes(), true);
+    }
+
+    private int[] collect(short[] codes, boolean prefix) {
+        int length = 0;
+
+        for (short code : codes) {
+            if (code != PinyinString.SPACE_CODE) length++;
+        }
+
+        final char[] bases = new char[length];
+        length = 0;
+
+        for (short code : codes) {
+            if (code != PinyinString.SPACE_CODE)
+                bases[length++] = (char)(label(code) & ~(TONE_LABELS - 1));
+        }
+
+        final Values result = new Values();
+        collect(0, bases, 0, prefix, result);
+        return Arrays.copyOf(result.m_values, result.m_size);
+    }
+
+    private void collect(int node, char[] bases, int depth, boolean prefix, Values result) {
+        if (depth == bases.length) {
+            final int end = prefix ? m_firstValue[m_subtreeEnd[node]] : m_firstValue[node + 1];
+            result.add(m_values, m_firstValue[node], end);
+            return;
+        }
+
+        // the edges of all tones of the syllable are adjacent
+        final int from = m_firstEdge[node], to = m_firstEdge[node + 1];
+        int edge = Arrays.binarySearch(m_edgeLabels, from, to, bases[depth]);
+        if (edge < 0) edge = -edge - 1;
+
+        for (; edge < to && m_edgeLabels[edge] < bases[depth] + TONE_LABELS; edge++) {
+            collect(m_edgeTargets[edge], bases, depth + 1, prefix, result);
+        }
+    }
+
+    // a growable array of values
+    private static final class Values {
+
+        private int[] m_values = new int[16];
+        private int m_size = 0;
+
+        private void add(int[] values, int from, int to) {
+            if (m_size + to - from > m_values.length)
+                m_values = Arrays.copyOf(m_values, Math.max(m_values.length * 2,
+                    m_size + to - from));
+            System.arraycopy(values, from, m_values, m_size, to - from);
+            m_size += to - from;
+        }
+    }
+
+    /**
+     * Saves this trie to the given stream, so it can be restored by
+     * {@link PinyinTrie#read(DataInputStream)}. All arrays are written in a single bulk operation.
+     *
+     * @param writer The {@link DataOutputStream} to write to.
+     * @throws IOException If the stream throws one.
+     */
+    public void save(DataOutputStream writer) throws IOException {
+        final int nodes = m_subtreeEnd.length, edges = m_edgeLabels.length;
+        final ByteBuffer buffer = ByteBuffer.allocate(12 +
+            4 * (nodes + 1 + edges + nodes + nodes + 1 + m_values.length) + 2 * edges);
+        buffer.putInt(MAGIC).putInt(nodes).putInt(m_values.length);
+        buffer.asIntBuffer().put(m_firstEdge).put(m_edgeTargets).put(m_subtreeEnd)
+            .put(m_firstValue).put(m_values);
+        buffer.position(buffer.limit() - 2 * edges);
+        buffer.asCharBuffer().put(m_edgeLabels);
+        writer.write(buffer.array());
+    }
+
+    /**
+     * Reads a trie that was saved using {@link PinyinTrie#save(DataOutputStream)}.
+     *
+     * @param reader The {@link DataInputStream} to read from.
+     * @return The restored {@link PinyinTrie}.
+     * @throws IOException If the stream throws one or does not contain a trie.
+     */
+    public static PinyinTrie read(DataInputStream reader) throws IOException {
+        if (reader.readInt() != MAGIC) throw new IOException("The stream contains no trie.");
+        final int nodes = reader.readInt(), values = reader.readInt();
+        if (nodes < 1 || values < 0) throw new IOException("The trie is corrupted.");
+        final int edges = nodes - 1;
+        final byte[] bytes = new byte[
+            Math.toIntExact(4L * (nodes + 1 + edges + nodes + nodes + 1 + values) + 2L * edges)];
+        reader.readFully(bytes);
+
+        final int[] firstEdge = new int[nodes + 1], edgeTargets = new int[edges],
+            subtreeEnd = new int[nodes], firstValue = new int[nodes + 1],
+            valueArray = new int[values];
+        final char[] edgeLabels = new char[edges];
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.asIntBuffer().get(firstEdge).get(edgeTargets).get(subtreeEnd).get(firstValue)
+            .get(valueArray);
+        buffer.position(bytes.length - 2 * edges);
+        buffer.asCharBuffer().get(edgeLabels);
+        return new PinyinTrie(firstEdge, edgeLabels, edgeTargets, subtreeEnd, firstValue,
+            valueArray);
+    }
+
+    /**
+     * Builds a {@link PinyinTrie} from keys that are added in {@link PinyinTrie#keyOrder()}, such
+     * as a sorted stream. Only the path of the last key is kept besides the trie itself, so the
+     * keys do not have to be held in memory. Builders are not thread-safe.
+     */
+    public static final class Builder {
+
+        private char[] m_labels = new char[64];
+        private int[] m_parents = new int[64], m_subtreeEnd = new int[64],
+            m_firstValue = new int[64], m_values = new int[64];
+        private int m_nodeCount = 1, m_valueCount = 0;
+
+        // the nodes and labels on the path of the last key, starting with the root
+        private int[] m_path = new int[16];
+        private char[] m_pathLabels = new char[16];
+        private int m_depth = 0;
+
+        private short[] m_lastKey = new short[0];
+        private boolean m_built = false;
+
+        /**
+         * Creates a new builder of an empty trie.
+         */
+        public Builder() {
+            m_path[0] = 0;
+        }
+
+        /**
+         * Adds a key with a value. Keys must be added in {@link PinyinTrie#keyOrder()}, and equal
+         * keys may be added several times with different values.
+         *
+         * @param key The {@link PinyinString} key.
+         * @param value The value of the key.
+         * @return This builder.
+         * @throws IllegalArgumentException If the key is smaller than the previously added one.
+         * @throws IllegalStateException If the trie has already been built.
+         */
+        public Builder add(PinyinString key, int value) {
+            if (m_built) throw new IllegalStateException("The trie has already been built.");
+            final short[] codes = key.getCodes();
+            if (compareKeys(codes, m_lastKey) < 0)
+                throw new IllegalArgumentException("The key \"" + key + "\" is not in key order.");
+            m_lastKey = codes;
+
+            int depth = 0;
+
+            for (short code : codes) {
+                if (code == PinyinString.SPACE_CODE) continue;
+                final char label = label(code);
+
+                if (depth < m_depth && m_pathLabels[depth + 1] == label) {
+                    depth++;
+                    continue;
+                }
+
+                closePath(depth);
+                addNode(label);
+                depth++;
+            }
+
+            closePath(depth);
+            if (m_valueCount == m_values.length)
+                m_values = Arrays.copyOf(m_values, m_valueCount * 2);
+            m_values[m_valueCount++] = value;
+            return this;
+        }
+
+        // closes all nodes on the path below the given depth
+        private void closePath(int depth) {
+            for (; m_depth > depth; m_depth--) {
+                m_subtreeEnd[m_path[m_depth]] = m_nodeCount;
+            }
+        }
+
+        private void addNode(char label) {
+            if (m_nodeCount == m_labels.length) {
+                final int capacity = m_nodeCount * 2;
+                m_labels = Arrays.copyOf(m_labels, capacity);
+                m_parents = Arrays.copyOf(m_parents, capacity);
+                m_subtreeEnd = Arrays.copyOf(m_subtreeEnd, capacity);
+                m_firstValue = Arrays.copyOf(m_firstValue, capacity);
+            }
+
+            if (m_depth + 1 == m_path.length) {
+                m_path = Arrays.copyOf(m_path, m_path.length * 2);
+                m_pathLabels = Arrays.copyOf(m_pathLabels, m_path.length);
+            }
+
+            final int node = m_nodeCount++;
+            m_labels[node] = label;
+            m_parents[node] = m_path[m_depth];
+            m_firstValue[node] = m_valueCount;
+            m_depth++;
+            m_path[m_depth] = node;
+            m_pathLabels[m_depth] = label;
+        }
+
+        /**
+         * Builds the trie containing all added keys. The builder cannot be used afterwards.
+         *
+         * @return The built {@link PinyinTrie}.
+         * @throws IllegalStateException If the trie has already been built.
+         */
+        public PinyinTrie build() {
+            if (m_built) throw new IllegalStateException("The trie has already been built.");
+            m_built = true;
+            closePath(0);
+            m_subtreeEnd[0] = m_nodeCount;
+
+            // children are added in label order, so counting them is enough to group the edges
+            final int[] firstEdge = new int[m_nodeCount + 1];
+
+            for (int node = 1; node < m_nodeCount; node++) {
+                firstEdge[m_parents[node] + 1]++;
+            }
+
+            for (int node = 0; node < m_nodeCount; node++) {
+                firstEdge[node + 1] += firstEdge[node];
+            }
+
+            final int[] nextEdge = Arrays.copyOf(firstEdge, m_nodeCount);
+            final char[] edgeLabels = new char[m_nodeCount - 1];
+            final int[] edgeTargets = new int[m_nodeCount - 1];
+
+            for (int node = 1; node < m_nodeCount; node++) {
+                final int edge = nextEdge[m_parents[node]]++;
+                edgeLabels[edge] = m_labels[node];
+                edgeTargets[edge] = node;
+            }
+
+            final int[] firstValue = Arrays.copyOf(m_firstValue, m_nodeCount + 1);
+            firstValue[m_nodeCount] = m_valueCount;
+            return new PinyinTrie(firstEdge, edgeLabels, edgeTargets,
+                Arrays.copyOf(m_subtreeEnd, m_nodeCount), firstValue,
+                Arrays.copyOf(m_values, m_valueCount));
+        }
+    }
+}
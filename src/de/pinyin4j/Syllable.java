@@ -1,8 +1,7 @@
 package de.pinyin4j;
 
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
 
 /**
  * A single syllable that can be represented using Pinyin. It also contains information whether it
@@ -10,19 +9,18 @@ import java.util.HashSet;
  */
 public class Syllable {
 
-    private static final short INITIAL_MASK = 0x001f;
-    private static final short FINAL_SHIFT = 5, FINAL_MASK = 0x07e0;
-    private static final short TONE_SHIFT = 11, TONE_MASK = 0x3800;
-    private static final short R_FINAL_MASK = 0x4000;
-    private static final short CAPITAL_MASK = (short)0x8000;
+    static final short INITIAL_MASK = 0x001f;
+    static final short FINAL_SHIFT = 5, FINAL_MASK = 0x07e0;
+    static final short TONE_SHIFT = 11, TONE_MASK = 0x3800;
+    static final short R_FINAL_MASK = 0x4000;
+    static final short CAPITAL_MASK = (short)0x8000;
 
-    private static final HashMap<Initial, HashSet<Final>> LEGAL_COMBINATIONS = new HashMap<>(47);
+    private static final char[] VOWELS = new char[] { 'a', 'o', 'e', 'i', 'u', '\u00fc' };
 
-    static {
-        for (Initial initial : Initial.values()) {
-            LEGAL_COMBINATIONS.put(initial, new HashSet<Final>(73));
-        }
+    // for every initial index, a bit mask of the indices of all finals it can be combined with
+    private static final long[] LEGAL_COMBINATIONS = new long[Initial.values().length];
 
+    static {
         fillLegalCombinations();
     }
 
@@ -79,12 +77,14 @@ public class Syllable {
     }
 
     private static void add(Initial i, Final f) {
-        LEGAL_COMBINATIONS.get(i).add(f);
+        LEGAL_COMBINATIONS[i.getIndex()] |= 1L << f.getIndex();
     }
 
     private static void addCross(Initial[] is, Final... fs) {
         for (Initial i : is) {
-            LEGAL_COMBINATIONS.get(i).addAll(Arrays.asList(fs));
+            for (Final f : fs) {
+                add(i, f);
+            }
         }
     }
 
@@ -92,14 +92,14 @@ public class Syllable {
         return is;
     }
 
-    private static boolean valid(Initial initial, Final final_) {
-        return LEGAL_COMBINATIONS.get(initial).contains(final_);
+    static boolean valid(Initial initial, Final final_) {
+        return (LEGAL_COMBINATIONS[initial.getIndex()] & 1L << final_.getIndex()) != 0;
     }
 
-    private Initial m_initial;
-    private Final m_final;
-    private Tone m_tone;
-    private boolean m_rFinal, m_capitalized;
+    private final Initial m_initial;
+    private final Final m_final;
+    private final Tone m_tone;
+    private final boolean m_rFinal, m_capitalized;
 
     /**
      * Creates a new syllable from initial, final, tone, as well as two flags.
@@ -112,7 +112,10 @@ public class Syllable {
      *  mean that {@link Syllable#getFinal()} is replaced by "r", but that an "r" is added after the
      *  normal final (e.g. "wanr"). This flag is also used in the creation of the syllable "er".
      * @param capitalized Indicates whether the first character in this syllable is capitalized.
+     * @deprecated This always creates a new instance. Use
+     *  {@link Syllable#of(Initial, Final, Tone, boolean, boolean)} to obtain the shared one.
      */
+    @Deprecated
     public Syllable(Initial initial, Final final_, Tone tone, boolean rFinal, boolean capitalized) {
         if (!valid(initial, final_))
             throw new IllegalArgumentException("Initial \"" + initial.getSpelling() + "\" cannot " +
@@ -205,30 +208,166 @@ public class Syllable {
         return result;
     }
 
-    private static final Syllable[] BUFFER = new Syllable[65536];
+    // the shared instances of all valid syllables, by 16-bit representation and by id
+    private static final Syllable[] BY_CODE = new Syllable[65536];
+    private static final short[] ID_BY_CODE = new short[65536];
+    private static final Syllable[] BY_ID;
+    private static final short[] CODE_BY_ID;
+    private static final int BASE_COUNT;
+
+    static {
+        int baseCount = 0;
+
+        for (long legalFinals : LEGAL_COMBINATIONS) {
+            baseCount += Long.bitCount(legalFinals);
+        }
+
+        BASE_COUNT = baseCount;
+        BY_ID = new Syllable[baseCount * Tone.values().length * 4];
+        CODE_BY_ID = new short[BY_ID.length];
+        Arrays.fill(ID_BY_CODE, (short)-1);
+        int id = 0;
+
+        // ids are ordered by initial, final, tone, r-final and capitalization
+        for (Initial initial : Initial.values()) {
+            for (Final final_ : Final.values()) {
+                if (!valid(initial, final_)) continue;
+
+                for (Tone tone : Tone.values()) {
+                    for (int flags = 0; flags < 4; flags++) {
+                        final Syllable syllable = new Syllable(initial, final_, tone,
+                            (flags & 2) != 0, (flags & 1) != 0);
+                        final int code = syllable.toShort() & 0xffff;
+                        BY_CODE[code] = syllable;
+                        ID_BY_CODE[code] = (short)id;
+                        CODE_BY_ID[id] = (short)code;
+                        BY_ID[id++] = syllable;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the syllable consisting of the given initial, final, tone and flags. Syllables are
+     * flyweights: all valid syllables are created once when this class is initialized, and this
+     * method returns the shared instance instead of creating a new one.
+     *
+     * @param initial The {@link Initial} (onset) of the syllable.
+     * @param final_ The {@link Final} (nucleus + coda + onset in some cases like "yan") of the
+     *  syllable.
+     * @param tone The {@link Tone} of the syllable.
+     * @param rFinal Indicates whether the syllable has an (additional) "r"-final (see
+     *  {@link Syllable#hasRFinal()}).
+     * @param capitalized Indicates whether the first character in the syllable is capitalized.
+     * @return The shared {@link Syllable} instance.
+     * @throws IllegalArgumentException If the initial cannot be combined with the final.
+     */
+    public static Syllable of(Initial initial, Final final_, Tone tone, boolean rFinal,
+            boolean capitalized) {
+        int code = initial.getIndex() | final_.getIndex() << FINAL_SHIFT |
+            tone.getIndex() << TONE_SHIFT;
+        if (rFinal) code |= R_FINAL_MASK;
+        if (capitalized) code |= CAPITAL_MASK & 0xffff;
+        final Syllable result = BY_CODE[code];
+        if (result != null) return result;
+        throw new IllegalArgumentException("Initial \"" + initial.getSpelling() + "\" cannot " +
+            "be combined with final \"" + final_.toString() + "\".");
+    }
 
     /**
      * Constructs a syllable from a short (16-bit integer). This is the inverse function of
      * {@link Syllable#toShort()}.
      *
      * @param representation The 16-bit representation of the syllable to construct.
-     * @return A new syllable constructed from the 16-bit representation.
+     * @return The shared syllable with the given 16-bit representation.
+     * @throws IllegalArgumentException If the representation contains an initial and a final
+     *  which cannot be combined.
+     * @throws ArrayIndexOutOfBoundsException If the representation contains an invalid index.
      */
     public static Syllable fromShort(short representation) {
-        final int index = (int)representation & 0xffff;
-        if (BUFFER[index] != null) return BUFFER[index];
-
-        final Initial initial = Initial.fromIndex(representation & INITIAL_MASK);
-        final Final final_ = Final.fromIndex((representation & FINAL_MASK) >> FINAL_SHIFT);
-        final Tone tone = Tone.fromIndex((representation & TONE_MASK) >> TONE_SHIFT);
-        final boolean rFinal = (representation & R_FINAL_MASK) != 0;
-        final boolean capitalized = (representation & CAPITAL_MASK) != 0;
-        final Syllable result = new Syllable(initial, final_, tone, rFinal, capitalized);
-        BUFFER[index] = result;
-        return result;
+        final Syllable result = BY_CODE[representation & 0xffff];
+        if (result != null) return result;
+
+        // not a valid syllable, so this fails with the appropriate exception
+        return of(Initial.fromIndex(representation & INITIAL_MASK),
+            Final.fromIndex((representation & FINAL_MASK) >> FINAL_SHIFT),
+            Tone.fromIndex((representation & TONE_MASK) >> TONE_SHIFT),
+            (representation & R_FINAL_MASK) != 0, (representation & CAPITAL_MASK) != 0);
+    }
+
+    /**
+     * Gets the number of distinct syllable ids, that is the number of valid syllables including
+     * all tones, r-finals and capitalizations. Arrays of this size can be indexed by
+     * {@link Syllable#getId()}.
+     *
+     * @return The number of syllable ids.
+     */
+    public static int getIdCount() {
+        return BY_ID.length;
     }
 
-    private int getDiacriticIndex(String spelling) {
+    /**
+     * Gets the number of valid combinations of initial and final, that is the number of distinct
+     * syllables if tones, r-finals and capitalization are ignored.
+     *
+     * @return The number of toneless base syllables.
+     */
+    public static int getBaseCount() {
+        return BASE_COUNT;
+    }
+
+    /**
+     * Gets the syllable with the given dense id. This is the inverse function of
+     * {@link Syllable#getId()}.
+     *
+     * @param id The id of the syllable, which must be smaller than {@link Syllable#getIdCount()}.
+     * @return The shared syllable with the given id.
+     * @throws ArrayIndexOutOfBoundsException If there is no syllable with the given id.
+     */
+    public static Syllable fromId(int id) {
+        return BY_ID[id];
+    }
+
+    /**
+     * Converts the 16-bit representation of a syllable into its dense id without creating any
+     * objects. This is equivalent to <tt>Syllable.fromShort(representation).getId()</tt> for valid
+     * representations.
+     *
+     * @param representation The 16-bit representation of the syllable (see
+     *  {@link Syllable#toShort()}).
+     * @return The id of the syllable or -1, if the representation is not a valid syllable.
+     */
+    public static int toId(short representation) {
+        return ID_BY_CODE[representation & 0xffff];
+    }
+
+    /**
+     * Converts the dense id of a syllable into its 16-bit representation without creating any
+     * objects. This is the inverse function of {@link Syllable#toId(short)}.
+     *
+     * @param id The id of the syllable, which must be smaller than {@link Syllable#getIdCount()}.
+     * @return The 16-bit representation of the syllable with the given id.
+     * @throws ArrayIndexOutOfBoundsException If there is no syllable with the given id.
+     */
+    static short idToShort(int id) {
+        return CODE_BY_ID[id];
+    }
+
+    /**
+     * Gets the dense id of this syllable. Ids are in the range from 0 (inclusive) to
+     * {@link Syllable#getIdCount()} (exclusive) and ordered by initial, final, tone, r-final and
+     * capitalization, in that order of priority. Dividing an id by
+     * <tt>4 * Tone.values().length</tt> yields the index of its toneless base, which is smaller than
+     * {@link Syllable#getBaseCount()}.
+     *
+     * @return The id of this syllable.
+     */
+    public int getId() {
+        return ID_BY_CODE[toShort() & 0xffff];
+    }
+
+    private static int getDiacriticIndex(String spelling) {
         // 1st option: either a or e take it. There is no syllable with a and e or o and e.
         int result = Math.max(spelling.indexOf('a'), spelling.indexOf('e'));
         if (result >= 0) return result;
@@ -238,7 +377,7 @@ public class Syllable {
         if (result >= 0) return result;
 
         // 3rd option: the last vowel in the syllable takes it.
-        for (char v : PinyinParser.VOWELS) {
+        for (char v : VOWELS) {
             final int vIndex = spelling.indexOf(v);
             if (vIndex > result)
                 result = vIndex;
@@ -247,6 +386,137 @@ public class Syllable {
         return result;
     }
 
+    // all rendered syllables, indexed by their code without the capital flag
+    private static final int RENDERED_LENGTH_BITS = 8, RENDERED_LENGTH_MASK = 0xff;
+    private static final int[] RENDERED_INDEX = new int[CAPITAL_MASK & 0xffff];
+    private static final char[] RENDERED_CHARS;
+
+    static {
+        final StringBuilder pool = new StringBuilder(65536);
+
+        for (Initial initial : Initial.values()) {
+            for (Final final_ : Final.values()) {
+                if (!valid(initial, final_)) continue;
+
+                for (Tone tone : Tone.values()) {
+                    for (int rFinal = 0; rFinal < 2; rFinal++) {
+                        final int code = initial.getIndex() | final_.getIndex() << FINAL_SHIFT |
+                            tone.getIndex() << TONE_SHIFT | rFinal * R_FINAL_MASK;
+                        final String rendered = render(initial, final_, tone, rFinal == 1);
+                        RENDERED_INDEX[code] =
+                            pool.length() << RENDERED_LENGTH_BITS | rendered.length();
+                        pool.append(rendered);
+                    }
+                }
+            }
+        }
+
+        RENDERED_CHARS = pool.toString().toCharArray();
+    }
+
+    static String render(Initial initial, Final final_, Tone tone, boolean rFinal) {
+        final StringBuilder sb = new StringBuilder()
+            .append(initial.getSpelling())
+            .append(final_.getSpelling(initial));
+        if (rFinal) sb.append("r");
+        sb.insert(getDiacriticIndex(sb.toString()) + 1, tone.getMark());
+        return sb.toString();
+    }
+
+    /**
+     * Appends the rendered form of the syllable with the given 16-bit representation to the given
+     * string builder, as returned by {@link Syllable#toString()}. This uses precomputed tables, so
+     * no intermediate objects are created.
+     *
+     * @param code The 16-bit representation of the syllable (see {@link Syllable#toShort()}).
+     * @param sb The {@link StringBuilder} to append to.
+     */
+    static void appendTo(short code, StringBuilder sb) {
+        final int entry = RENDERED_INDEX[code & ~CAPITAL_MASK];
+        int offset = entry >>> RENDERED_LENGTH_BITS;
+        final int end = offset + (entry & RENDERED_LENGTH_MASK);
+
+        if ((code & CAPITAL_MASK) != 0)
+            sb.append(Character.toUpperCase(RENDERED_CHARS[offset++]));
+
+        sb.append(RENDERED_CHARS, offset, end - offset);
+    }
+
+    /**
+     * Appends the rendered form of the syllable with the given 16-bit representation to the given
+     * appendable, as returned by {@link Syllable#toString()}.
+     *
+     * @param code The 16-bit representation of the syllable (see {@link Syllable#toShort()}).
+     * @param appendable The {@link Appendable} to append to.
+     * @throws IOException If the appendable throws one.
+     */
+    static void appendTo(short code, Appendable appendable) throws IOException {
+        if (appendable instanceof StringBuilder) {
+            appendTo(code, (StringBuilder)appendable);
+            return;
+        }
+
+        final int entry = RENDERED_INDEX[code & ~CAPITAL_MASK];
+        int offset = entry >>> RENDERED_LENGTH_BITS;
+        final int end = offset + (entry & RENDERED_LENGTH_MASK);
+
+        if ((code & CAPITAL_MASK) != 0)
+            appendable.append(Character.toUpperCase(RENDERED_CHARS[offset++]));
+
+        for (; offset < end; offset++) {
+            appendable.append(RENDERED_CHARS[offset]);
+        }
+    }
+
+    /**
+     * Gets the length of the rendered form of the syllable with the given 16-bit representation.
+     *
+     * @param code The 16-bit representation of the syllable (see {@link Syllable#toShort()}).
+     * @return The length of the {@link String} returned by {@link Syllable#toString()}.
+     */
+    static int renderedLength(short code) {
+        return RENDERED_INDEX[code & ~CAPITAL_MASK] & RENDERED_LENGTH_MASK;
+    }
+
+    /**
+     * Indicates whether the syllable with the given 16-bit representation has an unambiguous
+     * start. This is equivalent to {@link Syllable#hasUnambiguousStart()}.
+     *
+     * @param code The 16-bit representation of the syllable (see {@link Syllable#toShort()}).
+     * @return <tt>true</tt>, if and only if the syllable has an unambiguous start.
+     */
+    static boolean hasUnambiguousStart(short code) {
+        return (code & INITIAL_MASK) != Initial.EMPTY.getIndex() ||
+            Final.fromIndex((code & FINAL_MASK) >> FINAL_SHIFT).hasUnambiguousIsolatedStart();
+    }
+
+    /**
+     * Appends the rendered form of this syllable to the given string builder. This is equivalent
+     * to appending {@link Syllable#toString()}, but uses precomputed tables without creating any
+     * intermediate strings.
+     *
+     * @param sb The {@link StringBuilder} to append to.
+     * @return The given {@link StringBuilder}.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        appendTo(toShort(), sb);
+        return sb;
+    }
+
+    /**
+     * Appends the rendered form of this syllable to the given appendable. This is equivalent to
+     * appending {@link Syllable#toString()}, but uses precomputed tables without creating any
+     * intermediate strings.
+     *
+     * @param appendable The {@link Appendable} to append to, such as a {@link java.io.Writer}.
+     * @return The given {@link Appendable}.
+     * @throws IOException If the appendable throws one.
+     */
+    public Appendable appendTo(Appendable appendable) throws IOException {
+        appendTo(toShort(), appendable);
+        return appendable;
+    }
+
     @Override
     @SuppressWarnings("unused")
     public boolean equals(Object other) {
@@ -259,16 +529,27 @@ public class Syllable {
         return !PinyinString.CASE_SENSITIVE || (m_capitalized == otherSyllable.isCapitalized());
     }
 
+    @Override
+    @SuppressWarnings("unused")
+    public int hashCode() {
+        final int code = toShort() & 0xffff;
+        return PinyinString.CASE_SENSITIVE ? code : code & ~CAPITAL_MASK;
+    }
+
     @Override
     public String toString() {
-        final StringBuilder sb = new StringBuilder()
-            .append(m_initial.getSpelling())
-            .append(m_final.getSpelling(m_initial));
-        if (m_rFinal) sb.append("r");
-        sb.insert(getDiacriticIndex(sb.toString()) + 1, m_tone.getMark());
-        final String result = sb.toString();
-        if (m_capitalized)
-            return Character.toUpperCase(result.charAt(0)) + result.substring(1);
-        return result;
+        return appendTo(new StringBuilder(renderedLength(toShort()))).toString();
+    }
+
+    /**
+     * Writes this syllable in the given format, such as
+     * {@link PinyinFormat#PRECOMPOSED_TONE_MARKS} for NFC output. This is equivalent to
+     * <tt>format.format(this)</tt>.
+     *
+     * @param format The {@link PinyinFormat} to write this syllable in.
+     * @return The written syllable.
+     */
+    public String toString(PinyinFormat format) {
+        return format.format(this);
     }
 }
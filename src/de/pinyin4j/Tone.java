@@ -1,5 +1,7 @@
 package de.pinyin4j;
 
+import java.text.Normalizer;
+
 /**
  * An enumeration of the four chinese tones plus the neutral tone.
  */
@@ -64,6 +66,18 @@ public enum Tone {
         return m_mark;
     }
 
+    /**
+     * Gets the precomposed character for the given vowel with the mark of this tone, as found in
+     * NFC text (e.g. '\u01ce' for 'a' and {@link Tone#LOW}).
+     *
+     * @param vowel The vowel, in lower or upper case.
+     * @return The precomposed character, or 0 if Unicode has none.
+     */
+    char precompose(char vowel) {
+        final String composed = Normalizer.normalize(vowel + m_mark, Normalizer.Form.NFC);
+        return composed.length() == 1 && this != NEUTRAL ? composed.charAt(0) : 0;
+    }
+
     /**
      * Looks up the tone associated with the given index. In particular, finds a tone such that
      * {@link Tone#getIndex()} return <tt>index</tt>.
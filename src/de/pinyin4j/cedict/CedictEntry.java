@@ -0,0 +1,72 @@
+package de.pinyin4j.cedict;
+
+import java.util.List;
+
+import de.pinyin4j.PinyinString;
+
+/**
+ * A single entry of a CC-CEDICT dictionary file, consisting of the traditional and simplified
+ * headwords, the pronunciation, and the definitions.
+ */
+public final class CedictEntry {
+
+    private final int m_lineNumber;
+    private final String m_traditional, m_simplified;
+    private final PinyinString m_pinyin;
+    private final List<String> m_definitions;
+
+    CedictEntry(int lineNumber, String traditional, String simplified, PinyinString pinyin,
+            List<String> definitions) {
+        m_lineNumber = lineNumber;
+        m_traditional = traditional;
+        m_simplified = simplified;
+        m_pinyin = pinyin;
+        m_definitions = definitions;
+    }
+
+    /**
+     * Gets the number of the line in the dictionary file that contains this entry. The first line
+     * has number 1.
+     *
+     * @return The line number of this entry.
+     */
+    public int getLineNumber() {
+        return m_lineNumber;
+    }
+
+    /**
+     * Gets the headword of this entry in traditional characters.
+     *
+     * @return A {@link String} containing the traditional headword.
+     */
+    public String getTraditional() {
+        return m_traditional;
+    }
+
+    /**
+     * Gets the headword of this entry in simplified characters.
+     *
+     * @return A {@link String} containing the simplified headword.
+     */
+    public String getSimplified() {
+        return m_simplified;
+    }
+
+    /**
+     * Gets the parsed pronunciation of this entry.
+     *
+     * @return The {@link PinyinString} representing the pronunciation.
+     */
+    public PinyinString getPinyin() {
+        return m_pinyin;
+    }
+
+    /**
+     * Gets the definitions of this entry in the order they appear in the file.
+     *
+     * @return An unmodifiable {@link List} of the definitions.
+     */
+    public List<String> getDefinitions() {
+        return m_definitions;
+    }
+}
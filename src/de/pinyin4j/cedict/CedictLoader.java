@@ -0,0 +1,316 @@
+package de.pinyin4j.cedict;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import de.pinyin4j.ParseError;
+import de.pinyin4j.ParseResult;
+import de.pinyin4j.PinyinParser;
+
+/**
+ * A loader for dictionary files in the CC-CEDICT format, where every line has the form
+ * "Traditional Simplified [pin1 yin1] /definition 1/definition 2/". Empty lines and comments
+ * starting with "#" are skipped.
+ * <p>
+ * The file is memory-mapped and split into chunks at line boundaries, which are decoded and
+ * parsed in parallel on the {@link ForkJoinPool#commonPool()}. The entries are nevertheless
+ * returned in file order. Loaders are immutable and can be shared between threads.
+ */
+public final class CedictLoader {
+
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private final PinyinParser m_parser = new PinyinParser();
+    private final boolean m_parseWhitespace;
+
+    /**
+     * Creates a new loader that drops the spaces CC-CEDICT puts between all syllables.
+     */
+    public CedictLoader() {
+        this(false);
+    }
+
+    /**
+     * Creates a new loader.
+     *
+     * @param parseWhitespace Indicates, whether the pronunciations of the loaded entries contain
+     *  whitespace. Since CC-CEDICT separates all syllables by spaces, this is usually not desired.
+     */
+    public CedictLoader(boolean parseWhitespace) {
+        m_parseWhitespace = parseWhitespace;
+    }
+
+    /**
+     * Loads all entries from the given UTF-8 encoded CC-CEDICT file. Lines that cannot be loaded
+     * are reported in the result instead of aborting the whole file.
+     *
+     * @param file The {@link Path} of the file to load.
+     * @return A {@link Result} containing the entries and the errors in file order.
+     * @throws IOException If the file could not be read or is larger than 2 GiB.
+     */
+    public Result load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("The file \"" + file + "\" is too large to be mapped.");
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Loads all entries from the given buffer containing a UTF-8 encoded CC-CEDICT file. The
+     * entries between the buffer's position and limit are loaded. The buffer itself is not
+     * modified.
+     *
+     * @param bytes A {@link ByteBuffer} containing the contents of a CC-CEDICT file.
+     * @return A {@link Result} containing the entries and the errors in file order.
+     */
+    public Result load(ByteBuffer bytes) {
+        final int[] bounds = splitChunks(bytes);
+        final int chunkCount = bounds.length - 1;
+        final List<ForkJoinTask<Integer>> lineCounts = new ArrayList<>(chunkCount);
+
+        for (int i = 0; i < chunkCount; i++) {
+            final int start = bounds[i], end = bounds[i + 1];
+            lineCounts.add(ForkJoinTask.adapt(() -> countLines(bytes, start, end)).fork());
+        }
+
+        final List<ForkJoinTask<Chunk>> chunks = new ArrayList<>(chunkCount);
+        int firstLine = 1;
+
+        for (int i = 0; i < chunkCount; i++) {
+            final int start = bounds[i], end = bounds[i + 1], chunkFirstLine = firstLine;
+            chunks.add(ForkJoinTask.adapt(() -> parseChunk(bytes, start, end, chunkFirstLine))
+                .fork());
+            firstLine += lineCounts.get(i).join();
+        }
+
+        final List<CedictEntry> entries = new ArrayList<>();
+        final List<LineError> errors = new ArrayList<>();
+
+        for (ForkJoinTask<Chunk> chunk : chunks) {
+            final Chunk result = chunk.join();
+            entries.addAll(result.m_entries);
+            errors.addAll(result.m_errors);
+        }
+
+        return new Result(entries, errors);
+    }
+
+    // returns chunk boundaries, every chunk but the last one ends directly after a line break
+    private static int[] splitChunks(ByteBuffer bytes) {
+        final int start = bytes.position(), end = bytes.limit();
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE,
+            (end - start) / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        int[] bounds = new int[16];
+        int count = 0;
+        bounds[count++] = start;
+
+        for (int chunkStart = start; chunkStart < end; ) {
+            int chunkEnd = (int)Math.min(end, (long)chunkStart + chunkSize);
+            while (chunkEnd < end && bytes.get(chunkEnd - 1) != '\n') chunkEnd++;
+            if (count == bounds.length) bounds = Arrays.copyOf(bounds, count * 2);
+            bounds[count++] = chunkEnd;
+            chunkStart = chunkEnd;
+        }
+
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static int countLines(ByteBuffer bytes, int start, int end) {
+        int result = 0;
+
+        for (int i = start; i < end; i++) {
+            if (bytes.get(i) == '\n') result++;
+        }
+
+        return result;
+    }
+
+    private Chunk parseChunk(ByteBuffer bytes, int start, int end, int firstLine)
+            throws CharacterCodingException {
+        final ByteBuffer slice = bytes.duplicate();
+        slice.limit(end).position(start);
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CharBuffer chars = decoder.decode(slice);
+        final Chunk result = new Chunk();
+        final boolean byteOrderMark =
+            firstLine == 1 && chars.length() > 0 && chars.charAt(0) == '\ufeff';
+        int lineStart = byteOrderMark ? 1 : 0;
+        int lineNumber = firstLine;
+
+        for (int i = lineStart; i <= chars.length(); i++) {
+            if (i == chars.length() || chars.charAt(i) == '\n') {
+                parseLine(chars, lineStart, i, lineNumber++, result);
+                lineStart = i + 1;
+            }
+        }
+
+        return result;
+    }
+
+    private static int indexOf(CharSequence chars, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (chars.charAt(i) == c) return i;
+        }
+
+        return -1;
+    }
+
+    private void parseLine(CharBuffer chars, int start, int end, int lineNumber, Chunk result) {
+        if (end > start && chars.charAt(end - 1) == '\r') end--;
+        if (start == end || chars.charAt(start) == '#') return;
+
+        final int traditionalEnd = indexOf(chars, ' ', start, end);
+        final int simplifiedEnd =
+            traditionalEnd < 0 ? -1 : indexOf(chars, ' ', traditionalEnd + 1, end);
+
+        if (simplifiedEnd < 0 || simplifiedEnd + 1 >= end ||
+                chars.charAt(simplifiedEnd + 1) != '[') {
+            result.m_errors.add(new LineError(lineNumber, null, "Missing pronunciation."));
+            return;
+        }
+
+        final int pinyinEnd = indexOf(chars, ']', simplifiedEnd + 2, end);
+
+        if (pinyinEnd < 0) {
+            result.m_errors.add(new LineError(lineNumber, null, "Unterminated pronunciation."));
+            return;
+        }
+
+        final ParseResult pinyin =
+            m_parser.tryParsePinyin(chars, simplifiedEnd + 2, pinyinEnd, m_parseWhitespace);
+
+        if (!pinyin.isValid()) {
+            result.m_errors.add(
+                new LineError(lineNumber, pinyin.getError(), pinyin.getErrorMessage()));
+            return;
+        }
+
+        int definitionStart = indexOf(chars, '/', pinyinEnd + 1, end);
+
+        if (definitionStart < 0) {
+            result.m_errors.add(new LineError(lineNumber, null, "Missing definitions."));
+            return;
+        }
+
+        final List<String> definitions = new ArrayList<>(4);
+
+        for (int i = definitionStart + 1; i < end; i++) {
+            if (chars.charAt(i) == '/') {
+                if (i > definitionStart + 1)
+                    definitions.add(chars.subSequence(definitionStart + 1, i).toString());
+                definitionStart = i;
+            }
+        }
+
+        result.m_entries.add(new CedictEntry(lineNumber,
+            chars.subSequence(start, traditionalEnd).toString(),
+            chars.subSequence(traditionalEnd + 1, simplifiedEnd).toString(),
+            pinyin.getPinyin(), Collections.unmodifiableList(definitions)));
+    }
+
+    // the entries and errors of a single chunk
+    private static final class Chunk {
+        private final List<CedictEntry> m_entries = new ArrayList<>();
+        private final List<LineError> m_errors = new ArrayList<>();
+    }
+
+    /**
+     * The result of loading a CC-CEDICT file, consisting of all entries that could be loaded and
+     * all lines that could not be loaded.
+     */
+    public static final class Result {
+
+        private final List<CedictEntry> m_entries;
+        private final List<LineError> m_errors;
+
+        private Result(List<CedictEntry> entries, List<LineError> errors) {
+            m_entries = Collections.unmodifiableList(entries);
+            m_errors = Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * Gets all entries that could be loaded, in file order.
+         *
+         * @return An unmodifiable {@link List} of the loaded {@link CedictEntry}s.
+         */
+        public List<CedictEntry> getEntries() {
+            return m_entries;
+        }
+
+        /**
+         * Gets the errors of all lines that could not be loaded, in file order.
+         *
+         * @return An unmodifiable {@link List} of {@link LineError}s.
+         */
+        public List<LineError> getErrors() {
+            return m_errors;
+        }
+    }
+
+    /**
+     * Describes why a line of a CC-CEDICT file could not be loaded.
+     */
+    public static final class LineError {
+
+        private final int m_lineNumber;
+        private final ParseError m_error;
+        private final String m_message;
+
+        private LineError(int lineNumber, ParseError error, String message) {
+            m_lineNumber = lineNumber;
+            m_error = error;
+            m_message = message;
+        }
+
+        /**
+         * Gets the number of the line that could not be loaded. The first line has number 1.
+         *
+         * @return The line number of the erroneous line.
+         */
+        public int getLineNumber() {
+            return m_lineNumber;
+        }
+
+        /**
+         * Gets the kind of error if the pronunciation could not be parsed.
+         *
+         * @return The {@link ParseError} of the pronunciation or <tt>null</tt>, if the line itself
+         *  is malformed.
+         */
+        public ParseError getError() {
+            return m_error;
+        }
+
+        /**
+         * Gets a human-readable description of the error.
+         *
+         * @return A {@link String} describing the error.
+         */
+        public String getMessage() {
+            return m_message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + m_lineNumber + ": " + m_message;
+        }
+    }
+}
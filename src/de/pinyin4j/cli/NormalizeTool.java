@@ -0,0 +1,480 @@
+package de.pinyin4j.cli;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.pinyin4j.ParseResult;
+import de.pinyin4j.PinyinFormat;
+import de.pinyin4j.PinyinParser;
+
+/**
+ * A command-line tool that converts the pinyin in one column of large TSV or CC-CEDICT files,
+ * for example from tone numbers to tone marks and back. Every other part of a line is copied
+ * byte by byte, and so are columns that are not pinyin or not valid UTF-8, which are counted
+ * and reported with their file and line number.
+ * <p>
+ * The input is read from files or standard input in large blocks of whole lines. The blocks are
+ * converted by a pool of worker threads, which only decode the columns they convert, and written
+ * in their original order by the calling thread, which never has more than a few blocks per
+ * worker in flight. At the end, the number of lines, the throughput and the number of errors are
+ * printed to standard error.
+ */
+public final class NormalizeTool {
+
+    private static final String USAGE = "Usage: NormalizeTool [options] [file...]\n" +
+        "Converts the pinyin in one column of the given files, or of standard input, and writes\n" +
+        "the result to standard output.\n" +
+        "  --to FORMAT    the format to convert to: tone_marks (default), tone_numbers,\n" +
+        "                 precomposed_tone_marks, zhuyin, wade_giles or ipa\n" +
+        "  --column N     convert the N-th tab-separated column (default 1)\n" +
+        "  --cedict       convert the pronunciation in brackets of CC-CEDICT lines\n" +
+        "  --output FILE  write to FILE instead of standard output\n" +
+        "  --threads N    the number of worker threads (default: number of processors)\n";
+
+    // the exit codes
+    private static final int SUCCESS = 0, PARSE_ERRORS = 1, FAILURE = 2;
+
+    private static final int BLOCK_SIZE = 1 << 20, BLOCKS_PER_THREAD = 4, REPORTED_ERRORS = 10;
+    private static final String STDIN = "stdin";
+    private static final byte[] BYTE_ORDER_MARK = { (byte)0xef, (byte)0xbb, (byte)0xbf };
+
+    private final PinyinParser m_parser = new PinyinParser();
+    private PinyinFormat m_format = PinyinFormat.TONE_MARKS;
+    private int m_column = 0;
+    private boolean m_cedict = false;
+    private String m_output = null;
+    private int m_threads = Runtime.getRuntime().availableProcessors();
+    private final List<String> m_inputs = new ArrayList<>();
+
+    private long m_lineCount = 0, m_errorCount = 0;
+
+    private NormalizeTool() { }
+
+    /**
+     * Runs the tool with the given command-line arguments and exits with status 0 if all lines
+     * were converted, 1 if some lines could not be parsed and 2 on invalid arguments or I/O
+     * errors.
+     *
+     * @param args The command-line arguments, see the usage message printed for "--help".
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, new FileInputStream(FileDescriptor.in),
+            new FileOutputStream(FileDescriptor.out), System.err));
+    }
+
+    /**
+     * Runs the tool with the given command-line arguments and streams.
+     *
+     * @param args The command-line arguments.
+     * @param in The {@link InputStream} to read if no input files are given.
+     * @param out The {@link OutputStream} to write to if no output file is given. It is flushed,
+     *  but not closed.
+     * @param err The {@link PrintStream} to print the usage, errors and statistics to.
+     * @return The exit status.
+     */
+    public static int run(String[] args, InputStream in, OutputStream out, PrintStream err) {
+        final NormalizeTool tool = new NormalizeTool();
+
+        try {
+            if (!tool.parseArguments(args)) {
+                err.print(USAGE);
+                return SUCCESS;
+            }
+        }
+        catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return FAILURE;
+        }
+
+        final long start = System.nanoTime();
+
+        try {
+            tool.convert(in, out, err);
+        }
+        catch (IOException | ExecutionException e) {
+            err.println("Error: " + (e instanceof ExecutionException ? e.getCause() : e));
+            return FAILURE;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted.");
+            return FAILURE;
+        }
+
+        final double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        err.printf(Locale.ROOT, "%d lines in %.2f s (%.0f lines/s), %d errors%n",
+            tool.m_lineCount, seconds, tool.m_lineCount / seconds, tool.m_errorCount);
+        return tool.m_errorCount == 0 ? SUCCESS : PARSE_ERRORS;
+    }
+
+    // returns false if the usage should be printed
+    private boolean parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+
+            switch (arg) {
+                case "--help":
+                    return false;
+                case "--cedict":
+                    m_cedict = true;
+                    break;
+                case "--to":
+                    m_format = parseFormat(value(args, ++i));
+                    break;
+                case "--column":
+                    m_column = positive(args, ++i) - 1;
+                    break;
+                case "--output":
+                    m_output = value(args, ++i);
+                    break;
+                case "--threads":
+                    m_threads = positive(args, ++i);
+                    break;
+                default:
+                    if (arg.startsWith("--"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    m_inputs.add(arg);
+            }
+        }
+
+        return true;
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[index - 1] + ".");
+        return args[index];
+    }
+
+    private static int positive(String[] args, int index) {
+        final String value = value(args, index);
+
+        try {
+            final int result = Integer.parseInt(value);
+            if (result > 0) return result;
+        }
+        catch (NumberFormatException e) {
+            // reported below
+        }
+
+        throw new IllegalArgumentException(args[index - 1] + " must be a positive number.");
+    }
+
+    private static PinyinFormat parseFormat(String name) {
+        try {
+            return PinyinFormat.valueOf(name.toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format: " + name);
+        }
+    }
+
+    private void convert(InputStream in, OutputStream out, PrintStream err)
+            throws IOException, ExecutionException, InterruptedException {
+        final ExecutorService workers = Executors.newFixedThreadPool(m_threads);
+        WritableByteChannel output = null;
+
+        try {
+            output = m_output == null ? Channels.newChannel(out) :
+                FileChannel.open(Paths.get(m_output), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            final Pipeline pipeline = new Pipeline(workers, output, err);
+
+            if (m_inputs.isEmpty()) {
+                pipeline.read(Channels.newChannel(in), STDIN);
+            }
+
+            for (String input : m_inputs) {
+                try (FileChannel channel =
+                        FileChannel.open(Paths.get(input), StandardOpenOption.READ)) {
+                    pipeline.read(channel, input);
+                }
+            }
+
+            pipeline.finish();
+        }
+        finally {
+            workers.shutdownNow();
+            if (output instanceof FileChannel) output.close();
+            out.flush();
+        }
+    }
+
+    // ASCII whitespace and control characters, bytes of other characters are negative
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    // reads blocks, hands them to the workers and writes the converted blocks in order
+    private final class Pipeline {
+
+        private final ExecutorService m_workers;
+        private final WritableByteChannel m_output;
+        private final PrintStream m_err;
+        private final ArrayDeque<Future<Block>> m_inFlight = new ArrayDeque<>();
+        private ByteBuffer m_buffer = ByteBuffer.allocate(BLOCK_SIZE);
+
+        // the number of lines of the current input that have been written
+        private long m_inputLineCount = 0;
+
+        private Pipeline(ExecutorService workers, WritableByteChannel output, PrintStream err) {
+            m_workers = workers;
+            m_output = output;
+            m_err = err;
+        }
+
+        private void read(ReadableByteChannel input, String name)
+                throws IOException, ExecutionException, InterruptedException {
+            boolean first = true;
+            m_buffer.clear();
+
+            while (input.read(m_buffer) >= 0) {
+                if (m_buffer.hasRemaining()) continue;
+                int lineEnd = m_buffer.position();
+                while (lineEnd > 0 && m_buffer.get(lineEnd - 1) != '\n') lineEnd--;
+
+                // a line longer than the buffer
+                if (lineEnd == 0) {
+                    final ByteBuffer larger = ByteBuffer.allocate(m_buffer.capacity() * 2);
+                    m_buffer.flip();
+                    m_buffer = larger.put(m_buffer);
+                    continue;
+                }
+
+                submit(lineEnd, name, first);
+                first = false;
+            }
+
+            if (m_buffer.position() > 0) submit(m_buffer.position(), name, first);
+        }
+
+        // submits the first bytes of the buffer and keeps the rest
+        private void submit(int length, String name, boolean firstOfInput)
+                throws IOException, ExecutionException, InterruptedException {
+            final byte[] bytes = new byte[length];
+            m_buffer.flip();
+            m_buffer.get(bytes);
+            m_buffer.compact();
+            final Block block = new Block(bytes, name, firstOfInput);
+
+            if (m_inFlight.size() >= m_threads * BLOCKS_PER_THREAD) write(m_inFlight.poll().get());
+            m_inFlight.add(m_workers.submit(block::convert));
+        }
+
+        private void write(Block block) throws IOException {
+            while (block.m_output.hasRemaining()) {
+                m_output.write(block.m_output);
+            }
+
+            if (block.m_firstOfInput) m_inputLineCount = 0;
+
+            for (int i = 0; i < block.m_errorCount; i++) {
+                if (m_errorCount + i >= REPORTED_ERRORS) break;
+                m_err.println(block.m_inputName + ":" +
+                    (m_inputLineCount + block.m_errorLines[i] + 1) + ": " +
+                    block.m_errorMessages.get(i));
+            }
+
+            m_inputLineCount += block.m_lineCount;
+            m_lineCount += block.m_lineCount;
+            m_errorCount += block.m_errorCount;
+        }
+
+        private void finish() throws IOException, ExecutionException, InterruptedException {
+            while (!m_inFlight.isEmpty()) {
+                write(m_inFlight.poll().get());
+            }
+        }
+    }
+
+    // a block of whole lines of one input, which is converted by a worker thread, with the
+    // lines that could not be converted, relative to its first line
+    private final class Block {
+
+        private final byte[] m_input;
+        private final String m_inputName;
+        private final boolean m_firstOfInput;
+
+        private ByteBuffer m_output;
+        private int m_lineCount = 0, m_errorCount = 0;
+        private final int[] m_errorLines = new int[REPORTED_ERRORS];
+        private final List<String> m_errorMessages = new ArrayList<>();
+
+        private final CharsetDecoder m_decoder = StandardCharsets.UTF_8.newDecoder();
+        private final CharsetEncoder m_encoder = StandardCharsets.UTF_8.newEncoder();
+        private final StringBuilder m_pinyin = new StringBuilder();
+        private CharBuffer m_chars = CharBuffer.allocate(256);
+
+        private Block(byte[] input, String inputName, boolean firstOfInput) {
+            m_input = input;
+            m_inputName = inputName;
+            m_firstOfInput = firstOfInput;
+        }
+
+        private Block convert() {
+            m_output = ByteBuffer.allocate(m_input.length + m_input.length / 4);
+            int lineStart = 0;
+
+            // a byte order mark at the start of a file is kept, but not part of the first line
+            if (m_firstOfInput && startsWithByteOrderMark()) {
+                copy(0, BYTE_ORDER_MARK.length);
+                lineStart = BYTE_ORDER_MARK.length;
+            }
+
+            for (int i = lineStart; i < m_input.length; i++) {
+                if (m_input[i] != '\n' && i + 1 < m_input.length) continue;
+                convertLine(lineStart, m_input[i] == '\n' ? i : i + 1);
+                lineStart = i + 1;
+            }
+
+            m_output.flip();
+            return this;
+        }
+
+        private boolean startsWithByteOrderMark() {
+            if (m_input.length < BYTE_ORDER_MARK.length) return false;
+
+            for (int i = 0; i < BYTE_ORDER_MARK.length; i++) {
+                if (m_input[i] != BYTE_ORDER_MARK[i]) return false;
+            }
+
+            return true;
+        }
+
+        // converts a line and copies its line break, all delimiters are ASCII, so the column is
+        // found without decoding the line
+        private void convertLine(int start, int end) {
+            final int lineNumber = m_lineCount++;
+            final int contentEnd = end > start && m_input[end - 1] == '\r' ? end - 1 : end;
+            final int lineBreakEnd = end < m_input.length ? end + 1 : end;
+            int fieldStart = -1, fieldEnd = -1;
+
+            if (m_cedict) {
+                if (start < contentEnd && m_input[start] != '#') {
+                    fieldStart = indexOf('[', start, contentEnd) + 1;
+                    fieldEnd = fieldStart > 0 ? indexOf(']', fieldStart, contentEnd) : -1;
+                }
+            }
+            else {
+                fieldStart = start;
+
+                for (int column = 0; column < m_column && fieldStart >= 0; column++) {
+                    final int tab = indexOf('\t', fieldStart, contentEnd);
+                    fieldStart = tab < 0 ? -1 : tab + 1;
+                }
+
+                if (fieldStart >= 0) {
+                    fieldEnd = indexOf('\t', fieldStart, contentEnd);
+                    if (fieldEnd < 0) fieldEnd = contentEnd;
+                }
+            }
+
+            // lines without the column are copied
+            if (fieldEnd < 0) {
+                copy(start, lineBreakEnd);
+                return;
+            }
+
+            // the whitespace around the pinyin is kept
+            int pinyinStart = fieldStart, pinyinEnd = fieldEnd;
+            while (pinyinStart < pinyinEnd && isWhitespace(m_input[pinyinStart])) pinyinStart++;
+            while (pinyinEnd > pinyinStart && isWhitespace(m_input[pinyinEnd - 1])) pinyinEnd--;
+            copy(start, pinyinStart);
+
+            if (!decode(pinyinStart, pinyinEnd)) {
+                copy(pinyinStart, pinyinEnd);
+                addError(lineNumber, "Invalid UTF-8.");
+            }
+            else {
+                final ParseResult result =
+                    m_parser.tryParsePinyin(m_chars, 0, m_chars.length(), true);
+
+                if (result.isValid()) {
+                    m_pinyin.setLength(0);
+                    encode(m_format.appendTo(result.getPinyin(), m_pinyin));
+                }
+                else {
+                    copy(pinyinStart, pinyinEnd);
+                    addError(lineNumber, result.getErrorMessage());
+                }
+            }
+
+            copy(pinyinEnd, lineBreakEnd);
+        }
+
+        // decodes a range of the input into m_chars and returns false if it is not UTF-8
+        private boolean decode(int start, int end) {
+            if (m_chars.capacity() < end - start) m_chars = CharBuffer.allocate(end - start);
+            m_chars.clear();
+            m_decoder.reset();
+            final CoderResult result =
+                m_decoder.decode(ByteBuffer.wrap(m_input, start, end - start), m_chars, true);
+            if (result.isError() || m_decoder.flush(m_chars).isError()) return false;
+            m_chars.flip();
+            return true;
+        }
+
+        private void encode(CharSequence chars) {
+            ensureCapacity(chars.length() * 3);
+            m_encoder.reset();
+            m_encoder.encode(CharBuffer.wrap(chars), m_output, true);
+            m_encoder.flush(m_output);
+        }
+
+        private void copy(int start, int end) {
+            ensureCapacity(end - start);
+            m_output.put(m_input, start, end - start);
+        }
+
+        private void ensureCapacity(int length) {
+            if (m_output.remaining() >= length) return;
+            final ByteBuffer larger = ByteBuffer.allocate(
+                Math.max(m_output.capacity() * 2, m_output.position() + length));
+            m_output.flip();
+            m_output = larger.put(m_output);
+        }
+
+        private int indexOf(char c, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (m_input[i] == c) return i;
+            }
+
+            return -1;
+        }
+
+        private void addError(int line, String message) {
+            if (m_errorCount < REPORTED_ERRORS) {
+                m_errorLines[m_errorCount] = line;
+                m_errorMessages.add(message);
+            }
+
+            m_errorCount++;
+        }
+    }
+}
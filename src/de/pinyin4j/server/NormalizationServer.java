@@ -0,0 +1,575 @@
+package de.pinyin4j.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.pinyin4j.ParseResult;
+import de.pinyin4j.PinyinFormat;
+import de.pinyin4j.PinyinParser;
+
+/**
+ * A small embeddable server that normalizes pinyin for other processes over a line protocol on
+ * a TCP socket. Every line a client sends is parsed like
+ * {@link PinyinParser#tryParsePinyin(String)} and answered with one line: the pinyin written in
+ * the {@link PinyinFormat} of the server, or "!" followed by the error message if the line is
+ * not pinyin. The line "#stats" is answered with the current {@link Stats}. Clients may send
+ * many lines before reading the answers, which always come in the order of the requests. All
+ * text is UTF-8 encoded.
+ * <p>
+ * Concurrent requests of all connections are coalesced into micro-batches: a single dispatcher
+ * thread takes every request that is waiting, up to a maximum batch size, and parses them
+ * together with {@link PinyinParser#parseAll(String[])}. While a batch is processed, new
+ * requests queue up for the next one, so batches grow with the load without delaying requests
+ * when the server is idle. Optionally, the dispatcher waits a little for more requests before
+ * processing a batch. If processing a batch fails unexpectedly, its requests are answered with
+ * "!" and the internal error, and the following batches are processed as usual.
+ * <p>
+ * Each connection is served by its own thread of a cached thread pool. Servers are created and
+ * started by a {@link Builder} and stopped by {@link NormalizationServer#close()}.
+ */
+public final class NormalizationServer implements Closeable {
+
+    private static final String STATS_COMMAND = "#stats";
+    private static final char ERROR_PREFIX = '!';
+
+    // latencies are counted in buckets of powers of two nanoseconds
+    private static final int LATENCY_BUCKETS = 64;
+
+    // how often connection threads waiting for an answer check whether the server was closed
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    // how long the acceptor waits after a failed accept, doubled for every further failure
+    private static final long MIN_ACCEPT_DELAY_MILLIS = 1, MAX_ACCEPT_DELAY_MILLIS = 1000;
+
+    private final PinyinParser m_parser = new PinyinParser();
+    private final PinyinFormat m_format;
+    private final int m_maxBatchSize;
+    private final long m_maxBatchDelay;
+
+    private final ServerSocket m_serverSocket;
+    private final ExecutorService m_connectionThreads = Executors.newCachedThreadPool();
+    private final Set<Socket> m_connections = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<Request> m_queue = new LinkedBlockingQueue<>();
+    private final Thread m_acceptor, m_dispatcher;
+    private volatile boolean m_closed = false;
+
+    private final long m_startTime = System.nanoTime();
+    private final AtomicLong m_requestCount = new AtomicLong(), m_errorCount = new AtomicLong(),
+        m_batchCount = new AtomicLong();
+    private final AtomicLongArray m_latencies = new AtomicLongArray(LATENCY_BUCKETS);
+
+    private NormalizationServer(Builder builder) throws IOException {
+        m_format = builder.m_format;
+        m_maxBatchSize = builder.m_maxBatchSize;
+        m_maxBatchDelay = builder.m_maxBatchDelay;
+        m_serverSocket = new ServerSocket(builder.m_port, 0, builder.m_address);
+        m_acceptor = new Thread(this::accept, "pinyin-server-acceptor");
+        m_dispatcher = new Thread(this::dispatch, "pinyin-server-dispatcher");
+        m_acceptor.setDaemon(true);
+        m_dispatcher.setDaemon(true);
+        m_acceptor.start();
+        m_dispatcher.start();
+    }
+
+    /**
+     * Gets the port this server listens on, which is useful if it was started on any free port.
+     *
+     * @return The local port of the server socket.
+     */
+    public int getPort() {
+        return m_serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the address this server listens on.
+     *
+     * @return The {@link InetAddress} of the server socket.
+     */
+    public InetAddress getAddress() {
+        return m_serverSocket.getInetAddress();
+    }
+
+    /**
+     * Takes a snapshot of the statistics of this server since it was started.
+     *
+     * @return The current {@link Stats}.
+     */
+    public Stats getStats() {
+        final long[] latencies = new long[LATENCY_BUCKETS];
+
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            latencies[i] = m_latencies.get(i);
+        }
+
+        return new Stats(m_requestCount.get(), m_errorCount.get(), m_batchCount.get(),
+            System.nanoTime() - m_startTime, latencies);
+    }
+
+    private void accept() {
+        long delay = MIN_ACCEPT_DELAY_MILLIS;
+
+        while (!m_closed) {
+            final Socket socket;
+
+            try {
+                socket = m_serverSocket.accept();
+                delay = MIN_ACCEPT_DELAY_MILLIS;
+            }
+            catch (IOException e) {
+                if (m_closed || m_serverSocket.isClosed()) return;
+
+                // the connection was reset before it was accepted, or the process ran out of
+                // file descriptors, which only gets better once other connections are closed
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException interrupted) {
+                    return;
+                }
+
+                delay = Math.min(2 * delay, MAX_ACCEPT_DELAY_MILLIS);
+                continue;
+            }
+
+            m_connections.add(socket);
+
+            if (!m_closed) {
+                try {
+                    m_connectionThreads.execute(() -> serve(socket));
+                    continue;
+                }
+                catch (RejectedExecutionException e) {
+                    // close() shut the threads down after the check
+                }
+            }
+
+            // the server was closed while the connection was accepted
+            m_connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            final List<Request> pending = new ArrayList<>();
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                pending.add(submit(line));
+
+                // lines that have already arrived are submitted before waiting for the answers
+                if (reader.ready() && pending.size() < m_maxBatchSize) continue;
+
+                for (Request request : pending) {
+                    writer.write(await(request));
+                    writer.write('\n');
+                }
+
+                writer.flush();
+                pending.clear();
+            }
+        }
+        catch (IOException | InterruptedException e) {
+            // the client disconnected or the server was closed
+        }
+        finally {
+            m_connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    // waits for the answer to a request until the server is closed
+    private String await(Request request) throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return request.m_response.get(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e) {
+                if (m_closed) throw new IOException("Server closed.");
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+                return ERROR_PREFIX + "Internal error: " + e.getCause();
+            }
+        }
+    }
+
+    private Request submit(String line) {
+        final Request request = new Request(line);
+
+        if (line.equals(STATS_COMMAND)) {
+            request.m_response.complete(getStats().toString());
+            return request;
+        }
+
+        m_queue.add(request);
+
+        // the queue is not drained again once the server is closed
+        if (m_closed && m_queue.remove(request)) request.fail();
+
+        return request;
+    }
+
+    private void dispatch() {
+        final Request[] batch = new Request[m_maxBatchSize];
+        final String[] pinyins = new String[m_maxBatchSize];
+
+        while (!m_closed) {
+            final int size;
+
+            try {
+                size = collectBatch(batch);
+            }
+            catch (InterruptedException e) {
+                // the server was closed, so the requests collected so far are not answered
+                for (Request request : batch) {
+                    if (request != null) request.fail();
+                }
+
+                return;
+            }
+
+            try {
+                processBatch(batch, pinyins, size);
+            }
+            catch (RuntimeException | Error e) {
+                // answer the failed batch with the error and keep serving the following ones
+                for (int i = 0; i < size; i++) {
+                    if (batch[i].m_response.completeExceptionally(e))
+                        m_errorCount.incrementAndGet();
+                }
+
+                m_requestCount.addAndGet(size);
+                m_batchCount.incrementAndGet();
+            }
+            finally {
+                Arrays.fill(batch, 0, size, null);
+            }
+        }
+    }
+
+    private void processBatch(Request[] batch, String[] pinyins, int size) {
+        for (int i = 0; i < size; i++) {
+            pinyins[i] = batch[i].m_line;
+        }
+
+        final ParseResult[] results = m_parser.parseAll(size == m_maxBatchSize ?
+            pinyins : Arrays.copyOf(pinyins, size));
+        final String[] answers = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            answers[i] = render(results[i]);
+        }
+
+        final long now = System.nanoTime();
+
+        for (int i = 0; i < size; i++) {
+            batch[i].m_response.complete(answers[i]);
+            m_latencies.incrementAndGet(bucket(now - batch[i].m_submitTime));
+        }
+
+        m_requestCount.addAndGet(size);
+        m_batchCount.incrementAndGet();
+    }
+
+    // waits for the first request and adds all that arrive until the batch is full or its
+    // delay has passed
+    private int collectBatch(Request[] batch) throws InterruptedException {
+        batch[0] = m_queue.take();
+        final long deadline = System.nanoTime() + m_maxBatchDelay;
+        int size = 1;
+
+        while (size < batch.length) {
+            Request request = m_queue.poll();
+
+            if (request == null) {
+                final long delay = deadline - System.nanoTime();
+                if (delay <= 0) break;
+                request = m_queue.poll(delay, TimeUnit.NANOSECONDS);
+                if (request == null) break;
+            }
+
+            batch[size++] = request;
+        }
+
+        return size;
+    }
+
+    private String render(ParseResult result) {
+        if (result.isValid()) return m_format.format(result.getPinyin());
+        m_errorCount.incrementAndGet();
+        return ERROR_PREFIX + result.getErrorMessage();
+    }
+
+    private static int bucket(long nanos) {
+        return Math.min(LATENCY_BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 1)),
+            LATENCY_BUCKETS - 1);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (IOException e) {
+            // nothing left to do
+        }
+    }
+
+    /**
+     * Stops this server. All connections are closed, and requests that have not been answered
+     * yet are dropped.
+     *
+     * @throws IOException If closing the server socket failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (m_closed) return;
+        m_closed = true;
+        m_serverSocket.close();
+        m_acceptor.interrupt();
+        m_dispatcher.interrupt();
+
+        for (Socket socket : m_connections) {
+            closeQuietly(socket);
+        }
+
+        m_connectionThreads.shutdownNow();
+
+        for (Request request = m_queue.poll(); request != null; request = m_queue.poll()) {
+            request.fail();
+        }
+    }
+
+    // a line waiting for its answer
+    private static final class Request {
+
+        private final String m_line;
+        private final long m_submitTime = System.nanoTime();
+        private final CompletableFuture<String> m_response = new CompletableFuture<>();
+
+        private Request(String line) {
+            m_line = line;
+        }
+
+        private void fail() {
+            m_response.completeExceptionally(new IOException("Server closed."));
+        }
+    }
+
+    /**
+     * A snapshot of the throughput and latency of a {@link NormalizationServer}. Latencies are
+     * measured from the time a request is read until its answer is ready, and are recorded in
+     * buckets of powers of two nanoseconds, so percentiles are accurate up to a factor of two.
+     */
+    public static final class Stats {
+
+        private final long m_requestCount, m_errorCount, m_batchCount, m_uptime;
+        private final long[] m_latencies;
+
+        private Stats(long requestCount, long errorCount, long batchCount, long uptime,
+                long[] latencies) {
+            m_requestCount = requestCount;
+            m_errorCount = errorCount;
+            m_batchCount = batchCount;
+            m_uptime = uptime;
+            m_latencies = latencies;
+        }
+
+        /**
+         * Gets the number of answered requests, not counting "#stats".
+         *
+         * @return The number of requests.
+         */
+        public long getRequestCount() {
+            return m_requestCount;
+        }
+
+        /**
+         * Gets the number of requests that were not pinyin.
+         *
+         * @return The number of requests answered with an error.
+         */
+        public long getErrorCount() {
+            return m_errorCount;
+        }
+
+        /**
+         * Gets the number of batches the requests were parsed in.
+         *
+         * @return The number of batches.
+         */
+        public long getBatchCount() {
+            return m_batchCount;
+        }
+
+        /**
+         * Gets the average number of requests per batch.
+         *
+         * @return The average batch size or 0, if there were no requests.
+         */
+        public double getAverageBatchSize() {
+            return m_batchCount == 0 ? 0 : (double)m_requestCount / m_batchCount;
+        }
+
+        /**
+         * Gets the average throughput since the server was started.
+         *
+         * @return The number of requests per second.
+         */
+        public double getThroughput() {
+            return m_requestCount * 1e9 / Math.max(m_uptime, 1);
+        }
+
+        /**
+         * Gets an upper bound for the latency that the given fraction of requests did not
+         * exceed.
+         *
+         * @param percentile The percentile between 0 and 100, such as 99 for the latency of all
+         *  but the slowest percent of requests.
+         * @return The latency in nanoseconds, which is a power of two, or 0 if there were no
+         *  requests.
+         */
+        public long getLatencyPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("Percentile out of range: " + percentile);
+            long total = 0;
+
+            for (long count : m_latencies) {
+                total += count;
+            }
+
+            final long rank = (long)Math.ceil(total * percentile / 100);
+            long seen = 0;
+
+            for (int i = 0; i < m_latencies.length && total > 0; i++) {
+                seen += m_latencies[i];
+                if (seen >= Math.max(rank, 1)) return 1L << i;
+            }
+
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "requests=%d errors=%d batches=%d " +
+                "avgBatch=%.1f throughput=%.0f/s p50=%dus p99=%dus", m_requestCount, m_errorCount,
+                m_batchCount, getAverageBatchSize(), getThroughput(),
+                getLatencyPercentile(50) / 1000, getLatencyPercentile(99) / 1000);
+        }
+    }
+
+    /**
+     * Configures and starts {@link NormalizationServer}s. By default, a server listens on any free
+     * port of the loopback address, writes {@link PinyinFormat#TONE_MARKS} and parses up to 1024
+     * requests at once without waiting for more. Builders are not thread-safe.
+     */
+    public static final class Builder {
+
+        private InetAddress m_address = InetAddress.getLoopbackAddress();
+        private int m_port = 0;
+        private PinyinFormat m_format = PinyinFormat.TONE_MARKS;
+        private int m_maxBatchSize = 1024;
+        private long m_maxBatchDelay = 0;
+
+        /**
+         * Sets the address to listen on.
+         *
+         * @param address The local {@link InetAddress}, or <tt>null</tt> for all addresses.
+         * @return This builder.
+         */
+        public Builder setAddress(InetAddress address) {
+            m_address = address;
+            return this;
+        }
+
+        /**
+         * Sets the port to listen on.
+         *
+         * @param port The port, or 0 for any free port.
+         * @return This builder.
+         */
+        public Builder setPort(int port) {
+            if (port < 0 || port > 0xffff)
+                throw new IllegalArgumentException("Port out of range: " + port);
+            m_port = port;
+            return this;
+        }
+
+        /**
+         * Sets the format the answers are written in.
+         *
+         * @param format The {@link PinyinFormat} of the answers.
+         * @return This builder.
+         */
+        public Builder setFormat(PinyinFormat format) {
+            if (format == null) throw new NullPointerException("format");
+            m_format = format;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests parsed in one batch.
+         *
+         * @param maxBatchSize The positive maximum batch size.
+         * @return This builder.
+         */
+        public Builder setMaxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1)
+                throw new IllegalArgumentException("The batch size must be positive.");
+            m_maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Sets how long the dispatcher waits for more requests after the first request of a
+         * batch arrived. Longer delays give larger batches at the cost of latency.
+         *
+         * @param delay The non-negative delay.
+         * @param unit The {@link TimeUnit} of the delay.
+         * @return This builder.
+         */
+        public Builder setMaxBatchDelay(long delay, TimeUnit unit) {
+            if (delay < 0) throw new IllegalArgumentException("The delay must not be negative.");
+            m_maxBatchDelay = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Creates a server with the configuration of this builder and starts it.
+         *
+         * @return The running {@link NormalizationServer}.
+         * @throws IOException If the server socket could not be opened.
+         */
+        public NormalizationServer start() throws IOException {
+            return new NormalizationServer(this);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import de.pinyin4j.ParseError;
+import de.pinyin4j.cedict.CedictEntry;
+import de.pinyin4j.cedict.CedictLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link CedictLoader}.
+ */
+public final class CedictLoaderTest {
+
+    private static final String HEADER = "# CC-CEDICT\r\n#! version=1\r\n";
+
+    @Test
+    public void testLoad() throws IOException {
+        final StringBuilder content = new StringBuilder(HEADER);
+
+        // enough lines to be split into several chunks
+        for (int i = 0; i < 20000; i++) {
+            if (i % 1000 == 999) content.append("\u6eda bad [fai1] /invalid/\r\n");
+            else if (i % 1000 == 500) content.append("broken line\r\n");
+            else content.append("\u4f60\u597d \u4f60\u597d [ni3 hao3] /hello/hi/\r\n");
+        }
+
+        final Path file = Files.createTempFile("cedict", ".u8");
+
+        try {
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+            final CedictLoader.Result result = new CedictLoader().load(file);
+            final List<CedictEntry> entries = result.getEntries();
+            assertEquals(19960, entries.size());
+            assertEquals(40, result.getErrors().size());
+
+            final CedictEntry first = entries.get(0);
+            assertEquals(3, first.getLineNumber());
+            assertEquals("\u4f60\u597d", first.getSimplified());
+            assertEquals("ni\u030cha\u030co", first.getPinyin().toString());
+            assertEquals(2, first.getDefinitions().size());
+            assertEquals("hi", first.getDefinitions().get(1));
+
+            for (int i = 1; i < entries.size(); i++) {
+                assertTrue(entries.get(i).getLineNumber() > entries.get(i - 1).getLineNumber());
+            }
+
+            assertEquals(503, result.getErrors().get(0).getLineNumber());
+            assertNull(result.getErrors().get(0).getError());
+            assertEquals(1002, result.getErrors().get(1).getLineNumber());
+            assertEquals(ParseError.INVALID_COMBINATION, result.getErrors().get(1).getError());
+            assertEquals(20002, result.getErrors().get(39).getLineNumber());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinParser;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that a single {@link PinyinParser} can be shared by many threads.
+ */
+public final class ConcurrentParsingTest {
+
+    private static final String[] INPUTS = new String[] {
+        "zhe4shi4wo3peng2youta1shi4ji4zhe3", "Zhen1 \u00b7 Ao4 si1 ting1", "hua1 r5 jiang4",
+        "ren2 wei4 cai2 si3 , niao3 wei4 shi2 wang2", "xia\u030coshi\u0301", "lu:e4 nu:3",
+        "Wo3 jin1tian1 you3 yi2huir4 ni3 ne", "fai1", "ke'yi"
+    };
+    private static final int ROUNDS = 2000;
+
+    private static final PinyinParser PARSER = new PinyinParser();
+
+    private static String parse(String input) {
+        try {
+            return PARSER.parsePinyin(input).toString();
+        }
+        catch (ParseException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static void runWithThreads(int threadCount) throws Exception {
+        final String[] expected = new String[INPUTS.length];
+
+        for (int i = 0; i < INPUTS.length; i++) {
+            expected[i] = parse(INPUTS[i]);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+
+            for (int t = 0; t < threadCount; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    int checked = 0;
+
+                    for (int round = 0; round < ROUNDS; round++) {
+                        final int i = (round + offset) % INPUTS.length;
+                        assertEquals(expected[i], parse(INPUTS[i]));
+                        checked++;
+                    }
+
+                    return checked;
+                }));
+            }
+
+            for (Future<Integer> future : futures) {
+                assertEquals(ROUNDS, (int)future.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testThreadCounts() throws Exception {
+        for (int threadCount = 1; threadCount <= 256; threadCount *= 4) {
+            runWithThreads(threadCount);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import de.pinyin4j.PinyinFormat;
+import de.pinyin4j.server.NormalizationServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link NormalizationServer} against localhost.
+ */
+public final class NormalizationServerTest {
+
+    private static final String[] INPUTS = { "Zhong1guo2 ren2", "xyz", "lu:4 huar1", "" };
+    private static final String[] OUTPUTS = { "Zho\u0304ngguo\u0301 re\u0301n",
+        "!Invalid final: y (after initial \"x\".", "l\u00fc\u0300 hua\u0304r", "" };
+
+    // sends all lines at once before reading the answers
+    private static List<String> request(NormalizationServer server, List<String> lines)
+            throws IOException {
+        try (Socket socket = new Socket(server.getAddress(), server.getPort())) {
+            final Writer writer =
+                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+
+            writer.flush();
+            final List<String> result = new ArrayList<>();
+
+            for (int i = 0; i < lines.size(); i++) {
+                result.add(reader.readLine());
+            }
+
+            return result;
+        }
+    }
+
+    @Test
+    public void testRequests() throws IOException {
+        try (NormalizationServer server = new NormalizationServer.Builder().start()) {
+            final List<String> lines = new ArrayList<>();
+            final List<String> expected = new ArrayList<>();
+
+            for (int i = 0; i < 1000; i++) {
+                lines.add(INPUTS[i % INPUTS.length]);
+                expected.add(OUTPUTS[i % OUTPUTS.length]);
+            }
+
+            assertEquals(expected, request(server, lines));
+
+            final NormalizationServer.Stats stats = server.getStats();
+            assertEquals(1000, stats.getRequestCount());
+            assertEquals(250, stats.getErrorCount());
+            assertTrue(stats.getBatchCount() <= 1000);
+            assertTrue(stats.getLatencyPercentile(50) <= stats.getLatencyPercentile(99));
+            assertTrue(request(server, List.of("#stats")).get(0).startsWith("requests=1000 "));
+        }
+    }
+
+    @Test
+    public void testConcurrentClients() throws Exception {
+        final NormalizationServer server = new NormalizationServer.Builder()
+            .setFormat(PinyinFormat.TONE_NUMBERS)
+            .setMaxBatchSize(64)
+            .setMaxBatchDelay(1, TimeUnit.MILLISECONDS)
+            .start();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Future<List<String>>> futures = new ArrayList<>();
+
+            for (int client = 0; client < 8; client++) {
+                final List<String> lines = new ArrayList<>();
+
+                for (int i = 0; i < 500; i++) {
+                    lines.add("ni" + (i + client) % 5 + " hao3");
+                }
+
+                futures.add(executor.submit(() -> request(server, lines)));
+            }
+
+            for (int client = 0; client < 8; client++) {
+                final List<String> answers = futures.get(client).get();
+                assertEquals(500, answers.size());
+
+                for (int i = 0; i < 500; i++) {
+                    assertEquals("ni" + ((i + client) % 5 == 0 ? 5 : (i + client) % 5) + " hao3",
+                        answers.get(i));
+                }
+            }
+
+            // requests of different clients share batches
+            final NormalizationServer.Stats stats = server.getStats();
+            assertEquals(4000, stats.getRequestCount());
+            assertTrue(stats.getAverageBatchSize() > 1);
+        }
+        finally {
+            executor.shutdown();
+            server.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseReleasesWaitingClients() throws Exception {
+        final NormalizationServer server = new NormalizationServer.Builder()
+            .setMaxBatchSize(2)
+            .setMaxBatchDelay(1, TimeUnit.HOURS)
+            .start();
+
+        try (Socket socket = new Socket(server.getAddress(), server.getPort())) {
+            final Writer writer =
+                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            writer.write("ni3\n");
+            writer.flush();
+
+            // the request waits for a second one to fill its batch until the server is closed
+            Thread.sleep(200);
+            server.close();
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package de.pinyin4j.test;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import de.pinyin4j.cli.NormalizeTool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the command-line {@link NormalizeTool} on in-memory streams and temporary files.
+ */
+public final class NormalizeToolTest {
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    private String m_err;
+
+    private String run(String input, int expectedStatus, String... args) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final int status = NormalizeTool.run(args,
+            new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out,
+            new PrintStream(err, true, StandardCharsets.UTF_8));
+        m_err = new String(err.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(m_err, expectedStatus, status);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testColumn() {
+        assertEquals("1\tZho\u0304ngguo\u0301\tChina\n2\txyz\tnothing\r\n3\n4\t l\u00fc\u0300 \t",
+            run("1\tZhong1guo2\tChina\n2\txyz\tnothing\r\n3\n4\t lu:4 \t", 1,
+                "--column", "2"));
+        assertTrue(m_err, m_err.startsWith("stdin:2: Invalid final: y"));
+        assertTrue(m_err, m_err.contains("4 lines in "));
+        assertTrue(m_err, m_err.endsWith(", 1 errors" + System.lineSeparator()));
+    }
+
+    @Test
+    public void testCedict() {
+        final String cedict = "# comment [ni3]\n" +
+            "\u4e2d\u570b \u4e2d\u56fd [Zhong1 guo2] /China/\n" +
+            "\u5973\u5152 \u5973\u513f [nu:3 er2] /daughter/\n";
+        final String converted = run(cedict, 0, "--cedict");
+        assertEquals("# comment [ni3]\n" +
+            "\u4e2d\u570b \u4e2d\u56fd [Zho\u0304ng guo\u0301] /China/\n" +
+            "\u5973\u5152 \u5973\u513f [n\u00fc\u030c e\u0301r] /daughter/\n", converted);
+        assertEquals(cedict, run(converted, 0, "--cedict", "--to", "tone_numbers"));
+    }
+
+    @Test
+    public void testInvalidUtf8() {
+        final byte[] input = { (byte)0xff, '\t', 'n', 'i', '3', '\n', '1', '\t', 'n', (byte)0xff,
+            '\n' };
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertEquals(1, NormalizeTool.run(new String[] { "--column", "2" },
+            new ByteArrayInputStream(input), out,
+            new PrintStream(err, true, StandardCharsets.UTF_8)));
+
+        // only the column is decoded, everything else is copied byte by byte
+        assertArrayEquals(
+            new byte[] { (byte)0xff, '\t', 'n', 'i', (byte)0xcc, (byte)0x8c, '\n', '1', '\t',
+                'n', (byte)0xff, '\n' }, out.toByteArray());
+        assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8)
+            .startsWith("stdin:2: Invalid UTF-8."));
+    }
+
+    @Test
+    public void testLineNumbersPerFile() throws IOException {
+        final Path first = m_folder.newFile("first.tsv").toPath();
+        final Path second = m_folder.newFile("second.tsv").toPath();
+        Files.write(first, "ni3\nxyz\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(second, "hao3\n\u00e4\n".getBytes(StandardCharsets.UTF_8));
+
+        run("", 1, first.toString(), second.toString());
+        final String[] lines = m_err.split(System.lineSeparator());
+        assertEquals(first + ":2: Invalid final: y (after initial \"x\".", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith(second + ":2: "));
+        assertTrue(lines[1], lines[1].contains("\u00e4"));
+        assertTrue(lines[2], lines[2].startsWith("4 lines in "));
+    }
+
+    @Test
+    public void testOrderWithManyBlocks() throws IOException {
+        final StringBuilder input = new StringBuilder(), expected = new StringBuilder();
+
+        for (int i = 0; i < 200000; i++) {
+            input.append(i).append("\tni").append(i % 5).append(" hao3\n");
+            expected.append(i).append("\tni").append(i % 5 == 0 ? 5 : i % 5).append(" hao3\n");
+        }
+
+        final Path in = m_folder.newFile("in.tsv").toPath();
+        final Path out = m_folder.getRoot().toPath().resolve("out.tsv");
+        Files.write(in, input.toString().getBytes(StandardCharsets.UTF_8));
+
+        run("", 0, "--column", "2", "--to", "tone_numbers", "--threads", "4", "--output",
+            out.toString(), in.toString());
+        assertEquals(expected.toString(),
+            new String(Files.readAllBytes(out), StandardCharsets.UTF_8));
+        assertTrue(m_err, m_err.startsWith("200000 lines in "));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        run("", 2, "--column", "0");
+        run("", 2, "--to", "braille");
+        run("", 2, "--threads");
+        run("", 0, "--help");
+        assertTrue(m_err.startsWith("Usage: "));
+    }
+}
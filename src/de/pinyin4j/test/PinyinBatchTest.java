@@ -0,0 +1,80 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.pinyin4j.ParseError;
+import de.pinyin4j.ParseResult;
+import de.pinyin4j.PinyinParser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests parsing many strings in parallel with the <tt>parseAll</tt> methods of
+ * {@link PinyinParser}.
+ */
+public final class PinyinBatchTest {
+
+    private static final PinyinParser PARSER = new PinyinParser();
+
+    private static final String[] WORDS = { "ni3 hao3", "Zhong1guo2", " lu:4 huar1 ", "xyz",
+        "zhe4 shi4 yi1 ge5 ju4zi5", "hui4 r5", "r5", "", "Bei3jing1 xq" };
+
+    private static List<String> randomInputs(int count) {
+        final Random random = new Random(7);
+        final List<String> result = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            result.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+
+        return result;
+    }
+
+    private static void assertResults(List<String> inputs, List<ParseResult> results) {
+        assertEquals(inputs.size(), results.size());
+
+        for (int i = 0; i < inputs.size(); i++) {
+            final ParseResult expected = PARSER.tryParsePinyin(inputs.get(i));
+            final ParseResult actual = results.get(i);
+            assertEquals(expected.isValid(), actual.isValid());
+            assertEquals(expected.getPinyin(), actual.getPinyin());
+            assertEquals(expected.getError(), actual.getError());
+            assertEquals(expected.getErrorOffset(), actual.getErrorOffset());
+            assertEquals(expected.getErrorMessage(), actual.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void testList() {
+        final List<String> inputs = randomInputs(20000);
+        assertResults(inputs, PARSER.parseAll(inputs));
+    }
+
+    @Test
+    public void testArray() {
+        final List<String> inputs = randomInputs(1000);
+        assertResults(inputs, Arrays.asList(PARSER.parseAll(inputs.toArray(new String[0]))));
+    }
+
+    @Test
+    public void testStream() {
+        final List<String> inputs = randomInputs(5000);
+        assertResults(inputs, PARSER.parseAll(inputs.parallelStream()));
+    }
+
+    @Test
+    public void testErrors() {
+        final List<ParseResult> results = PARSER.parseAll(Arrays.asList("xyz", "ni3", "r5"));
+        assertFalse(results.get(0).isValid());
+        assertTrue(results.get(1).isValid());
+        assertEquals(ParseError.INVALID_R_FINAL_AT_BEGINNING, results.get(2).getError());
+        assertEquals(0, PARSER.parseAll(new String[0]).length);
+    }
+}
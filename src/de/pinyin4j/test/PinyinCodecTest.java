@@ -0,0 +1,125 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinCodec;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests the bulk serialization of {@link PinyinString}s by {@link PinyinCodec}.
+ */
+public final class PinyinCodecTest {
+
+    private static final PinyinParser PARSER = new PinyinParser();
+    private static final String[] INPUTS = new String[] {
+        "Wo3 jin1tian1 you3 yi2huir4 ni3 ne", "Zhen1 \u00b7 Ao4 si1 ting1", "hua1 r5 jiang4",
+        "xi1an1", "lu:e4", ""
+    };
+
+    private static List<PinyinString> parseAll() throws ParseException {
+        final List<PinyinString> result = new ArrayList<>();
+
+        for (String input : INPUTS) {
+            result.add(PARSER.parsePinyin(input, true));
+        }
+
+        return result;
+    }
+
+    private static void assertSameTokens(PinyinString expected, PinyinString actual) {
+        assertEquals(expected.length(), actual.length());
+
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.getCode(i), actual.getCode(i));
+        }
+    }
+
+    @Test
+    public void testRoundTrips() throws ParseException {
+        final List<PinyinString> pinyins = parseAll();
+
+        for (PinyinCodec.Format format : PinyinCodec.Format.values()) {
+            final PinyinCodec codec = new PinyinCodec(format);
+
+            for (PinyinString pinyin : pinyins) {
+                final byte[] bytes = codec.encode(pinyin);
+                assertEquals(codec.encodedSize(pinyin), bytes.length);
+                assertSameTokens(pinyin, codec.decode(bytes));
+            }
+
+            // the order of the buffer must not matter
+            final ByteBuffer buffer =
+                ByteBuffer.allocateDirect(1024).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put((byte)42);
+            codec.encodeAll(pinyins, buffer);
+            buffer.flip().position(1);
+            final List<PinyinString> decoded = codec.decodeAll(buffer);
+            assertFalse(buffer.hasRemaining());
+            assertEquals(pinyins.size(), decoded.size());
+
+            for (int i = 0; i < pinyins.size(); i++) {
+                assertSameTokens(pinyins.get(i), decoded.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testStandardCompatibility() throws ParseException, IOException {
+        final PinyinCodec codec = new PinyinCodec(PinyinCodec.Format.STANDARD);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream stream = new DataOutputStream(bytes);
+        final List<PinyinString> pinyins = parseAll();
+
+        for (PinyinString pinyin : pinyins) {
+            pinyin.save(stream);
+        }
+
+        assertArrayEquals(bytes.toByteArray(), codec.encodeAll(pinyins));
+    }
+
+    @Test
+    public void testCompactSize() throws ParseException {
+        final PinyinString pinyin = PARSER.parsePinyin("ni3 hao3", true);
+        assertEquals(5, new PinyinCodec(PinyinCodec.Format.COMPACT).encodedSize(pinyin));
+        assertEquals(6, new PinyinCodec(PinyinCodec.Format.STANDARD).encodedSize(pinyin));
+    }
+
+    @Test
+    public void testTruncated() throws ParseException {
+        for (PinyinCodec.Format format : PinyinCodec.Format.values()) {
+            final PinyinCodec codec = new PinyinCodec(format);
+            final byte[] bytes = codec.encode(PARSER.parsePinyin("ni3 hao3", true));
+            final ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1));
+
+            try {
+                codec.decode(buffer);
+                throw new AssertionError("Truncated " + format + " encoding was decoded.");
+            }
+            catch (BufferUnderflowException e) {
+                assertEquals(0, buffer.position());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCode() {
+        // the initial "j" cannot be combined with the final "a"
+        new PinyinCodec(PinyinCodec.Format.STANDARD).decode(new byte[] { 0x00, 0x0c, 0x30 });
+    }
+}
@@ -0,0 +1,109 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinCollator;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the comparison modes of {@link PinyinCollator}.
+ */
+public final class PinyinCollatorTest {
+
+    private static final PinyinParser PARSER = new PinyinParser();
+    private static final String[] SYLLABLES = new String[] {
+        "ma1", "ma2", "ma3", "ma4", "ma5", "Ma1", "mar4", "man4", "lu4", "lu:4", "luo4", "a1", " "
+    };
+    private static final PinyinCollator[] COLLATORS = new PinyinCollator[] {
+        PinyinCollator.DICTIONARY, PinyinCollator.TONE_INSENSITIVE,
+        new PinyinCollator(true, true, true, true), new PinyinCollator(false, true, false, false),
+        new PinyinCollator(true, false, true, false)
+    };
+
+    private static List<PinyinString> parseAll(String... inputs) throws ParseException {
+        final List<PinyinString> result = new ArrayList<>();
+
+        for (String input : inputs) {
+            result.add(PARSER.parsePinyin(input, true));
+        }
+
+        return result;
+    }
+
+    @Test
+    public void testDictionaryOrder() throws ParseException {
+        final List<PinyinString> pinyins = parseAll("ma4", "ma", "ma1 ren2", "Ma1", "ma2 a1",
+            "lu:4", "ma2", "luo4", "mar4", "man4");
+        PinyinCollator.DICTIONARY.sort(pinyins);
+        final List<String> sorted = new ArrayList<>();
+
+        for (PinyinString pinyin : pinyins) {
+            sorted.add(pinyin.toString());
+        }
+
+        assertEquals(Arrays.asList("luo\u0300", "l\u00fc\u0300", "Ma\u0304", "ma\u0301",
+            "ma\u0300", "ma", "ma\u0301 a\u0304", "ma\u0304 re\u0301n", "ma\u0300n", "ma\u0300r"),
+            sorted);
+    }
+
+    @Test
+    public void testToneInsensitive() throws ParseException {
+        final PinyinCollator collator = PinyinCollator.TONE_INSENSITIVE;
+        assertEquals(0,
+            collator.compare(PARSER.parsePinyin("ma1 ma"), PARSER.parsePinyin("ma3ma4")));
+        assertTrue(collator.compare(PARSER.parsePinyin("ma"), PARSER.parsePinyin("mar")) < 0);
+        assertEquals(0, new PinyinCollator(false, false, false, false).compare(
+            PARSER.parsePinyin("hua1"), PARSER.parsePinyin("huar1")));
+    }
+
+    @Test
+    public void testSortKeys() throws ParseException {
+        final Random random = new Random(42);
+        final List<PinyinString> pinyins = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            final StringBuilder input = new StringBuilder();
+
+            for (int length = random.nextInt(4); length >= 0; length--) {
+                input.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+
+            pinyins.add(PARSER.parsePinyin(input.toString(), true));
+        }
+
+        for (PinyinCollator collator : COLLATORS) {
+            for (PinyinString a : pinyins) {
+                final byte[] keyA = collator.getSortKey(a);
+
+                for (int i = 0; i < 20; i++) {
+                    final PinyinString b = pinyins.get(random.nextInt(pinyins.size()));
+                    final int expected = Integer.signum(collator.compare(a, b));
+                    assertEquals(-expected, Integer.signum(collator.compare(b, a)));
+                    assertEquals(expected,
+                        Integer.signum(Arrays.compareUnsigned(keyA, collator.getSortKey(b))));
+
+                    final int prefixResult = Long.compareUnsigned(collator.getPrefixKey(a),
+                        collator.getPrefixKey(b));
+                    if (prefixResult != 0) assertEquals(expected, Integer.signum(prefixResult));
+                }
+            }
+
+            final PinyinString[] sorted = pinyins.toArray(new PinyinString[0]);
+            collator.sort(sorted);
+
+            for (int i = 1; i < sorted.length; i++) {
+                assertTrue(collator.compare(sorted[i - 1], sorted[i]) <= 0);
+            }
+        }
+    }
+}
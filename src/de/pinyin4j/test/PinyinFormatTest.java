@@ -0,0 +1,123 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.text.Normalizer;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinFormat;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinString;
+import de.pinyin4j.Syllable;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests writing pinyin in the different {@link PinyinFormat}s.
+ */
+public final class PinyinFormatTest {
+
+    private static final PinyinParser PARSER = new PinyinParser();
+
+    private static String format(PinyinFormat format, String pinyin) throws ParseException {
+        return format.format(PARSER.parsePinyin(pinyin));
+    }
+
+    @Test
+    public void testToneMarks() throws ParseException {
+        for (String pinyin : new String[] { "Zhong1guo2 ren2", "xi1an1", "lu:4 huar1", "" }) {
+            final PinyinString parsed = PARSER.parsePinyin(pinyin);
+            assertEquals(parsed.toString(), PinyinFormat.TONE_MARKS.format(parsed));
+        }
+    }
+
+    @Test
+    public void testToneNumbers() throws ParseException {
+        assertEquals("Zhong1guo2 ren2",
+            format(PinyinFormat.TONE_NUMBERS, "Zho\u0304ngguo\u0301 re\u0301n"));
+        assertEquals("xi1an1 lu:4 huar1 ma5",
+            format(PinyinFormat.TONE_NUMBERS, "xi1an1 lv4 huar1 ma"));
+    }
+
+    @Test
+    public void testToneNumbersRoundTrip() throws ParseException {
+        for (int id = 0; id < Syllable.getIdCount(); id++) {
+            final Syllable syllable = Syllable.fromId(id);
+            final String written = PinyinFormat.TONE_NUMBERS.format(syllable);
+            assertEquals(written, syllable, PARSER.parsePinyin(written).getSyllable(0));
+        }
+    }
+
+    @Test
+    public void testPrecomposedToneMarks() throws ParseException {
+        assertEquals("Zh\u014dnggu\u00f3 r\u00e9n",
+            format(PinyinFormat.PRECOMPOSED_TONE_MARKS, "Zhong1guo2 ren2"));
+        assertEquals("X\u012b'\u0101n l\u01dc hu\u0101r",
+            format(PinyinFormat.PRECOMPOSED_TONE_MARKS, "Xi1an1 lv4 huar1"));
+        assertEquals("\u0100n", PARSER.parsePinyin("An1").toString(
+            PinyinFormat.PRECOMPOSED_TONE_MARKS));
+    }
+
+    @Test
+    public void testPrecomposedToneMarksAreNfc() throws ParseException {
+        for (int id = 0; id < Syllable.getIdCount(); id++) {
+            final Syllable syllable = Syllable.fromId(id);
+            final String written = syllable.toString(PinyinFormat.PRECOMPOSED_TONE_MARKS);
+            assertEquals(Normalizer.normalize(syllable.toString(), Normalizer.Form.NFC), written);
+            assertEquals(written, syllable, PARSER.parsePinyin(written).getSyllable(0));
+        }
+    }
+
+    @Test
+    public void testZhuyin() throws ParseException {
+        assertEquals("\u3113\u3128\u3125\u310d\u3128\u311b\u02ca",
+            format(PinyinFormat.ZHUYIN, "Zhong1guo2"));
+        assertEquals("\u3115\u02cb \u3117\u02cb", format(PinyinFormat.ZHUYIN, "shi4 zi4"));
+        assertEquals("\u3126\u02ca \u02d9\u3109\u311c", format(PinyinFormat.ZHUYIN, "er2 de5"));
+        assertEquals("\u3105\u311b \u310f\u3128\u311a\u3126",
+            format(PinyinFormat.ZHUYIN, "bo1 huar1"));
+        assertEquals("\u3129\u3125\u02cb \u3112\u3129\u311d\u02ca",
+            format(PinyinFormat.ZHUYIN, "yong4 xue2"));
+    }
+
+    @Test
+    public void testWadeGiles() throws ParseException {
+        assertEquals("Chung\u00b9-kuo\u00b2", format(PinyinFormat.WADE_GILES, "Zhong1guo2"));
+        assertEquals("tzu\u2074 shih\u2074 ssu\u00b9",
+            format(PinyinFormat.WADE_GILES, "zi4 shi4 si1"));
+        assertEquals("hs\u00fceh\u00b2 ko\u00b9", format(PinyinFormat.WADE_GILES, "xue2 ge1"));
+        assertEquals("tso\u2074 kuei\u2074 \u00earh\u00b2",
+            format(PinyinFormat.WADE_GILES, "zuo4 gui4 er2"));
+        assertEquals("Pei\u00b3-ching\u00b9", format(PinyinFormat.WADE_GILES, "Bei3jing1"));
+    }
+
+    @Test
+    public void testIpa() throws ParseException {
+        assertEquals("\u0288\u0282\u028a\u014b\u02e5.kwo\u02e7\u02e5",
+            format(PinyinFormat.IPA, "Zhong1guo2"));
+        assertEquals("s\u0279\u0329\u02e5\u02e9 \u0282\u027b\u0329\u02e5\u02e9",
+            format(PinyinFormat.IPA, "si4 shi4"));
+        assertEquals("\u025a\u02e7\u02e5 w\u0259\u014b\u02e5",
+            format(PinyinFormat.IPA, "er2 weng1"));
+    }
+
+    @Test
+    public void testSink() throws ParseException, IOException {
+        final StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < 2000; i++) {
+            input.append("Zhong1guo2 ren2 xi1an1 ");
+        }
+
+        for (PinyinFormat format : PinyinFormat.values()) {
+            final StringWriter writer = new StringWriter();
+            final PinyinFormat.Sink sink = format.newSink(writer);
+            PARSER.parsePinyin(new StringReader(input.toString()), sink);
+            sink.flush();
+            assertEquals(format(format, input.toString()), writer.toString());
+        }
+    }
+}
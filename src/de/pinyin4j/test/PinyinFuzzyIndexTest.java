@@ -0,0 +1,93 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.pinyin4j.Initial;
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PhoneticCosts;
+import de.pinyin4j.PinyinFuzzyIndex;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinString;
+import de.pinyin4j.PinyinTrie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the fuzzy search of a {@link PinyinFuzzyIndex} and its {@link PhoneticCosts}.
+ */
+public final class PinyinFuzzyIndexTest {
+
+    private static final PinyinParser PARSER = new PinyinParser();
+    private static final String[] KEYS = new String[] {
+        "zhong1 guo2", "zong3", "Zhong1guo2 ren2", "ni3 hao3", "nian2", "lian2", "hua1", "huar1",
+        "shang4 hai3", "san1"
+    };
+
+    private static PinyinString parse(String pinyin) throws ParseException {
+        return PARSER.parsePinyin(pinyin);
+    }
+
+    private static short code(String syllable) throws ParseException {
+        return parse(syllable).getSyllable(0).toShort();
+    }
+
+    private static List<PinyinString> keys() throws ParseException {
+        final List<PinyinString> keys = new ArrayList<>();
+
+        for (String key : KEYS) {
+            keys.add(parse(key));
+        }
+
+        return keys;
+    }
+
+    @Test
+    public void testCosts() throws ParseException {
+        final PhoneticCosts costs = PhoneticCosts.DEFAULT;
+        final short zhong1 = code("zhong1");
+        assertEquals(0, costs.getSubstitutionCost(zhong1, zhong1));
+        assertEquals(1, costs.getSubstitutionCost(zhong1, code("zong1")));
+        assertEquals(2, costs.getSubstitutionCost(zhong1, code("zong3")));
+        assertEquals(3, costs.getSubstitutionCost(zhong1, code("chong1")));
+        assertEquals(0, costs.getSubstitutionCost(zhong1, code("Zhong1")));
+        assertEquals(1, costs.getSubstitutionCost(code("hua1"), code("huar1")));
+    }
+
+    @Test
+    public void testSearch() throws ParseException {
+        final PinyinFuzzyIndex index = new PinyinFuzzyIndex(keys());
+        assertEquals("[0 (1), 1 (5)]", index.search(parse("zong1 guo2"), 2).toString());
+        assertEquals("[0 (0), 2 (4)]", index.search(parse("Zhong1guo2"), 2).toString());
+        assertEquals("[4 (0), 5 (1)]", index.search(parse("nian2"), 2).toString());
+        assertEquals("[6 (0), 7 (1)]", index.search(parse("hua1"), 2).toString());
+        assertEquals("[8 (1), 9 (6)]", index.search(parse("sang4 hai3"), 2).toString());
+    }
+
+    @Test
+    public void testMaxCost() throws ParseException {
+        final PinyinFuzzyIndex index = new PinyinFuzzyIndex(keys());
+        assertEquals("[4 (1), 5 (2)]", index.search(parse("nian3"), 10, 2).toString());
+        assertTrue(index.search(parse("xue2 sheng1"), 10, 3).isEmpty());
+        assertEquals(KEYS.length, index.search(parse("xue2 sheng1"), 100).size());
+        assertTrue(index.search(parse("nian2"), 0).isEmpty());
+    }
+
+    @Test
+    public void testCustomCosts() throws ParseException {
+        final PhoneticCosts costs = new PhoneticCosts.Builder()
+            .setDefaultToneCost(0)
+            .setInitialCost(Initial.N, Initial.L, 0)
+            .build();
+        final PinyinFuzzyIndex index = new PinyinFuzzyIndex(PinyinTrie.build(keys()), costs);
+        assertEquals("[4 (0), 5 (0)]", index.search(parse("lian3"), 2).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCost() {
+        new PhoneticCosts.Builder().setIndelCost(-1);
+    }
+}
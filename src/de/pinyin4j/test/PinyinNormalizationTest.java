@@ -1,10 +1,20 @@
 package de.pinyin4j.test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.text.Normalizer;
+import java.util.Random;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import de.pinyin4j.ISyllableSink;
+import de.pinyin4j.ParseError;
 import de.pinyin4j.ParseException;
+import de.pinyin4j.ParseResult;
 import de.pinyin4j.PinyinParser;
+import de.pinyin4j.Syllable;
 
 import static org.junit.Assert.*;
 
@@ -52,6 +62,65 @@ public final class PinyinNormalizationTest {
         assertEquals("de", normalizer.parsePinyin("de").toString());
     }
 
+    @Test
+    public void testPrecomposedToneMarks() throws ParseException {
+        assertEquals("Zho\u0304ngguo\u0301",
+            normalizer.parsePinyin("Zh\u014dnggu\u00f3").toString());
+        assertEquals("n\u00fc\u030c'e\u0301r",
+            normalizer.parsePinyin("n\u01da'\u00e9r").toString());
+        assertEquals("L\u00fc\u0300", normalizer.parsePinyin("L\u01dc").toString());
+
+        // a second tone mark starts a new syllable, whether it is precomposed or combining
+        assertEquals("Xi\u0304'a\u0304n", normalizer.parsePinyin("X\u012b\u0101n").toString());
+        assertEquals("Xi\u0304'a\u0304n", normalizer.parsePinyin("Xi\u0304a\u0304n").toString());
+        assertEquals("zhi\u0301'a\u0300", normalizer.parsePinyin("zh\u00ed\u00e0").toString());
+        assertEquals("zhi\u0301'a\u0300", normalizer.parsePinyin("zhi\u0301a\u0300").toString());
+
+        for (int id = 0; id < Syllable.getIdCount(); id++) {
+            final Syllable syllable = Syllable.fromId(id);
+            final String composed = Normalizer.normalize(syllable.toString(), Normalizer.Form.NFC);
+            assertEquals(composed, syllable, normalizer.parsePinyin(composed).getSyllable(0));
+        }
+    }
+
+    // decomposes the tone marks of precomposed vowels, but keeps "\u00fc", which the parser only
+    // accepts precomposed
+    private static String decomposeToneMarks(String pinyin) {
+        return Normalizer.normalize(pinyin, Normalizer.Form.NFD)
+            .replace("u\u0308", "\u00fc").replace("U\u0308", "\u00dc");
+    }
+
+    @Test
+    public void testPrecomposedEqualsCombining() {
+        final String letters = "aoeiu\u00fcvbpmfdtnlgkhjqxzcsrywAEOU\u00dc'':12345  ";
+        final String marks = "\u0304\u0301\u030c\u0300";
+        final Random random = new Random(19);
+
+        for (int i = 0; i < 100000; i++) {
+            final StringBuilder sb = new StringBuilder();
+
+            // tone marks follow vowels, since NFC also composes consonants like "\u0144"
+            for (int length = random.nextInt(12); length > 0; length--) {
+                final char c = letters.charAt(random.nextInt(letters.length()));
+                sb.append(c);
+                if ("aoeiu\u00fcAEOU\u00dc".indexOf(c) >= 0 && random.nextInt(3) == 0)
+                    sb.append(marks.charAt(random.nextInt(marks.length())));
+            }
+
+            final String composed = Normalizer.normalize(sb, Normalizer.Form.NFC);
+            final String decomposed = decomposeToneMarks(composed);
+            final ParseResult expected = normalizer.tryParsePinyin(decomposed);
+            final ParseResult actual = normalizer.tryParsePinyin(composed);
+
+            assertEquals(composed, expected.isValid(), actual.isValid());
+            if (expected.isValid()) {
+                assertEquals(composed, expected.getPinyin().toString(),
+                    actual.getPinyin().toString());
+            }
+            else assertEquals(composed, expected.getError(), actual.getError());
+        }
+    }
+
     @Test
     public void testSyllableTransitions() throws ParseException {
         // Note: not real words anymore
@@ -111,6 +180,86 @@ public final class PinyinNormalizationTest {
             normalizer.parsePinyin("ren2 wei4 cai2 si3 , niao3 wei4 shi2 wang2", false).toString());
     }
 
+    @Test
+    public void testRanges() throws ParseException {
+        final String line = "\u4f60\u597d\tni3 hao3 \tgreeting";
+        final int start = line.indexOf('\t'), end = line.lastIndexOf('\t');
+        assertEquals("ni\u030C ha\u030Co", normalizer.parsePinyin(line, start, end).toString());
+        assertEquals("ni\u030Cha\u030Co",
+            normalizer.parsePinyin(CharBuffer.wrap(line), start, end, false).toString());
+        assertEquals("ni\u030C ha\u030Co",
+            normalizer.parsePinyin(line.toCharArray(), start, end - start).toString());
+        assertEquals("", normalizer.parsePinyin(line, start, start + 1).toString());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testInvalidRange() throws ParseException {
+        // the range ends in the middle of a syllable
+        normalizer.parsePinyin("ni3 hao3".toCharArray(), 4, 1);
+    }
+
+    private static String parseStream(String pinyin, boolean parseWhitespace)
+            throws IOException, ParseException {
+        final StringBuilder result = new StringBuilder();
+        normalizer.parsePinyin(new StringReader(pinyin), parseWhitespace, new ISyllableSink() {
+
+            @Override
+            public void acceptSyllable(short syllable) {
+                result.append(Syllable.fromShort(syllable).toString()).append('|');
+            }
+
+            @Override
+            public void acceptSpace() {
+                result.append(' ');
+            }
+        });
+        return result.toString();
+    }
+
+    @Test
+    public void testStreaming() throws IOException, ParseException {
+        assertEquals("da\u030C| qiu\u0301|", parseStream("  da3   qiu2 ", true));
+        assertEquals("hui\u0300r| ", parseStream("hui4 r5", true));
+        assertEquals("hua\u0304r|jia\u0300ng|", parseStream("hua1 r5 jiang4", false));
+
+        // r5 far behind its syllable, across the internal buffer
+        final StringBuilder longInput = new StringBuilder("hui4");
+        for (int i = 0; i < 10000; i++) longInput.append(' ');
+        assertEquals("hui\u0300r| ", parseStream(longInput.append("r5").toString(), true));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testStreamingDoubleRFinal() throws IOException, ParseException {
+        parseStream("hui4 r5 r5", true);
+    }
+
+    @Test
+    public void testTryParse() {
+        final ParseResult valid = normalizer.tryParsePinyin("ni3 hao3");
+        assertTrue(valid.isValid());
+        assertEquals("ni\u030C ha\u030Co", valid.getPinyin().toString());
+        assertNull(valid.getError());
+        assertEquals(-1, valid.getErrorOffset());
+
+        final ParseResult invalidCombination = normalizer.tryParsePinyin("ni3 fai1");
+        assertFalse(invalidCombination.isValid());
+        assertNull(invalidCombination.getPinyin());
+        assertEquals(ParseError.INVALID_COMBINATION, invalidCombination.getError());
+        assertEquals(4, invalidCombination.getErrorOffset());
+
+        final String line = "ni3\tgai2+hello";
+        final ParseResult unexpectedCharacter =
+            normalizer.tryParsePinyin(line, 4, line.length(), true);
+        assertEquals(ParseError.UNEXPECTED_CHARACTER, unexpectedCharacter.getError());
+        assertEquals(8, unexpectedCharacter.getErrorOffset());
+        assertEquals("Unexpected character: \"+\".", unexpectedCharacter.getErrorMessage());
+
+        assertEquals(ParseError.UNEXPECTED_SEPARATOR,
+            normalizer.tryParsePinyin("ke'yi").getError());
+        assertEquals(ParseError.DOUBLE_R_FINAL,
+            normalizer.tryParsePinyin("huir4 r5").getError());
+    }
+
     @Test(expected = ParseException.class)
     public void testInvalidSyllable() throws ParseException {
         normalizer.parsePinyin("fai1");
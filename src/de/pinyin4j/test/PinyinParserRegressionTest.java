@@ -0,0 +1,280 @@
+package de.pinyin4j.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.ParseResult;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Pins the results of {@link PinyinParser} to those of the parser it had before
+ * {@code PinyinScanner} replaced it. The expected strings, {@link PinyinString#save} bytes and
+ * exception messages were recorded with that parser, except where noted.
+ */
+public final class PinyinParserRegressionTest {
+
+    // input, toString() and save() bytes with whitespace, then the same without whitespace
+    private static final String[][] VALID = {
+        { "ni3 hao3", "ni\u030c ha\u030co", "19672818ab30", "ni\u030cha\u030co", "196718ab30" },
+        { "ke3neng2", "ke\u030cne\u0301ng", "184a114730", "ke\u030cne\u0301ng", "184a114730" },
+        { "jing1ju4", "ji\u0304ngju\u0300", "0aac240c30", "ji\u0304ngju\u0300", "0aac240c30" },
+        { "ma1ma0", "ma\u0304ma", "0803000330", "ma\u0304ma", "0803000330" },
+        { "ma1ma5", "ma\u0304ma", "0803000330", "ma\u0304ma", "0803000330" },
+        { "hong2pu2taojiu3", "ho\u0301ngpu\u0301taojiu\u030c", "13eb12e200a61a2c30",
+            "ho\u0301ngpu\u0301taojiu\u030c", "13eb12e200a61a2c30" },
+        { "piao4liang", "pia\u0300oliang", "2202028830", "pia\u0300oliang", "2202028830" },
+        { "nv3ren2", "n\u00fc\u030cre\u0301n", "1c07111230", "n\u00fc\u030cre\u0301n",
+            "1c07111230" },
+        { "n\u00fc3ren2", "n\u00fc\u030cre\u0301n", "1c07111230", "n\u00fc\u030cre\u0301n",
+            "1c07111230" },
+        { "N\u00fc3ren2", "N\u00fc\u030cre\u0301n", "9c07111230", "N\u00fc\u030cre\u0301n",
+            "9c07111230" },
+        { "lu:4", "l\u00fc\u0300", "240830", "l\u00fc\u0300", "240830" },
+        { "Lu:4", "L\u00fc\u0300", "a40830", "L\u00fc\u0300", "a40830" },
+        { "nu:e4", "n\u00fce\u0300", "242730", "n\u00fce\u0300", "242730" },
+        { "l\u00fc4se4", "l\u00fc\u0300se\u0300", "2408205530", "l\u00fc\u0300se\u0300",
+            "2408205530" },
+        { "Xi1'an1", "Xi\u0304'a\u0304n", "896e08e030", "Xi\u0304'a\u0304n", "896e08e030" },
+        { "Xi1an1", "Xi\u0304'a\u0304n", "896e08e030", "Xi\u0304'a\u0304n", "896e08e030" },
+        { "xian1", "xia\u0304n", "0a4e30", "xia\u0304n", "0a4e30" },
+        { "xi1an1", "xi\u0304'a\u0304n", "096e08e030", "xi\u0304'a\u0304n", "096e08e030" },
+        { "pi2'ao3", "pi\u0301'a\u030co", "116218a030", "pi\u0301'a\u030co", "116218a030" },
+        { "Tian1'an1men2", "Tia\u0304n'a\u0304nme\u0301n", "8a4608e0110330",
+            "Tia\u0304n'a\u0304nme\u0301n", "8a4608e0110330" },
+        { "tian1an1men2", "tia\u0304n'a\u0304nme\u0301n", "0a4608e0110330",
+            "tia\u0304n'a\u0304nme\u0301n", "0a4608e0110330" },
+        { "huar1", "hua\u0304r", "4b0b30", "hua\u0304r", "4b0b30" },
+        { "huir4", "hui\u0300r", "636b30", "hui\u0300r", "636b30" },
+        { "hui4 r5", "hui\u0300r ", "636b2830", "hui\u0300r", "636b30" },
+        { "hui4r5", "hui\u0300r", "636b30", "hui\u0300r", "636b30" },
+        { "ni3 r5", "ni\u030cr ", "59672830", "ni\u030cr", "596730" },
+        { "er2", "e\u0301r", "504030", "e\u0301r", "504030" },
+        { "Er4", "E\u0300r", "e04030", "E\u0300r", "e04030" },
+        { "yi1", "yi\u0304", "096030", "yi\u0304", "096030" },
+        { "yi1ge4", "yi\u0304ge\u0300", "0960204930", "yi\u0304ge\u0300", "0960204930" },
+        { "wu3", "wu\u030c", "1ae030", "wu\u030c", "1ae030" },
+        { "yu2", "yu\u0301", "140030", "yu\u0301", "140030" },
+        { "yue4", "yue\u0300", "242030", "yue\u0300", "242030" },
+        { "yuan2", "yua\u0301n", "146030", "yua\u0301n", "146030" },
+        { "yun2", "yu\u0301n", "144030", "yu\u0301n", "144030" },
+        { "ju2", "ju\u0301", "140c30", "ju\u0301", "140c30" },
+        { "qu4", "qu\u0300", "240d30", "qu\u0300", "240d30" },
+        { "xue2", "xue\u0301", "142e30", "xue\u0301", "142e30" },
+        { "you3", "yo\u030cu", "1a2030", "yo\u030cu", "1a2030" },
+        { "wei4", "we\u0300i", "236030", "we\u0300i", "236030" },
+        { "wen4", "we\u0300n", "23a030", "we\u0300n", "23a030" },
+        { "weng1", "we\u0304ng", "0be030", "we\u0304ng", "0be030" },
+        { "yong3", "yo\u030cng", "1ac030", "yo\u030cng", "1ac030" },
+        { "ying1", "yi\u0304ng", "0aa030", "yi\u0304ng", "0aa030" },
+        { "zhi1", "zhi\u0304", "096f30", "zhi\u0304", "096f30" },
+        { "chi1", "chi\u0304", "097030", "chi\u0304", "097030" },
+        { "shi4", "shi\u0300", "217130", "shi\u0300", "217130" },
+        { "ri4", "ri\u0300", "217230", "ri\u0300", "217230" },
+        { "zi4", "zi\u0300", "217330", "zi\u0300", "217330" },
+        { "ci2", "ci\u0301", "117430", "ci\u0301", "117430" },
+        { "si4", "si\u0300", "217530", "si\u0300", "217530" },
+        { "Zhong1guo2", "Zho\u0304ngguo\u0301", "8bef132930", "Zho\u0304ngguo\u0301",
+            "8bef132930" },
+        { "Bei3jing1", "Be\u030ciji\u0304ng", "98810aac30", "Be\u030ciji\u0304ng", "98810aac30" },
+        { "Shang4hai3", "Sha\u0300ngha\u030ci", "a131186b30", "Sha\u0300ngha\u030ci",
+            "a131186b30" },
+        { "Guang3zhou1", "Gua\u030cngzho\u0304u", "9bc908cf30", "Gua\u030cngzho\u0304u",
+            "9bc908cf30" },
+        { "a1", "a\u0304", "080030", "a\u0304", "080030" },
+        { "o2", "o\u0301", "102030", "o\u0301", "102030" },
+        { "e4", "e\u0300", "204030", "e\u0300", "204030" },
+        { "ai4", "a\u0300i", "206030", "a\u0300i", "206030" },
+        { "ao4", "a\u0300o", "20a030", "a\u0300o", "20a030" },
+        { "ou1", "o\u0304u", "08c030", "o\u0304u", "08c030" },
+        { "an1", "a\u0304n", "08e030", "a\u0304n", "08e030" },
+        { "en1", "e\u0304n", "090030", "e\u0304n", "090030" },
+        { "ang4", "a\u0300ng", "212030", "a\u0300ng", "212030" },
+        { "eng1", "e\u0304ng", "094030", "e\u0304ng", "094030" },
+        { "lo5", "lo", "002830", "lo", "002830" },
+        { "yo1", "yo\u0304", "09a030", "yo\u0304", "09a030" },
+        { "ri4ben3ren2", "ri\u0300be\u030cnre\u0301n", "21721901111230",
+            "ri\u0300be\u030cnre\u0301n", "21721901111230" },
+        { "Zhong1 guo2 \u00b7 ren2", "Zho\u0304ng guo\u0301 re\u0301n", "8bef28132928111230",
+            "Zho\u0304ngguo\u0301re\u0301n", "8bef1329111230" },
+        { "Zhong1, guo2", "Zho\u0304ng guo\u0301", "8bef28132930", "Zho\u0304ngguo\u0301",
+            "8bef132930" },
+        { "zhong1,guo2", "zho\u0304ng guo\u0301", "0bef28132930", "zho\u0304ngguo\u0301",
+            "0bef132930" },
+        { "ni3\thao3", "ni\u030c ha\u030co", "19672818ab30", "ni\u030cha\u030co", "196718ab30" },
+        { "ni3  hao3", "ni\u030c ha\u030co", "19672818ab30", "ni\u030cha\u030co", "196718ab30" },
+        { "ni3", "ni\u030c", "196730", "ni\u030c", "196730" },
+        { "hao3", "ha\u030co", "18ab30", "ha\u030co", "18ab30" },
+        { " ni3 hao3 ", "ni\u030c ha\u030co", "19672818ab30", "ni\u030cha\u030co", "196718ab30" },
+        { "ni0", "ni", "016730", "ni", "016730" },
+        { "ni", "ni", "016730", "ni", "016730" },
+        { "ni3hao3ma0", "ni\u030cha\u030coma", "196718ab000330", "ni\u030cha\u030coma",
+            "196718ab000330" },
+        { "zha", "zha", "000f30", "zha", "000f30" },
+        { "bar", "bar", "400130", "bar", "400130" },
+        { "gu4r5", "gu\u0300r", "62e930", "gu\u0300r", "62e930" },
+        { "zhangr5", "zhangr", "412f30", "zhangr", "412f30" },
+        { "l\u00fce4", "l\u00fce\u0300", "242830", "l\u00fce\u0300", "242830" },
+        { "lve4", "l\u00fce\u0300", "242830", "l\u00fce\u0300", "242830" },
+        { "lu:e4", "l\u00fce\u0300", "242830", "l\u00fce\u0300", "242830" },
+        { "nve4", "n\u00fce\u0300", "242730", "n\u00fce\u0300", "242730" },
+        { "n\u00fce4", "n\u00fce\u0300", "242730", "n\u00fce\u0300", "242730" },
+        { "jue2", "jue\u0301", "142c30", "jue\u0301", "142c30" },
+        { "juan4", "jua\u0300n", "246c30", "jua\u0300n", "246c30" },
+        { "quan2", "qua\u0301n", "146d30", "qua\u0301n", "146d30" },
+        { "xun4", "xu\u0300n", "244e30", "xu\u0300n", "244e30" },
+        { "lun2", "lu\u0301n", "13a830", "lu\u0301n", "13a830" },
+        { "nun2", "nu\u0301n", "13a730", "nu\u0301n", "13a730" },
+        { "l\u00fcan2", "l\u00fca\u0301n", "146830", "l\u00fca\u0301n", "146830" },
+        { "shui3", "shui\u030c", "1b7130", "shui\u030c", "1b7130" },
+        { "dui4", "dui\u0300", "236530", "dui\u0300", "236530" },
+        { "gui4", "gui\u0300", "236930", "gui\u0300", "236930" },
+        { "liu2", "liu\u0301", "122830", "liu\u0301", "122830" },
+        { "jiu3", "jiu\u030c", "1a2c30", "jiu\u030c", "1a2c30" },
+        { "niu2", "niu\u0301", "122730", "niu\u0301", "122730" },
+        { "diu1", "diu\u0304", "0a2530", "diu\u0304", "0a2530" },
+        { "kui4", "kui\u0300", "236a30", "kui\u0300", "236a30" },
+        { "tuo1", "tuo\u0304", "0b2630", "tuo\u0304", "0b2630" },
+        { "luo4", "luo\u0300", "232830", "luo\u0300", "232830" },
+        { "gong1", "go\u0304ng", "0be930", "go\u0304ng", "0be930" },
+        { "kong3", "ko\u030cng", "1bea30", "ko\u030cng", "1bea30" },
+        { "biang2", "bia\u0301ng", "128130", "bia\u0301ng", "128130" },
+        { "den4", "de\u0300n", "210530", "de\u0300n", "210530" },
+        { "dia3", "dia\u030c", "198530", "dia\u030c", "198530" },
+        { "fiao4", "fia\u0300o", "220430", "fia\u0300o", "220430" },
+        { "ei4", "e\u0300i", "208030", "e\u0300i", "208030" },
+        { "hei1", "he\u0304i", "088b30", "he\u0304i", "088b30" },
+        { "shei2", "she\u0301i", "109130", "she\u0301i", "109130" },
+        { "nei4", "ne\u0300i", "208730", "ne\u0300i", "208730" },
+        { "lia3", "lia\u030c", "198830", "lia\u030c", "198830" },
+        { "sa1", "sa\u0304", "081530", "sa\u0304", "081530" },
+        { "zhei4", "zhe\u0300i", "208f30", "zhe\u0300i", "208f30" },
+        { "tei1", "te\u0304i", "088630", "te\u0304i", "088630" },
+        { "Ma1ma5", "Ma\u0304ma", "8803000330", "Ma\u0304ma", "8803000330" },
+        { "MA1MA5", "Ma\u0304Ma", "8803800330", "Ma\u0304Ma", "8803800330" },
+        { "mA1mA5", "ma\u0304ma", "0803000330", "ma\u0304ma", "0803000330" },
+        { "a'ai", "a'ai", "0000006030", "a'ai", "0000006030" },
+        { "ai'ai", "ai'ai", "0060006030", "ai'ai", "0060006030" },
+        { "xian'ai", "xian'ai", "024e006030", "xian'ai", "024e006030" },
+        { "xianai", "xianai", "018e006730", "xianai", "018e006730" },
+        { "fangan4", "fanga\u0300n", "00e420e930", "fanga\u0300n", "00e420e930" },
+        { "fang2an4", "fa\u0301ng'a\u0300n", "112420e030", "fa\u0301ng'a\u0300n", "112420e030" },
+        { "ding4er2", "di\u0300ng'e\u0301r", "22a5504030", "di\u0300ng'e\u0301r", "22a5504030" },
+        { "kuai4r5", "kua\u0300ir", "634a30", "kua\u0300ir", "634a30" },
+        { "yi1dian3r5", "yi\u0304dia\u030cnr", "09605a4530", "yi\u0304dia\u030cnr", "09605a4530" },
+        { "yi1dianr3", "yi\u0304dia\u030cnr", "09605a4530", "yi\u0304dia\u030cnr", "09605a4530" },
+        { "wanr2", "wa\u0301nr", "538030", "wa\u0301nr", "538030" },
+    };
+
+    // input, message of the ParseException with and without whitespace
+    private static final String[][] INVALID = {
+        { "NV3", "Invalid final: V (after initial \"n\"." },
+        // the parser before the scanner failed with a NullPointerException here
+        { "hui4 r5 r5", "Double r-final." },
+        { "r5", "Invalid r final at the beginning." },
+        { " r5", "Invalid r final at the beginning." },
+        { "er2r5", "Double r-final." },
+        { "ZHONG1GUO2", "Initial \"zh\" cannot be combined with final \"O\"." },
+        { "zhONG1", "Initial \"zh\" cannot be combined with final \"O\"." },
+        { "\u00ea1", "Unexpected character: \"\u00ea\"." },
+        { "n2", "Invalid final:  (after initial \"n\"." },
+        { "ng2", "Invalid initial: ng" },
+        { "m2", "Invalid final:  (after initial \"m\"." },
+        { "hm5", "Invalid initial: hm" },
+        { "hng5", "Invalid initial: hng" },
+        { "ni6", "Unexpected character: \"6\"." },
+        { "xyz", "Invalid final: y (after initial \"x\"." },
+        { "x", "Invalid final:  (after initial \"x\"." },
+        { "zz", "Invalid initial: zz" },
+        { "abc", "Invalid initial: bc" },
+        { "hello", "Invalid initial: ll" },
+        { "world", "Invalid initial: ld" },
+        { "the", "Invalid initial: th" },
+        { "went", "Invalid final:  (after initial \"t\"." },
+        { "qa", "Initial \"q\" cannot be combined with final \"A\"." },
+        { "ba4r", "Invalid final:  (after initial \"r\"." },
+        { "ban4r", "Invalid final:  (after initial \"r\"." },
+        { "ni3'", "Unexpected syllable separator after syllable \"ni\u030c\"." },
+        { "ni3''hao3", "Unexpected syllable separator after syllable \"ni\u030c\"." },
+        { "'ni3", "Unexpected character: \"'\"." },
+        { "ni3 'ao4", "Unexpected character: \"'\"." },
+        { "xi'", "Unexpected syllable separator after syllable \"xi\"." },
+        { "zh", "Invalid final:  (after initial \"zh\"." },
+        { "ch", "Invalid final:  (after initial \"ch\"." },
+        { "sh", "Invalid final:  (after initial \"sh\"." },
+        { "12", "Unexpected character: \"1\"." },
+        { "ni3!", "Unexpected character: \"!\"." },
+        { "ni3?", "Unexpected character: \"?\"." },
+        { "ni3.", "Unexpected character: \".\"." },
+        { "\u4e2d\u56fd", "Unexpected character: \"\u4e2d\"." },
+        { "ni3\u4e2d", "Unexpected character: \"\u4e2d\"." },
+        { "jve2", "Invalid final: \u00fce (after initial \"j\"." },
+        { "eh1", "Invalid final:  (after initial \"h\"." },
+        { "cei4", "Initial \"c\" cannot be combined with final \"EI\"." },
+        { "ng", "Invalid initial: ng" },
+        { "m", "Invalid final:  (after initial \"m\"." },
+        { "n", "Invalid final:  (after initial \"n\"." },
+        { "aiai", "Invalid final: aiai (after initial \"\"." },
+        { "fan'gan3", "Unexpected syllable separator after syllable \"fan\"." },
+        { "wan2r2", "Invalid final:  (after initial \"r\"." },
+        { "huaer", "Invalid final: uae (after initial \"h\"." },
+    };
+
+    private static String saveToHex(PinyinString pinyin) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        pinyin.save(new DataOutputStream(bytes));
+        final StringBuilder sb = new StringBuilder();
+
+        for (byte b : bytes.toByteArray()) {
+            sb.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return sb.toString();
+    }
+
+    @Test
+    public void testValidInputs() throws ParseException, IOException {
+        final PinyinParser parser = new PinyinParser();
+
+        for (String[] row : VALID) {
+            final PinyinString withWhitespace = parser.parsePinyin(row[0], true);
+            assertEquals(row[0], row[1], withWhitespace.toString());
+            assertEquals(row[0], row[2], saveToHex(withWhitespace));
+
+            final PinyinString withoutWhitespace = parser.parsePinyin(row[0], false);
+            assertEquals(row[0], row[3], withoutWhitespace.toString());
+            assertEquals(row[0], row[4], saveToHex(withoutWhitespace));
+        }
+    }
+
+    @Test
+    public void testInvalidInputs() {
+        final PinyinParser parser = new PinyinParser();
+
+        for (String[] row : INVALID) {
+            for (boolean parseWhitespace : new boolean[] { true, false }) {
+                try {
+                    parser.parsePinyin(row[0], parseWhitespace);
+                    fail("Parsed invalid input: " + row[0]);
+                }
+                catch (ParseException e) {
+                    assertEquals(row[0], row[1], e.getMessage());
+                }
+
+                // the message is assembled later, after the input has changed
+                final StringBuilder input = new StringBuilder(row[0]);
+                final ParseResult result =
+                    parser.tryParsePinyin(input, 0, input.length(), parseWhitespace);
+                input.setLength(0);
+                assertEquals(row[0], row[1], result.getErrorMessage());
+            }
+        }
+    }
+}
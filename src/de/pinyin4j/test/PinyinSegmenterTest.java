@@ -0,0 +1,101 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.pinyin4j.PinyinSegmenter;
+import de.pinyin4j.PinyinString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the segmentation of ambiguous pinyin by {@link PinyinSegmenter}.
+ */
+public final class PinyinSegmenterTest {
+
+    private static final PinyinSegmenter SEGMENTER = new PinyinSegmenter();
+
+    private static List<String> render(List<PinyinString> pinyins) {
+        final List<String> result = new ArrayList<>();
+
+        for (PinyinString pinyin : pinyins) {
+            result.add(pinyin.toString());
+        }
+
+        return result;
+    }
+
+    @Test
+    public void testBestPath() {
+        assertEquals("xia\u0304n", SEGMENTER.segment("xian1").toString());
+        assertEquals("xi'a\u0304n", SEGMENTER.segment("xi'an1").toString());
+        assertEquals("fa\u0304ng'a\u0300n", SEGMENTER.segment("fang1an4").toString());
+        assertEquals("fangan", SEGMENTER.segment("fangan").toString());
+        assertEquals("Ni\u030cha\u030co", SEGMENTER.segment("Ni3hao3").toString());
+        assertEquals("ni\u030c", SEGMENTER.segment("ni\u030c").toString());
+        assertEquals("l\u00fce\u0300", SEGMENTER.segment("lu:e4").toString());
+        assertEquals("l\u00fce\u0300", SEGMENTER.segment("lve4").toString());
+        assertEquals("", SEGMENTER.segment("").toString());
+    }
+
+    @Test
+    public void testBestPaths() {
+        assertEquals(Arrays.asList("xian", "xi'an"), render(SEGMENTER.segment("xian", 5)));
+        assertEquals(Arrays.asList("fangan", "fang'an"), render(SEGMENTER.segment("fangan", 2)));
+        assertEquals(1, SEGMENTER.segment("fangan", 1).size());
+    }
+
+    @Test
+    public void testLattice() {
+        final PinyinSegmenter.Lattice lattice = SEGMENTER.buildLattice("xianxian");
+        assertTrue(lattice.hasPath());
+        assertEquals(4, lattice.getPathCount());
+
+        // "xi", "xian", "an" at both halves, but not "a" or "n" alone
+        assertEquals(6, lattice.getEdgeCount());
+
+        // the number of paths grows exponentially, but the lattice only linearly
+        final StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < 80; i++) {
+            input.append("xian");
+        }
+
+        final PinyinSegmenter.Lattice large = SEGMENTER.buildLattice(input);
+        assertEquals(Long.MAX_VALUE, large.getPathCount());
+        assertEquals(240, large.getEdgeCount());
+        assertEquals(10, large.getBestPaths(10).size());
+    }
+
+    @Test
+    public void testPrecomposedToneMarks() {
+        assertEquals("xia\u0304n", SEGMENTER.segment("xi\u0101n").toString());
+        assertEquals("niha\u030co", SEGMENTER.segment("nih\u01ceo").toString());
+        assertEquals("N\u00fc\u030c", SEGMENTER.segment("N\u01da").toString());
+        assertEquals(Arrays.asList("xi\u0304'a\u0304n"),
+            render(SEGMENTER.segment("x\u012b\u0101n", 5)));
+    }
+
+    @Test
+    public void testMisplacedToneMarks() {
+        assertNull(SEGMENTER.segment("n\u0304i"));
+        assertNull(SEGMENTER.segment("xian\u0304"));
+        assertNull(SEGMENTER.segment("\u0304a"));
+        assertNull(SEGMENTER.segment("xi\u0101\u0304n"));
+        assertNull(SEGMENTER.segment("xi\u0101n1"));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertNull(SEGMENTER.segment("xianq"));
+        assertFalse(SEGMENTER.buildLattice("xianq").hasPath());
+        assertEquals(0, SEGMENTER.buildLattice("xianq").getEdgeCount());
+        assertEquals(0, SEGMENTER.segment("ni3 hao3 !", 3).size());
+    }
+}
@@ -0,0 +1,84 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import de.pinyin4j.PinyinFormat;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinSpanDetector;
+import de.pinyin4j.PinyinTokens;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests finding candidate pinyin spans with {@link PinyinSpanDetector}.
+ */
+public final class PinyinSpanDetectorTest {
+
+    private static final PinyinSpanDetector DETECTOR = new PinyinSpanDetector();
+    private static final PinyinSpanDetector TONELESS_DETECTOR = new PinyinSpanDetector(false);
+
+    private static String[] spans(PinyinSpanDetector detector, String text) {
+        final int[] offsets = detector.findSpans(text);
+        final String[] result = new String[offsets.length / 2];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = text.substring(offsets[2 * i], offsets[2 * i + 1]);
+        }
+
+        return result;
+    }
+
+    @Test
+    public void testSpans() {
+        final String text = "We went to Bei3jing1 and saw \u4e2d\u56fd (Zho\u0304ngguo\u0301)" +
+            " in 2020, then Xi1'an1 lu:4 huar1.";
+        assertArrayEquals(new String[] { "to Bei3jing1", "Zho\u0304ngguo\u0301",
+            "Xi1'an1 lu:4 huar1" }, spans(DETECTOR, text));
+        assertArrayEquals(new String[] { "Zh\u014dnggu\u00f3" },
+            spans(DETECTOR, "'Zh\u014dnggu\u00f3'"));
+        assertArrayEquals(new String[0], spans(DETECTOR, "the mp3 player"));
+        assertArrayEquals(new String[0], spans(DETECTOR, "Beijing"));
+        assertArrayEquals(new String[0], spans(DETECTOR, ""));
+    }
+
+    @Test
+    public void testToneless() {
+        assertArrayEquals(new String[] { "Beijing" }, spans(TONELESS_DETECTOR, "Beijing"));
+        assertArrayEquals(new String[] { "a", "he men" },
+            spans(TONELESS_DETECTOR, "a cat, he men the"));
+    }
+
+    @Test
+    public void testDetect() {
+        final String text = "We went to Bei3jing1 and saw \u4e2d\u56fd (Zho\u0304ngguo\u0301).";
+        final PinyinTokens tokens = DETECTOR.detect(text);
+        assertEquals("We went to Be\u030ciji\u0304ng and saw \u4e2d\u56fd (Zho\u0304ngguo\u0301).",
+            tokens.format(PinyinFormat.TONE_MARKS));
+
+        // "to" is in a span, but not pinyin, and "and" is pinyin, but not in a span
+        assertEquals(5, tokens.getCount());
+        assertEquals("Bei3jing1", tokens.getText(1).toString());
+    }
+
+    @Test
+    public void testNoPinyinIsMissed() {
+        // every word the tokenizer finds in a toned span is also found by the detector
+        final PinyinParser parser = new PinyinParser();
+        final String alphabet = "aeiouvnghzcsxr'12345 :.,";
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 200000; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        final String text = sb.toString();
+        final PinyinTokens all = parser.tokenize(text);
+        final PinyinTokens detected = TONELESS_DETECTOR.detect(text);
+        assertEquals(all.format(PinyinFormat.TONE_NUMBERS),
+            detected.format(PinyinFormat.TONE_NUMBERS));
+    }
+}
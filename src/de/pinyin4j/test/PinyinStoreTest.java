@@ -0,0 +1,82 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinStore;
+import de.pinyin4j.PinyinString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the memory-mapped {@link PinyinStore}.
+ */
+public final class PinyinStoreTest {
+
+    private static final PinyinParser PARSER = new PinyinParser();
+    private static final String[] INPUTS = new String[] {
+        "Wo3 jin1tian1 you3 yi2huir4 ni3 ne", "", "hua1 r5 jiang4", "xi1an1", "lu:e4 nu:3"
+    };
+
+    @Test
+    public void testWriteAndOpen() throws IOException, ParseException {
+        final List<PinyinString> pinyins = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++) {
+            pinyins.add(PARSER.parsePinyin(INPUTS[i % INPUTS.length], true));
+        }
+
+        final Path file = Files.createTempFile("pinyin", ".store");
+
+        try {
+            PinyinStore.write(file, pinyins);
+            final PinyinStore store = PinyinStore.open(file);
+            assertEquals(pinyins.size(), store.size());
+
+            for (int i = 0; i < pinyins.size(); i++) {
+                final PinyinStore.Entry entry = store.get(i);
+                assertEquals(pinyins.get(i).length(), entry.length());
+                assertEquals(pinyins.get(i).toString(), entry.toString());
+            }
+
+            final PinyinStore.Entry entry = store.get(0);
+            assertEquals(PinyinString.SPACE_CODE, entry.getCode(1));
+            assertNull(entry.getSyllable(1));
+            assertEquals(pinyins.get(0).getSyllable(2), entry.getSyllable(2));
+        }
+        finally {
+            delete(file);
+        }
+    }
+
+    // mapped files cannot be deleted on some platforms until the mapping is garbage collected
+    private static void delete(Path file) {
+        try {
+            Files.delete(file);
+        }
+        catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        final Path file = Files.createTempFile("pinyin", ".store");
+
+        try {
+            Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+            PinyinStore.open(file);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
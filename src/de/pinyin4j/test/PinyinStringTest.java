@@ -5,13 +5,22 @@ package de.pinyin4j.test;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
 
+import de.pinyin4j.Initial;
 import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinFormat;
 import de.pinyin4j.PinyinParser;
 import de.pinyin4j.PinyinString;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public final class PinyinStringTest {
@@ -46,4 +55,59 @@ public final class PinyinStringTest {
         assertNotEquals(PARSER.parsePinyin("Hui4"), PARSER.parsePinyin("hu4"));
         assertNotEquals(PARSER.parsePinyin("xi4zhu3ren4"), PARSER.parsePinyin("xi4zhu4ren4"));
     }
+
+    @Test
+    public void testPrefixNotEqual() throws ParseException {
+        assertNotEquals(PARSER.parsePinyin("ni3 hao3"), PARSER.parsePinyin("ni3"));
+        assertNotEquals(PARSER.parsePinyin("ni3"), PARSER.parsePinyin("ni3 hao3"));
+        assertNotEquals(PARSER.parsePinyin(""), PARSER.parsePinyin("a"));
+    }
+
+    @Test
+    public void testHashCode() throws ParseException {
+        final PinyinString a = PARSER.parsePinyin("Ni3 hao3", true),
+            b = PARSER.parsePinyin("ni3hao3", true);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(a.fingerprint(), b.fingerprint());
+        assertNotEquals(a.fingerprint(), PARSER.parsePinyin("ni3 hao4").fingerprint());
+        assertEquals(0xcbf29ce484222325L, PARSER.parsePinyin("").fingerprint());
+
+        final Set<PinyinString> set = new HashSet<>();
+        set.add(a);
+        assertTrue(set.contains(b));
+        assertEquals(a.getSyllable(0).hashCode(), b.getSyllable(0).hashCode());
+    }
+
+    @Test
+    public void testTokens() throws ParseException {
+        final PinyinString s = PARSER.parsePinyin("Ni3 hao3ma");
+        assertEquals(4, s.length());
+        assertEquals(PinyinString.SPACE_CODE, s.getCode(1));
+        assertNull(s.getSyllable(1));
+        assertEquals(Initial.H, s.getSyllable(2).getInitial());
+        assertTrue(s.getSyllable(0).isCapitalized());
+        assertEquals(s.getSyllable(3).toShort(), s.getCode(3));
+    }
+
+    @Test
+    public void testStringCaching() throws ParseException {
+        final PinyinString s = PARSER.parsePinyin("ni3 hao3");
+        assertSame(s.toString(), s.toString());
+
+        // formatting explicitly renders the string again without caching it
+        final String formatted = s.toString(PinyinFormat.TONE_MARKS);
+        assertEquals(s.toString(), formatted);
+        assertNotSame(formatted, s.toString(PinyinFormat.TONE_MARKS));
+    }
+
+    @Test
+    public void testAppendTo() throws ParseException, IOException {
+        final PinyinString s = PARSER.parsePinyin("Xi1an1 hua1r5 nu:3er2", true);
+        final StringWriter writer = new StringWriter();
+        s.appendTo(writer);
+        assertEquals(s.toString(), writer.toString());
+        assertEquals(s.toString(), s.appendTo(new StringBuilder()).toString());
+        assertEquals("Xi\u0304'a\u0304n hua\u0304r n\u00fc\u030C'e\u0301r", s.toString());
+    }
 }
@@ -0,0 +1,71 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import de.pinyin4j.PinyinFormat;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinTokens;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the tokenization of mixed text by {@link PinyinParser#tokenize(CharSequence)}.
+ */
+public final class PinyinTokensTest {
+
+    private static final PinyinParser PARSER = new PinyinParser();
+
+    private static String normalize(String text) {
+        return PARSER.tokenize(text).format(PinyinFormat.TONE_MARKS);
+    }
+
+    @Test
+    public void testTokens() {
+        final String text = "\u4e2d\u56fd (Zhong1guo2), 2024!";
+        final PinyinTokens tokens = PARSER.tokenize(text);
+        assertEquals(3, tokens.getCount());
+
+        assertFalse(tokens.isPinyin(0));
+        assertEquals("\u4e2d\u56fd (", tokens.getText(0).toString());
+        assertNull(tokens.getPinyin(0));
+
+        assertTrue(tokens.isPinyin(1));
+        assertEquals(4, tokens.getStart(1));
+        assertEquals(14, tokens.getEnd(1));
+        assertEquals(2, tokens.getSyllableCount(1));
+        assertEquals(tokens.getPinyin(1).getSyllable(1).toShort(), tokens.getCode(1, 1));
+        assertEquals("Zho\u0304ngguo\u0301", tokens.getPinyin(1).toString());
+
+        assertFalse(tokens.isPinyin(2));
+        assertEquals(text.length(), tokens.getEnd(2));
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("ni\u030cha\u030co\u4f60\u597d, hello!",
+            normalize("ni3hao3\u4f60\u597d, hello!"));
+        assertEquals("Xi\u0304'a\u0304n: l\u00fc\u0300 hua\u0304r x86",
+            normalize("Xi1'an1: lu:4 huar1 x86"));
+        assertEquals("'ni\u030c' don't", normalize("'ni3' don't"));
+        assertEquals("", normalize(""));
+    }
+
+    @Test
+    public void testRange() {
+        final String text = "abc ni3 hao3 xyz";
+        final PinyinTokens tokens = PARSER.tokenize(text, 4, 12);
+        assertEquals(3, tokens.getCount());
+        assertEquals(4, tokens.getStart(0));
+        assertEquals(12, tokens.getEnd(2));
+        assertEquals(" ", tokens.getText(1).toString());
+        assertEquals("ni\u030c ha\u030co", tokens.format(PinyinFormat.TONE_MARKS));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCodeOutOfRange() {
+        PARSER.tokenize("ni3").getCode(0, 1);
+    }
+}
@@ -0,0 +1,83 @@
+package de.pinyin4j.test;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.pinyin4j.ParseException;
+import de.pinyin4j.PinyinParser;
+import de.pinyin4j.PinyinString;
+import de.pinyin4j.PinyinTrie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests lookups in a {@link PinyinTrie}.
+ */
+public final class PinyinTrieTest {
+
+    private static final PinyinParser PARSER = new PinyinParser();
+    private static final String[] KEYS = new String[] {
+        "ni3 hao3", "ni3", "Ni2", "ni3 men5", "hao3", "ni3hao3", "ni3 hao3 ma5", "huar1", "hua1",
+        "hao4"
+    };
+
+    private static PinyinString parse(String pinyin) throws ParseException {
+        return PARSER.parsePinyin(pinyin);
+    }
+
+    private static PinyinTrie build() throws ParseException {
+        final List<PinyinString> keys = new ArrayList<>();
+
+        for (String key : KEYS) {
+            keys.add(parse(key));
+        }
+
+        return PinyinTrie.build(keys);
+    }
+
+    @Test
+    public void testExact() throws ParseException {
+        final PinyinTrie trie = build();
+        assertArrayEquals(new int[] { 0, 5 }, trie.get(parse("Ni3Hao3")));
+        assertArrayEquals(new int[] { 1 }, trie.get(parse("ni3")));
+        assertArrayEquals(new int[] { 8 }, trie.get(parse("hua1")));
+        assertArrayEquals(new int[0], trie.get(parse("ni3 hao4")));
+        assertArrayEquals(new int[] { 2, 1 }, trie.get(parse("ni"), false));
+    }
+
+    @Test
+    public void testPrefix() throws ParseException {
+        final PinyinTrie trie = build();
+        assertArrayEquals(new int[] { 1, 0, 5, 6, 3 }, trie.getByPrefix(parse("ni3")));
+        assertArrayEquals(new int[] { 0, 5, 6 }, trie.getByPrefix(parse("ni3 hao3")));
+        assertArrayEquals(new int[] { 2, 1, 0, 5, 6, 3 }, trie.getByPrefix(parse("ni"), false));
+        assertArrayEquals(new int[] { 4, 9 }, trie.getByPrefix(parse("hao"), false));
+        assertArrayEquals(new int[0], trie.getByPrefix(parse("ni2 hao3")));
+        assertEquals(KEYS.length, trie.getByPrefix(parse("")).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsortedBuilder() throws ParseException {
+        new PinyinTrie.Builder().add(parse("ni3 hao3"), 0).add(parse("ni3"), 1);
+    }
+
+    @Test
+    public void testSaveAndRead() throws ParseException, IOException {
+        final PinyinTrie trie = build();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        trie.save(new DataOutputStream(bytes));
+        final PinyinTrie read = PinyinTrie.read(
+            new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(trie.getNodeCount(), read.getNodeCount());
+        assertArrayEquals(trie.getByPrefix(parse("")), read.getByPrefix(parse("")));
+        assertArrayEquals(new int[] { 2, 1, 0, 5, 6, 3 }, read.getByPrefix(parse("ni"), false));
+    }
+}
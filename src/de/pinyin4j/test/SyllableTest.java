@@ -2,6 +2,9 @@ package de.pinyin4j.test;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import de.pinyin4j.Final;
 import de.pinyin4j.Initial;
 import de.pinyin4j.Syllable;
@@ -9,6 +12,7 @@ import de.pinyin4j.Tone;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -19,10 +23,10 @@ public final class SyllableTest {
 	// TODO document
     @Test
     public void testValidConstruction() {
-        final Syllable a = new Syllable(Initial.N, Final.V, Tone.LOW, false, false),
-            b = new Syllable(Initial.CH, Final.UN, Tone.HIGH, false, true),
-            c = new Syllable(Initial.EMPTY, Final.UAN, Tone.RISING, true, false),
-            d = new Syllable(Initial.N, Final.A, Tone.FALLING, true, true);
+        final Syllable a = Syllable.of(Initial.N, Final.V, Tone.LOW, false, false),
+            b = Syllable.of(Initial.CH, Final.UN, Tone.HIGH, false, true),
+            c = Syllable.of(Initial.EMPTY, Final.UAN, Tone.RISING, true, false),
+            d = Syllable.of(Initial.N, Final.A, Tone.FALLING, true, true);
         assertEquals(a.getInitial(), Initial.N);
         assertEquals(b.getFinal(), Final.UN);
         assertEquals(c.getTone(), Tone.RISING);
@@ -43,11 +47,55 @@ public final class SyllableTest {
 	// TODO document
     @Test
     public void testShortConversion() {
-        final Syllable a = new Syllable(Initial.ZH, Final.E, Tone.FALLING, true, false),
-            b = new Syllable(Initial.EMPTY, Final.UANG, Tone.RISING, false, true),
+        final Syllable a = Syllable.of(Initial.ZH, Final.E, Tone.FALLING, true, false),
+            b = Syllable.of(Initial.EMPTY, Final.UANG, Tone.RISING, false, true),
             a2 = Syllable.fromShort(a.toShort()),
             b2 = Syllable.fromShort(b.toShort());
         assertDataEqual(a, a2);
         assertDataEqual(b, b2);
     }
+
+    @Test
+    public void testAppendTo() throws IOException {
+        final Syllable a = Syllable.of(Initial.H, Final.UA, Tone.HIGH, true, true),
+            b = Syllable.of(Initial.L, Final.V, Tone.FALLING, false, false);
+        assertEquals("Hua\u0304r", a.toString());
+        assertEquals("l\u00fc\u0300", b.toString());
+
+        final StringWriter writer = new StringWriter();
+        a.appendTo(writer);
+        b.appendTo(writer);
+        assertEquals(a.toString() + b.toString(), writer.toString());
+        assertEquals("x" + a + b, b.appendTo(a.appendTo(new StringBuilder("x"))).toString());
+    }
+
+    @Test
+    public void testFlyweights() {
+        final Syllable a = Syllable.of(Initial.X, Final.IONG, Tone.RISING, false, true);
+        assertSame(a, Syllable.fromShort(a.toShort()));
+        assertSame(a, Syllable.fromId(a.getId()));
+        assertEquals(a.getId(), Syllable.toId(a.toShort()));
+        assertEquals(-1, Syllable.toId((short)0x3fff));
+        assertEquals(Syllable.getBaseCount() * Tone.values().length * 4, Syllable.getIdCount());
+
+        for (int id = 0; id < Syllable.getIdCount(); id++) {
+            final Syllable syllable = Syllable.fromId(id);
+            assertEquals(id, syllable.getId());
+            assertSame(syllable, Syllable.of(syllable.getInitial(), syllable.getFinal(),
+                syllable.getTone(), syllable.hasRFinal(), syllable.isCapitalized()));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedConstructor() {
+        final Syllable a = new Syllable(Initial.N, Final.V, Tone.LOW, true, true);
+        assertDataEqual(Syllable.of(Initial.N, Final.V, Tone.LOW, true, true), a);
+        assertEquals(Syllable.of(Initial.N, Final.V, Tone.LOW, true, true).toShort(), a.toShort());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCombination() {
+        Syllable.of(Initial.J, Final.A, Tone.HIGH, false, false);
+    }
 }